@@ -3,6 +3,7 @@ package Search;
 import collections.trie.Trie;
 import collections.trie.TrieBuilder;
 import geometry.Point;
+import osm.Interest;
 import osm.OSMObserver;
 import osm.elements.OSMNode;
 import osm.elements.OSMTag;
@@ -82,30 +83,21 @@ public class AddressDatabase implements OSMObserver, Serializable {
 
     @Override
     public void onNode(OSMNode node) {
-        var builder = new AddressBuilder();
-
-        boolean isAddress = false;
+        // The last tag with a key wins, where the first one does for every other feature
+        var classification = node.classification();
+        var street = classification.lastValue(OSMTag.Key.STREET);
+        if (street == null) return;
 
-        for (OSMTag t : node.tags()) {
-            if (t.key() == OSMTag.Key.STREET) {
-                builder.street(t.value());
-                isAddress = true;
-            }
-            if (t.key() == OSMTag.Key.HOUSENUMBER) {
-                builder.house(t.value());
-            }
-            if (t.key() == OSMTag.Key.CITY) {
-                builder.city(t.value());
-            }
-            if (t.key() == OSMTag.Key.POSTCODE) {
-                builder.postcode(t.value());
-            }
-        }
+        var builder = new AddressBuilder();
+        builder.street(street);
+        builder.house(classification.lastValue(OSMTag.Key.HOUSENUMBER));
+        builder.city(classification.lastValue(OSMTag.Key.CITY));
+        builder.postcode(classification.lastValue(OSMTag.Key.POSTCODE));
 
         builder.lat((float) node.lat());
         builder.lon((float) node.lon());
 
-        if (isAddress) addAddress(builder.build());
+        addAddress(builder.build());
     }
 
     @Override
@@ -224,4 +216,11 @@ public class AddressDatabase implements OSMObserver, Serializable {
         this.pointsOfInterest = pointsOfInterest;
 
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE
+                .nodes()
+                .keys(OSMTag.Key.STREET, OSMTag.Key.HOUSENUMBER, OSMTag.Key.CITY, OSMTag.Key.POSTCODE);
+    }
 }
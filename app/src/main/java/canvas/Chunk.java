@@ -4,10 +4,6 @@ import com.jogamp.opengl.GL3;
 import com.jogamp.opengl.GLAutoDrawable;
 import io.PartialChunk;
 
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-
 public class Chunk {
     private final int totalIndices;
     private final int totalVertices;
@@ -28,6 +24,18 @@ public class Chunk {
         count = totalIndices;
     }
 
+    public int getTotalIndices() {
+        return totalIndices;
+    }
+
+    public int getTotalVertices() {
+        return totalVertices;
+    }
+
+    public int getTotalDrawables() {
+        return totalDrawables;
+    }
+
     public void init(GLAutoDrawable glAutoDrawable) {
         indices =
                 new VBOWrapper(glAutoDrawable, GL3.GL_ELEMENT_ARRAY_BUFFER, totalIndices * Integer.BYTES);
@@ -51,31 +59,23 @@ public class Chunk {
         return drawables;
     }
 
+    /**
+     * Upload a part of the chunk. The parts must be added in the order they were written in, as
+     * their indices are offset by the parts before them already.
+     */
     public void add(PartialChunk part) {
-        for (var drawing : part.drawings) {
-            // Offset indices
-            var iArray = drawing.indices().toArray();
-            for (int i = 0; i < drawing.indices().size(); i++) {
-                iArray[i] += curVertex / 2;
-            }
-
-            // Upload to VBOs
-            indices().set(IntBuffer.wrap(iArray), curIndex, drawing.indices().size());
-            vertices()
-                    .set(
-                            FloatBuffer.wrap(drawing.vertices().getArray()),
-                            curVertex,
-                            drawing.vertices().size());
-            drawables()
-                    .set(
-                            ByteBuffer.wrap(drawing.drawables().getArray()),
-                            curDrawable,
-                            drawing.drawables().size());
-
-            curIndex += drawing.indices().size();
-            curVertex += drawing.vertices().size();
-            curDrawable += drawing.drawables().size();
-        }
+        var partIndices = part.indices(curVertex / 2);
+        var partVertices = part.vertices();
+        var partDrawables = part.drawables();
+
+        // Upload to VBOs, one call for each
+        indices().set(partIndices, (long) curIndex * Integer.BYTES, partIndices.remaining());
+        vertices().set(partVertices, (long) curVertex * Float.BYTES, partVertices.remaining());
+        drawables().set(partDrawables, curDrawable, partDrawables.remaining());
+
+        curIndex += partIndices.remaining() / Integer.BYTES;
+        curVertex += partVertices.remaining() / Float.BYTES;
+        curDrawable += partDrawables.remaining();
     }
 
     public void dispose() {
@@ -3,9 +3,12 @@ package canvas;
 import collections.grid.Grid;
 import com.jogamp.opengl.*;
 import drawing.DrawableEnum;
+import geometry.Point;
 import io.PolygonsReader;
 
 import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeMap;
 
 public class Model {
@@ -14,6 +17,14 @@ public class Model {
     private final IntBuffer tex = IntBuffer.allocate(TexType.values().length);
     private TreeMap<Float, Grid<Chunk>> chunks;
     private Chunk baseChunk;
+    private PolygonsReader reader;
+    /**
+     * The cells of the chunks that haven't been read yet, see {@link #read(Chunk)}
+     */
+    private final Map<Chunk, Cell> unread = new HashMap<>();
+
+    private record Cell(float size, Point point) {
+    }
 
     public Model(PolygonsReader reader) {
         caps = new GLCapabilities(GLProfile.getMaxFixedFunc(true));
@@ -72,20 +83,26 @@ public class Model {
                     // Prepare chunks map for data
                     chunks = new TreeMap<>();
                     var map = reader.getChunks();
+                    var indexed = reader.isIndexed();
                     for (var m : map.entrySet()) {
-                        for (var chunk : m.getValue().values()) {
-                            chunk.init(glAutoDrawable);
+                        for (var cell : m.getValue().entrySet()) {
+                            cell.getValue().init(glAutoDrawable);
+                            if (indexed) unread.put(cell.getValue(), new Cell(m.getKey(), cell.getKey()));
                         }
 
                         chunks.put(m.getKey(), new Grid<>(reader.getBounds(), m.getKey(), m.getValue()));
                     }
 
-                    // Read all data
-                    for (var partialChunk : reader.read()) {
-                        var chunk = map.get(partialChunk.cellSize).get(partialChunk.point);
+                    // Chunks are read when they are first drawn, unless they can only be read in order
+                    if (indexed) {
+                        this.reader = reader;
+                    } else {
+                        for (var partialChunk : reader.read()) {
+                            var chunk = map.get(partialChunk.cellSize).get(partialChunk.point);
 
-                        // Upload partial chunk
-                        chunk.add(partialChunk);
+                            // Upload partial chunk
+                            chunk.add(partialChunk);
+                        }
                     }
 
                     var partialBaseChunk = reader.getBaseChunk();
@@ -103,6 +120,20 @@ public class Model {
                 });
     }
 
+    /**
+     * Read and upload the drawings of a chunk, unless they have been already. The reader must still
+     * be open, and a context that shares objects with the shared drawable must be current, as it is
+     * while drawing.
+     */
+    public void read(Chunk chunk) {
+        var cell = unread.remove(chunk);
+        if (cell == null) return;
+
+        for (var partialChunk : reader.read(cell.size, cell.point)) {
+            chunk.add(partialChunk);
+        }
+    }
+
     public GLCapabilities getCaps() {
         return caps;
     }
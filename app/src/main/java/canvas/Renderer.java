@@ -266,6 +266,7 @@ public class Renderer implements GLEventListener {
         for (var chunk : canvas.getChunks()) {
             if (chunk == null) continue;
 
+            model.read(chunk);
             draw(gl, chunk, transformBuffer, time);
         }
 
@@ -0,0 +1,173 @@
+package collections;
+
+import java.util.Arrays;
+
+/**
+ * A set of long ids that stays small when the ids are spread out, like the ids of the nodes in an
+ * extract, which are scattered over the ids of the whole planet.
+ *
+ * <p>Ids are split into chunks of 65536 consecutive ids. A chunk with few ids keeps them as 16 bit
+ * offsets in an array, which grows up to the 8 KB of a bitmap and is then turned into one, so a
+ * chunk never takes up more than 8 KB.
+ *
+ * <p>Ids may be added in any order and more than once. Duplicates are removed the next time a chunk
+ * is looked up, which changes the chunk, so a set must only be used by one thread at a time, even
+ * if all of them just read it.
+ */
+public class IdSet {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    /**
+     * The most ids an array chunk can have, which take up as much as a bitmap
+     */
+    private static final int MAX_ARRAY_SIZE = (1 << CHUNK_BITS) / 16;
+
+    private final Chunks positive = new Chunks();
+    private final Chunks negative = new Chunks();
+
+    public void add(long id) {
+        if (id >= 0) positive.add(id);
+        else negative.add(~id);
+    }
+
+    public boolean contains(long id) {
+        return id >= 0 ? positive.contains(id) : negative.contains(~id);
+    }
+
+    public void addAll(IdSet other) {
+        positive.addAll(other.positive);
+        negative.addAll(other.negative);
+    }
+
+    /**
+     * @return The number of distinct ids in the set
+     */
+    public long size() {
+        return positive.size() + negative.size();
+    }
+
+    private static class Chunks {
+        private short[][] arrays = new short[0][];
+        private int[] counts = new int[0];
+        private boolean[] dirty = new boolean[0];
+        private long[][] bitmaps = new long[0][];
+
+        void add(long id) {
+            var chunk = chunk(id);
+            if (chunk >= arrays.length) grow(chunk);
+
+            var offset = (int) id & CHUNK_MASK;
+            if (bitmaps[chunk] != null) {
+                bitmaps[chunk][offset >>> 6] |= 1L << offset;
+                return;
+            }
+
+            var array = arrays[chunk];
+            if (array == null) {
+                array = arrays[chunk] = new short[8];
+            } else if (counts[chunk] == array.length) {
+                // Full, which may be because of duplicates
+                compact(chunk);
+                if (bitmaps[chunk] != null) {
+                    bitmaps[chunk][offset >>> 6] |= 1L << offset;
+                    return;
+                }
+
+                if (counts[chunk] > array.length / 2 && array.length < MAX_ARRAY_SIZE) {
+                    array = Arrays.copyOf(array, Math.min(array.length * 2, MAX_ARRAY_SIZE));
+                }
+                arrays[chunk] = array;
+            }
+
+            array[counts[chunk]++] = (short) offset;
+            dirty[chunk] = true;
+        }
+
+        boolean contains(long id) {
+            var chunk = chunk(id);
+            if (chunk >= arrays.length) return false;
+
+            if (dirty[chunk]) compact(chunk);
+
+            var offset = (int) id & CHUNK_MASK;
+            if (bitmaps[chunk] != null) return (bitmaps[chunk][offset >>> 6] & 1L << offset) != 0;
+            if (arrays[chunk] == null) return false;
+
+            return Arrays.binarySearch(arrays[chunk], 0, counts[chunk], (short) offset) >= 0;
+        }
+
+        void addAll(Chunks other) {
+            for (int chunk = 0; chunk < other.arrays.length; chunk++) {
+                var base = (long) chunk << CHUNK_BITS;
+
+                if (other.bitmaps[chunk] != null) {
+                    var bitmap = other.bitmaps[chunk];
+                    for (int i = 0; i < bitmap.length; i++) {
+                        for (var bits = bitmap[i]; bits != 0; bits &= bits - 1) {
+                            add(base + (i << 6) + Long.numberOfTrailingZeros(bits));
+                        }
+                    }
+                } else if (other.arrays[chunk] != null) {
+                    for (int i = 0; i < other.counts[chunk]; i++) {
+                        add(base + (other.arrays[chunk][i] & CHUNK_MASK));
+                    }
+                }
+            }
+        }
+
+        long size() {
+            long size = 0;
+            for (int chunk = 0; chunk < arrays.length; chunk++) {
+                if (dirty[chunk]) compact(chunk);
+
+                if (bitmaps[chunk] != null) {
+                    for (var bits : bitmaps[chunk]) size += Long.bitCount(bits);
+                } else {
+                    size += counts[chunk];
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Sort the ids of an array chunk and remove duplicates, and turn it into a bitmap if it is
+         * full without them
+         */
+        private void compact(int chunk) {
+            var array = arrays[chunk];
+            var count = counts[chunk];
+            Arrays.sort(array, 0, count);
+
+            var unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || array[i] != array[unique - 1]) array[unique++] = array[i];
+            }
+
+            counts[chunk] = unique;
+            dirty[chunk] = false;
+
+            if (unique == MAX_ARRAY_SIZE) {
+                var bitmap = new long[(1 << CHUNK_BITS) / 64];
+                for (int i = 0; i < unique; i++) {
+                    var offset = array[i] & CHUNK_MASK;
+                    bitmap[offset >>> 6] |= 1L << offset;
+                }
+                bitmaps[chunk] = bitmap;
+                arrays[chunk] = null;
+                counts[chunk] = 0;
+            }
+        }
+
+        private void grow(int chunk) {
+            var capacity = Math.max(chunk + 1, arrays.length + (arrays.length >> 1));
+            arrays = Arrays.copyOf(arrays, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+            bitmaps = Arrays.copyOf(bitmaps, capacity);
+        }
+
+        private static int chunk(long id) {
+            return Math.toIntExact(id >>> CHUNK_BITS);
+        }
+    }
+}
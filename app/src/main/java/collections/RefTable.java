@@ -17,11 +17,19 @@ public class RefTable<E extends Entity> implements Iterable<E> {
         values.add(value);
     }
 
-    public E get(long key) {
+    /**
+     * Sort the values so that they can be looked up. Lookups sort lazily on their own, but calling this
+     * first allows concurrent lookups.
+     */
+    public void sort() {
         if (!isSorted) {
             Collections.sort(values);
             isSorted = true;
         }
+    }
+
+    public E get(long key) {
+        sort();
 
         var search = Collections.binarySearch(values, Entity.withId(key));
 
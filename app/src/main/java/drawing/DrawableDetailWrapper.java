@@ -3,7 +3,8 @@ package drawing;
 import javafx.scene.paint.Color;
 
 public class DrawableDetailWrapper implements Drawable {
-    private static final DrawableDetailWrapper INSTANCE = new DrawableDetailWrapper();
+    private static final ThreadLocal<DrawableDetailWrapper> INSTANCE =
+            ThreadLocal.withInitial(DrawableDetailWrapper::new);
 
     private Drawable drawable;
     private double size;
@@ -13,16 +14,17 @@ public class DrawableDetailWrapper implements Drawable {
 
     /**
      * Get a Drawable with a new size. To avoid allocating, this method modifies and returns the same
-     * instance with every call.
+     * instance with every call on the same thread.
      *
      * @param drawable Drawable to wrap
      * @param detail   Detail from which to calculate new size
      * @return Wrapped drawable with new size
      */
     public static Drawable from(Drawable drawable, int detail) {
-        INSTANCE.drawable = drawable;
-        INSTANCE.size = drawable.size() * Math.pow(4, detail);
-        return INSTANCE;
+        var instance = INSTANCE.get();
+        instance.drawable = drawable;
+        instance.size = drawable.size() * Math.pow(4, detail);
+        return instance;
     }
 
     @Override
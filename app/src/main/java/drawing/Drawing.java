@@ -9,14 +9,22 @@ import geometry.Line;
 import geometry.Vector2D;
 
 import java.io.*;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.DoubleStream;
 
 /**
  * A Drawing represents drawn elements in a format that can be easily passed to OpenGL
  */
 public class Drawing extends Entity implements Serializable {
+    /**
+     * Angles of the points of a circle drawn around a point, counterclockwise from the right
+     */
+    private static final double[] CIRCLE =
+            DoubleStream.iterate(0, i -> i < Math.PI * 2, i -> i + Math.PI / 15).toArray();
+    private static final double[] CIRCLE_COS = Arrays.stream(CIRCLE).map(Math::cos).toArray();
+    private static final double[] CIRCLE_SIN = Arrays.stream(CIRCLE).map(Math::sin).toArray();
+
     private transient IntList indices;
     private transient FloatList vertices;
     private transient ByteList drawables;
@@ -60,6 +68,19 @@ public class Drawing extends Entity implements Serializable {
         return drawing;
     }
 
+    /**
+     * @param points The x and y of every point after each other
+     */
+    public static Drawing create(double[] points, Drawable drawable) {
+        return create(points, drawable, 0);
+    }
+
+    public static Drawing create(double[] points, Drawable drawable, int offset) {
+        var drawing = new Drawing();
+        drawing.draw(points, drawable, offset);
+        return drawing;
+    }
+
     // Ugly quick fix
     public void setId(long id) {
         this.id = id;
@@ -96,48 +117,124 @@ public class Drawing extends Entity implements Serializable {
     }
 
     void draw(Vector2D point, Drawable drawable, int offset) {
-        var points = new ArrayList<Vector2D>();
-
-        // Add points forming a circle counterclockwise around `point`
-        for (double i = 0; i < Math.PI * 2; i += Math.PI / 15) {
-            points.add(
-                    Vector2D.create(
-                            point.x() + Math.cos(i) * drawable.size(),
-                            point.y() + Math.sin(i) * drawable.size()));
+        // Points forming a circle counterclockwise around `point`
+        var points = new double[2 * CIRCLE_COS.length];
+        for (int i = 0; i < CIRCLE_COS.length; i++) {
+            points[2 * i] = point.x() + CIRCLE_COS[i] * drawable.size();
+            points[2 * i + 1] = point.y() + CIRCLE_SIN[i] * drawable.size();
         }
 
         draw(points, drawable, offset);
-
-        points.forEach(Vector2D::reuse);
     }
 
     void draw(List<Vector2D> points, Drawable drawable, int offset) {
+        var array = new double[2 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            array[2 * i] = points.get(i).x();
+            array[2 * i + 1] = points.get(i).y();
+        }
+
+        draw(array, drawable, offset);
+    }
+
+    /**
+     * @param points The x and y of every point after each other
+     */
+    void draw(double[] points, Drawable drawable, int offset) {
         switch (drawable.shape()) {
             case POLYLINE -> drawLine(points, drawable, offset);
             case FILL -> drawPolygon(points, drawable, offset);
         }
     }
 
-    private void drawPolygon(List<Vector2D> points, Drawable drawable, int offset) {
-        // Copy all coordinates into an array
-        var verts = new double[points.size() * 2];
-        for (int i = 0; i < points.size(); i++) {
-            var p = points.get(i);
-            verts[i * 2] = p.x();
-            verts[i * 2 + 1] = p.y();
-            addVertex(p, drawable);
+    private void drawPolygon(double[] points, Drawable drawable, int offset) {
+        for (int i = 0; i < points.length; i += 2) {
+            addVertex(points[i], points[i + 1], drawable);
+        }
+
+        // Most polygons are small buildings, which are convex, so they are drawn as a fan of
+        // triangles from the first point without triangulating them
+        var count = pointCount(points);
+        if (isConvex(points, count)) {
+            for (int i = 1; i + 1 < count; i++) {
+                indices().add(offset);
+                indices().add(offset + i);
+                indices().add(offset + i + 1);
+            }
+            return;
         }
 
         // Calculate indices for each vertex in triangulated polygon
-        for (var i : Earcut.earcut(verts)) {
+        for (var i : Earcut.earcut(points)) {
             // Offset each index before adding to indices
             indices().add(i + offset);
         }
     }
 
-    private void drawLine(List<Vector2D> points, Drawable drawable, int offset) {
+    /**
+     * @return The number of points in a polygon, without the last if it is the first again
+     */
+    static int pointCount(double[] points) {
+        var count = points.length / 2;
+        if (count > 1
+                && points[0] == points[2 * count - 2]
+                && points[1] == points[2 * count - 1]) {
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Check if the first `count` points of a polygon are convex, which they are if every corner
+     * turns the same way, and the edges go left and right, and up and down, only once each. Points
+     * that are all on a line aren't convex.
+     */
+    static boolean isConvex(double[] points, int count) {
+        if (count < 3) return false;
+
+        // The edge into the first point
+        var ax = points[0] - points[2 * count - 2];
+        var ay = points[1] - points[2 * count - 1];
+        int turn = 0, xSign = 0, ySign = 0, xFirst = 0, yFirst = 0, xFlips = 0, yFlips = 0;
+
+        for (int i = 0; i < count; i++) {
+            var next = (i + 1) % count;
+            var bx = points[2 * next] - points[2 * i];
+            var by = points[2 * next + 1] - points[2 * i + 1];
+            if (bx == 0 && by == 0) continue;
+
+            var sign = (int) Math.signum(bx);
+            if (sign != 0) {
+                if (xSign == 0) xFirst = sign;
+                else if (sign != xSign) xFlips++;
+                xSign = sign;
+            }
+            sign = (int) Math.signum(by);
+            if (sign != 0) {
+                if (ySign == 0) yFirst = sign;
+                else if (sign != ySign) yFlips++;
+                ySign = sign;
+            }
+
+            sign = (int) Math.signum(ax * by - ay * bx);
+            if (sign != 0) {
+                if (turn == 0) turn = sign;
+                else if (sign != turn) return false;
+            }
+
+            ax = bx;
+            ay = by;
+        }
+
+        // Going from the last edge back to the first may flip too
+        if (xSign != xFirst) xFlips++;
+        if (ySign != yFirst) yFlips++;
+        return turn != 0 && xFlips == 2 && yFlips == 2;
+    }
+
+    private void drawLine(double[] points, Drawable drawable, int offset) {
         // Lines must exist of at least two points
-        if (points.size() < 2) {
+        if (points.length < 4) {
             return;
         }
 
@@ -148,94 +245,92 @@ public class Drawing extends Entity implements Serializable {
         // from --- dir --> to
         //   |               |
         //  p3 ------------ p2
+        //
+        // p0-3 are offsets from the start of the segment. Every vector is kept as an x and a y, so
+        // nothing is allocated but the array intersections are put in.
 
-        var from = points.get(0);
-        var to = points.get(1);
-        var dir = to.sub(from);
+        var size = drawable.size();
+        var intersection = new double[2];
 
-        // find p0-3 by manipulating vectors
-        var hat = dir.hat();
-        var norm = hat.normalize();
+        double fromX = points[0], fromY = points[1];
+        double toX = points[2], toY = points[3];
+        double dirX = toX - fromX, dirY = toY - fromY;
 
-        var p3 = norm.scale(drawable.size());
-        var p0 = p3.scale(-1.0f);
-        var p1 = p0.add(dir);
-        var p2 = p3.add(dir);
-
-        dir.reuse();
-        hat.reuse();
-        norm.reuse();
+        // p3 is the normal of dir, scaled to the width of the line
+        var scale = 1.0 / Math.sqrt(dirY * dirY + dirX * dirX);
+        double p3X = -dirY * scale * size, p3Y = dirX * scale * size;
+        double p0X = -p3X, p0Y = -p3Y;
+        double p1X = p0X + dirX, p1Y = p0Y + dirY;
+        double p2X = p3X + dirX, p2Y = p3Y + dirY;
 
         // These points are final, we can add them now
-        addVertexReuse(p0.add(from), drawable);
-        addVertexReuse(p3.add(from), drawable);
+        addVertex(p0X + fromX, p0Y + fromY, drawable);
+        addVertex(p3X + fromX, p3Y + fromY, drawable);
 
         // Loop through remaining points in line, calculating a pair of points in each iteration
-        for (int i = 2; i < points.size(); i++) {
+        for (int i = 4; i < points.length; i += 2) {
             // Where we're going next
-            var nextTo = points.get(i);
-            var nextDir = nextTo.sub(to);
+            double nextToX = points[i], nextToY = points[i + 1];
+            double nextDirX = nextToX - toX, nextDirY = nextToY - toY;
 
             // Corners drawn from the next point
-            hat = nextDir.hat();
-            norm = hat.normalize();
-
-            var p3Next = norm.scale(drawable.size());
-            var p0Next = p3Next.scale(-1.0f);
-            var p1Next = p0Next.add(nextDir);
-            var p2Next = p3Next.add(nextDir);
+            scale = 1.0 / Math.sqrt(nextDirY * nextDirY + nextDirX * nextDirX);
+            double p3NextX = -nextDirY * scale * size, p3NextY = nextDirX * scale * size;
+            double p0NextX = -p3NextX, p0NextY = -p3NextY;
+            double p1NextX = p0NextX + nextDirX, p1NextY = p0NextY + nextDirY;
+            double p2NextX = p3NextX + nextDirX, p2NextY = p3NextY + nextDirY;
 
             addLineIndices(offset);
 
-            // Find intersections between previous two lines and next two lines
-            var aa = p0.add(to);
-            var ab = p1.add(to);
-            var ba = p0Next.add(nextTo);
-            var bb = p1Next.add(nextTo);
-            var intersect1 = Line.intersection(aa, ab, ba, bb);
-
-            aa.reuse();
-            ab.reuse();
-            ba.reuse();
-            bb.reuse();
-
-            aa = p3.add(to);
-            ab = p2.add(to);
-            ba = p3Next.add(nextTo);
-            bb = p2Next.add(nextTo);
-            var intersect2 = Line.intersection(aa, ab, ba, bb);
-
-            // Intersection is null if lines are parallel
-            if (intersect1 != null) {
-                addVertexReuse(intersect1, drawable);
+            // Find intersections between previous two lines and next two lines. There are none if
+            // the lines are parallel.
+            if (Line.intersection(
+                    p0X + toX,
+                    p0Y + toY,
+                    p1X + toX,
+                    p1Y + toY,
+                    p0NextX + nextToX,
+                    p0NextY + nextToY,
+                    p1NextX + nextToX,
+                    p1NextY + nextToY,
+                    intersection)) {
+                addVertex(intersection[0], intersection[1], drawable);
             } else {
-                addVertexReuse(p1.add(to), drawable);
+                addVertex(p1X + toX, p1Y + toY, drawable);
             }
 
-            if (intersect2 != null) {
-                addVertexReuse(intersect2, drawable);
+            if (Line.intersection(
+                    p3X + toX,
+                    p3Y + toY,
+                    p2X + toX,
+                    p2Y + toY,
+                    p3NextX + nextToX,
+                    p3NextY + nextToY,
+                    p2NextX + nextToX,
+                    p2NextY + nextToY,
+                    intersection)) {
+                addVertex(intersection[0], intersection[1], drawable);
             } else {
-                addVertexReuse(p2.add(to), drawable);
+                addVertex(p2X + toX, p2Y + toY, drawable);
             }
 
-            nextDir.reuse();
-            p0.reuse();
-            p1.reuse();
-            p2.reuse();
-            p3.reuse();
-
             // Move forward one point, setting the "current" points to the "next points"
-            to = nextTo;
-            p0 = p0Next;
-            p1 = p1Next;
-            p2 = p2Next;
-            p3 = p3Next;
+            toX = nextToX;
+            toY = nextToY;
+            p0X = p0NextX;
+            p0Y = p0NextY;
+            p1X = p1NextX;
+            p1Y = p1NextY;
+            p2X = p2NextX;
+            p2Y = p2NextY;
+            p3X = p3NextX;
+            p3Y = p3NextY;
         }
 
         addLineIndices(offset);
 
-        addVertexReuse(p0.add(to), drawable);
-        addVertexReuse(p3.add(to), drawable);
+        addVertex(p0X + toX, p0Y + toY, drawable);
+        addVertex(p3X + toX, p3Y + toY, drawable);
     }
 
     private void addLineIndices(int offset) {
@@ -253,17 +348,12 @@ public class Drawing extends Entity implements Serializable {
     /**
      * Add a vertex with a color and layer into the correct position in `vertices` and `colors`
      */
-    private void addVertex(Vector2D vertex, Drawable drawable) {
-        vertices().add((float) vertex.x());
-        vertices().add((float) vertex.y());
+    private void addVertex(double x, double y, Drawable drawable) {
+        vertices().add((float) x);
+        vertices().add((float) y);
         drawables().add((byte) drawable.ordinal());
     }
 
-    private void addVertexReuse(Vector2D vertex, Drawable drawable) {
-        addVertex(vertex, drawable);
-        vertex.reuse();
-    }
-
     public int byteSize() {
         return indices.size() * Integer.BYTES
                 + vertices.size() * Float.BYTES
@@ -1,12 +1,10 @@
 package drawing;
 
-import collections.Entity;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 
-public class Segment<T extends Entity> extends ArrayList<T> {
+public class Segment<T> extends ArrayList<T> {
     public Segment(Collection<? extends T> c) {
         super(c);
     }
@@ -1,12 +1,10 @@
 package drawing;
 
-import collections.Entity;
-
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 
-public class SegmentJoiner<T extends Entity> extends ArrayList<Segment<T>> {
+public class SegmentJoiner<T> extends ArrayList<Segment<T>> {
     public SegmentJoiner(Collection<? extends Segment<T>> c) {
         super(c);
     }
@@ -5,7 +5,6 @@ import io.*;
 import navigation.Dijkstra;
 import navigation.NearestNeighbor;
 
-import java.io.ObjectInputStream;
 import java.util.function.Function;
 
 public enum Feature {
@@ -15,9 +14,9 @@ public enum Feature {
     ADDRESS_SEARCH("Address Search", ObjectReader<AddressDatabase>::new);
 
     private final String displayName;
-    private final Function<ObjectInputStream, Reader> reader;
+    private final Function<MapEntry, Reader> reader;
 
-    Feature(String displayName, Function<ObjectInputStream, Reader> reader) {
+    Feature(String displayName, Function<MapEntry, Reader> reader) {
         this.displayName = displayName;
         this.reader = reader;
     }
@@ -35,8 +34,12 @@ public enum Feature {
         }
     }
 
-    public Reader createReader(ObjectInputStream stream) {
-        return reader.apply(stream);
+    /**
+     * Make a reader of the entry of a map file that the feature is stored in. Nothing is read until
+     * the reader is.
+     */
+    public Reader createReader(MapEntry entry) {
+        return reader.apply(entry);
     }
 
     @Override
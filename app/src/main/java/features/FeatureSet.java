@@ -1,5 +1,6 @@
 package features;
 
+import osm.Interest;
 import osm.OSMObserver;
 
 import java.io.Serializable;
@@ -16,4 +17,9 @@ public class FeatureSet extends HashSet<Feature> implements OSMObserver, Seriali
     public FeatureSet(Set<Feature> set) {
         addAll(set);
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE;
+    }
 }
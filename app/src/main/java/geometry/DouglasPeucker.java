@@ -0,0 +1,120 @@
+package geometry;
+
+/**
+ * Simplifies lines and rings with the Douglas-Peucker algorithm, which keeps the points that are
+ * farther than a tolerance from the line between the points kept around them
+ */
+public final class DouglasPeucker {
+    private DouglasPeucker() {
+    }
+
+    /**
+     * Simplify a line, or a ring if it ends with its first point. Rings stay rings of at least
+     * three points however small they are, so that fills don't collapse into lines.
+     *
+     * @param points    The x and y of every point after each other
+     * @param tolerance How far the simplified line may be from the points that are removed
+     * @return The points that are kept, or `points` itself if all of them are
+     */
+    public static double[] simplify(double[] points, double tolerance) {
+        var count = points.length / 2;
+        if (count < 3) return points;
+
+        var keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        // Ranges of points between kept points that are left to simplify, from and to after each
+        // other. Every range pushes at most two smaller ones.
+        var stack = new int[2 * count];
+        var size = 0;
+
+        var closed = points[0] == points[2 * count - 2] && points[1] == points[2 * count - 1];
+        if (closed) {
+            // The ends are the same point, so the ring is split at the point farthest from it, and
+            // at the points farthest from that split, whatever the tolerance
+            var far = farthest(points, 0, count - 1);
+            if (distance(points, far, 0, count - 1) == 0) return points;
+            keep[far] = true;
+
+            var splits =
+                    new int[]{0, farthest(points, 0, far), far, farthest(points, far, count - 1)};
+            var from = 0;
+            for (int i = 1; i <= splits.length; i++) {
+                var to = i == splits.length ? count - 1 : splits[i];
+                if (to < 0) continue;
+
+                keep[to] = true;
+                stack[size++] = from;
+                stack[size++] = to;
+                from = to;
+            }
+        } else {
+            stack[size++] = 0;
+            stack[size++] = count - 1;
+        }
+
+        var squared = tolerance * tolerance;
+        while (size > 0) {
+            var to = stack[--size];
+            var from = stack[--size];
+
+            var far = farthest(points, from, to);
+            if (far < 0 || distance(points, far, from, to) <= squared) continue;
+
+            keep[far] = true;
+            stack[size++] = from;
+            stack[size++] = far;
+            stack[size++] = far;
+            stack[size++] = to;
+        }
+
+        var kept = 0;
+        for (var k : keep) if (k) kept++;
+        if (kept == count) return points;
+
+        var result = new double[2 * kept];
+        var j = 0;
+        for (int i = 0; i < count; i++) {
+            if (!keep[i]) continue;
+            result[j++] = points[2 * i];
+            result[j++] = points[2 * i + 1];
+        }
+        return result;
+    }
+
+    /**
+     * @return The point between `from` and `to` that is farthest from the line between them, or -1
+     * if there are no points between them
+     */
+    private static int farthest(double[] points, int from, int to) {
+        var far = -1;
+        var max = -1.0;
+        for (int i = from + 1; i < to; i++) {
+            var distance = distance(points, i, from, to);
+            if (distance > max) {
+                max = distance;
+                far = i;
+            }
+        }
+        return far;
+    }
+
+    /**
+     * @return The squared distance from point i to the segment between points a and b
+     */
+    private static double distance(double[] points, int i, int a, int b) {
+        double px = points[2 * i], py = points[2 * i + 1];
+        double ax = points[2 * a], ay = points[2 * a + 1];
+        double dx = points[2 * b] - ax, dy = points[2 * b + 1] - ay;
+
+        // How far along the segment the point closest to point i is
+        var length = dx * dx + dy * dy;
+        var t = length == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / length;
+        t = Math.max(0, Math.min(1, t));
+
+        var ex = ax + t * dx - px;
+        var ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+}
@@ -11,22 +11,41 @@ public record Line(double ax, double ay, double bx, double by) {
 
     // Credit: https://flassari.is/2008/11/line-line-intersection-in-cplusplus/
     public static Vector2D intersection(Vector2D aa, Vector2D ab, Vector2D ba, Vector2D bb) {
-        // Store the values for fast access and easy
-        // equations-to-code conversion
-        double x1 = aa.x(), x2 = ab.x(), x3 = ba.x(), x4 = bb.x();
-        double y1 = aa.y(), y2 = ab.y(), y3 = ba.y(), y4 = bb.y();
+        var result = new double[2];
+        if (!intersection(aa.x(), aa.y(), ab.x(), ab.y(), ba.x(), ba.y(), bb.x(), bb.y(), result)) {
+            return null;
+        }
 
+        // Return the point of intersection
+        return Vector2D.create(result[0], result[1]);
+    }
+
+    /**
+     * Find the intersection of the line through (x1, y1) and (x2, y2), and the line through (x3, y3)
+     * and (x4, y4), without allocating
+     *
+     * @param result Where the x and y of the intersection are put, if there is one
+     * @return Whether there is an intersection, which there isn't if the lines are (almost) parallel
+     */
+    public static boolean intersection(
+            double x1,
+            double y1,
+            double x2,
+            double y2,
+            double x3,
+            double y3,
+            double x4,
+            double y4,
+            double[] result) {
         double d = (x1 - x2) * (y3 - y4) - (y1 - y2) * (x3 - x4);
         // If d is zero, there is no intersection
-        if (Math.abs(d) < 0.01) return null;
+        if (Math.abs(d) < 0.01) return false;
 
         // Get the x and y
         double pre = (x1 * y2 - y1 * x2), post = (x3 * y4 - y3 * x4);
-        double x = (pre * (x3 - x4) - (x1 - x2) * post) / d;
-        double y = (pre * (y3 - y4) - (y1 - y2) * post) / d;
-
-        // Return the point of intersection
-        return Vector2D.create(x, y);
+        result[0] = (pre * (x3 - x4) - (x1 - x2) * post) / d;
+        result[1] = (pre * (y3 - y4) - (y1 - y2) * post) / d;
+        return true;
     }
 
     public Vector2D a() {
@@ -3,7 +3,11 @@ package geometry;
 import java.util.ArrayDeque;
 
 public final class Vector2D {
-    private static final ArrayDeque<Vector2D> cache = new ArrayDeque<>();
+    /**
+     * Every thread has a cache of its own, so that vectors can be used on many threads at once
+     */
+    private static final ThreadLocal<ArrayDeque<Vector2D>> cache =
+            ThreadLocal.withInitial(ArrayDeque::new);
 
     private double x;
     private double y;
@@ -13,10 +17,10 @@ public final class Vector2D {
     }
 
     public static Vector2D create(double x, double y) {
-        if (cache.isEmpty()) {
+        var vec = cache.get().poll();
+        if (vec == null) {
             return new Vector2D(x, y);
         } else {
-            var vec = cache.remove();
             vec.init(x, y);
             return vec;
         }
@@ -32,11 +36,11 @@ public final class Vector2D {
     }
 
     /**
-     * Add the instance back to an internal cache. It is an error to use the Vector2D after calling
-     * reuse.
+     * Add the instance back to an internal cache of the calling thread. It is an error to use the
+     * Vector2D after calling reuse.
      */
     public void reuse() {
-        cache.add(this);
+        cache.get().add(this);
     }
 
     public Vector2D normalize() {
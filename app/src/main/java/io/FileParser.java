@@ -2,21 +2,31 @@ package io;
 
 import features.Feature;
 import features.FeatureSet;
+import geometry.Rect;
 import javafx.application.Platform;
 import javafx.scene.control.ProgressBar;
 import javafx.util.Pair;
 import org.anarres.parallelgzip.ParallelGZIPInputStream;
-import org.anarres.parallelgzip.ParallelGZIPOutputStream;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.archivers.tar.TarFile;
-import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import osm.Clip;
 import osm.OSMObserver;
+import osm.ObserverPipeline;
+import osm.OSMParser;
 import osm.OSMReader;
+import osm.ReferenceScanner;
+import osm.ReferenceScanner.References;
 import osm.elements.OSMBounds;
+import osm.pbf.PBFReader;
+import osm.tables.ArrayNodeTable;
+import osm.tables.MappedNodeTable;
+import osm.tables.NodeTable;
+import osm.tables.ReferencedNodeTable;
+import osm.tables.WayTable;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.zip.ZipFile;
 
@@ -24,16 +34,50 @@ public class FileParser {
     public static final String EXT = ".map";
     private static final String FEATURES = "FEATURES";
     private static final String BOUNDS = "BOUNDS";
+    // Rough lower bound on how many bytes of compressed input a node takes up, used to estimate the
+    // node count
+    private static final int COMPRESSED_BYTES_PER_NODE = 8;
 
     public static File createMapFromOsm(
             File infile, FeatureSet features, ProgressBar bar, OSMObserver... observers)
             throws Exception {
+        return createMapFromOsm(infile, features, null, bar, observers);
+    }
+
+    /**
+     * Create a map of part of a file
+     *
+     * @param clip Box to make the map of, in degrees, or null for the whole file. Only the elements
+     *             in and around it are read, see {@link Clip}.
+     */
+    public static File createMapFromOsm(
+            File infile, FeatureSet features, Rect clip, ProgressBar bar, OSMObserver... observers)
+            throws Exception {
         var writers = new ArrayList<Pair<String, Writer>>();
 
         { // `reader` gets its own scope so that it'll actually get GC'd at the end.
             // `reader = null` on its own just got optimized out.
 
-            var reader = new OSMReader();
+            var parallelism = Runtime.getRuntime().availableProcessors();
+            NodeTable nodes;
+            OSMParser reader;
+            if (isPbf(infile)) {
+                nodes = createNodeTable(infile.length() / COMPRESSED_BYTES_PER_NODE);
+                reader = new PBFReader(nodes);
+            } else if (isPlain(infile)) {
+                // Only the nodes and ways that are referred to are kept, found by a scan of the file.
+                // Nodes that are read before the scan is done are filtered once it is.
+                var references = ReferenceScanner.start(infile.toPath(), parallelism);
+                nodes =
+                        new ReferencedNodeTable(
+                                references.thenApply(References::nodes), FileParser::createNodeTable);
+                reader = new OSMReader(nodes, new WayTable(references.thenApply(References::ways)));
+            } else {
+                nodes = createNodeTable(infile.length() / COMPRESSED_BYTES_PER_NODE);
+                reader = new OSMReader(nodes);
+            }
+            reader.setParallelism(parallelism);
+            reader.setClip(clip);
 
             writers.add(new Pair<>(FEATURES, new ObjectWriter<>(features)));
             writers.add(new Pair<>(BOUNDS, new ObjectWriter<>(new OSMBounds())));
@@ -42,13 +86,36 @@ public class FileParser {
                 writers.add(new Pair<>(feature.name(), feature.createWriter()));
             }
 
-            for (var writer : writers) {
-                reader.addObservers(writer.getValue());
+            // With more than one core, every writer runs on a thread of its own
+            ObserverPipeline pipeline = null;
+            if (Runtime.getRuntime().availableProcessors() > 1) {
+                pipeline =
+                        new ObserverPipeline(
+                                writers.stream().map(Pair::getValue).toArray(Writer[]::new));
+                reader.addObservers(pipeline);
+            } else {
+                for (var writer : writers) {
+                    reader.addObservers(writer.getValue());
+                }
             }
 
             reader.addObservers(observers);
 
-            reader.parse(getInputStream(infile, bar));
+            try {
+                if (reader instanceof OSMReader osmReader && isPlain(infile)) {
+                    // Uncompressed XML is scanned straight from the page cache
+                    osmReader.parse(
+                            infile.toPath(),
+                            bar == null ? null : p -> Platform.runLater(() -> bar.setProgress(p)));
+                } else {
+                    try (var stream = getInputStream(infile, bar)) {
+                        reader.parse(stream);
+                    }
+                }
+            } finally {
+                if (pipeline != null) pipeline.close();
+                if (nodes instanceof Closeable closeable) closeable.close();
+            }
         }
 
         System.gc();
@@ -70,66 +137,76 @@ public class FileParser {
 
     private static void createMapFromWriters(File outfile, List<Pair<String, Writer>> pairs)
             throws IOException {
-        try (var tarStream =
-                     new TarArchiveOutputStream(new BufferedOutputStream(new FileOutputStream(outfile)))) {
-            for (var pair : pairs) {
-                var file = writeToFile(pair.getValue());
-                var entry = tarStream.createArchiveEntry(file, pair.getKey());
-                tarStream.putArchiveEntry(entry);
-                IOUtils.copy(file, tarStream);
-                tarStream.closeArchiveEntry();
-            }
-        }
-    }
-
-    private static File writeToFile(Writer writer) throws IOException {
-        var file = File.createTempFile("osm", "");
-        file.deleteOnExit();
-        try (var pigzStream = new ParallelGZIPOutputStream(new FileOutputStream(file))) {
-            writer.writeTo(pigzStream);
-            pigzStream.flush();
-        }
-        return file;
+        var writers = new LinkedHashMap<String, Writer>();
+        for (var pair : pairs) writers.put(pair.getKey(), pair.getValue());
+        MapFile.write(outfile, writers);
     }
 
+    /**
+     * Open a map. Only the features and bounds are read, and each feature is read when its reader
+     * is.
+     */
     public static ReadResult readMap(File file) throws IOException {
-        var tarFile = new TarFile(file);
+        var map = MapFile.open(file);
         var readers = new HashMap<Feature, Reader>();
-        var features = new ObjectReader<FeatureSet>(getEntryStream(FEATURES, tarFile)).read();
+        var features = new ObjectReader<FeatureSet>(map.get(FEATURES)).read();
         for (var feature : features) {
-            readers.put(feature, feature.createReader(getEntryStream(feature.name(), tarFile)));
+            readers.put(feature, feature.createReader(map.get(feature.name())));
         }
-        return new ReadResult(
-                readers, new ObjectReader<OSMBounds>(getEntryStream(BOUNDS, tarFile)).read());
+        return new ReadResult(readers, new ObjectReader<OSMBounds>(map.get(BOUNDS)).read(), map);
     }
 
-    private static ObjectInputStream getEntryStream(String name, TarFile tarFile) throws IOException {
-        return new ObjectInputStream(
-                new ParallelGZIPInputStream(
-                        tarFile.getInputStream(
-                                tarFile.getEntries().stream()
-                                        .filter(e -> e.getName().equals(name))
-                                        .findFirst()
-                                        .orElseThrow())));
+    /**
+     * Keep the nodes on disk if they would take up a big part of the heap
+     */
+    private static NodeTable createNodeTable(long nodeCount) {
+        if (nodeCount * ArrayNodeTable.BYTES_PER_NODE > Runtime.getRuntime().maxMemory() / 4) {
+            try {
+                return MappedNodeTable.createTemp();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new ArrayNodeTable();
+    }
+
+    private static boolean isPbf(File file) {
+        return file.getName().endsWith(".pbf");
+    }
+
+    private static boolean isPlain(File file) {
+        return !isCompressed(file);
+    }
+
+    private static boolean isCompressed(File file) {
+        var name = file.getName();
+        return name.endsWith(".zip") || name.endsWith(".gz") || name.endsWith(".bz2");
     }
 
     private static InputStream getInputStream(File file, ProgressBar bar) throws IOException {
-        long size;
+        var name = file.getName();
         InputStream stream;
 
-        if (file.getName().endsWith(".zip")) {
+        if (name.endsWith(".zip")) {
             var zipFile = new ZipFile(file);
             var entry = zipFile.entries().nextElement();
-            size = entry.getSize();
-            stream = zipFile.getInputStream(entry);
+            stream = new BufferedInputStream(zipFile.getInputStream(entry));
+            if (bar != null) stream = new ProgressBarInputStream(stream, bar, entry.getSize());
         } else {
-            stream = new FileInputStream(file);
-            size = file.length();
+            // The uncompressed size isn't known up front, so progress is measured on the file
+            stream = new BufferedInputStream(new FileInputStream(file));
+            if (bar != null) stream = new ProgressBarInputStream(stream, bar, file.length());
+
+            if (name.endsWith(".gz")) {
+                stream = new ParallelGZIPInputStream(stream);
+            } else if (name.endsWith(".bz2")) {
+                // Also reads files from parallel compressors like pbzip2, which are many streams in one
+                stream = new BZip2CompressorInputStream(stream, true);
+            }
         }
 
-        stream = new BufferedInputStream(stream);
-
-        if (bar != null) stream = new ProgressBarInputStream(stream, bar, size);
+        // Decompress on a thread of its own, while the reader scans what has been decompressed
+        if (isCompressed(file)) stream = new ReadAheadInputStream(stream);
 
         return stream;
     }
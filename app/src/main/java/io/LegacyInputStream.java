@@ -0,0 +1,70 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads objects serialized by older versions of the map format. Their classes have no
+ * serialVersionUID, so a class that has gained a method since has another one now, though it is
+ * serialized just the same. Such a class is read as it is now, as long as it has the same fields
+ * it had then. Any other change still fails, like it would with an ObjectInputStream.
+ */
+class LegacyInputStream extends ObjectInputStream {
+    LegacyInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+        var descriptor = super.readClassDescriptor();
+
+        for (var cls : classes(descriptor.getName())) {
+            var local = ObjectStreamClass.lookup(cls);
+            if (local == null) continue;
+
+            if (cls.getName().equals(descriptor.getName())
+                    && local.getSerialVersionUID() == descriptor.getSerialVersionUID()) {
+                return descriptor;
+            }
+            if (sameFields(local, descriptor)) return local;
+        }
+
+        return descriptor;
+    }
+
+    /**
+     * @param name The name of a class as it was serialized
+     * @return The classes that objects of it may be read as, the first one with the same fields is
+     * used
+     */
+    protected List<Class<?>> classes(String name) {
+        // Arrays have no serialVersionUID to check
+        if (name.startsWith("[")) return List.of();
+
+        try {
+            return List.of(Class.forName(name, false, LegacyInputStream.class.getClassLoader()));
+        } catch (ClassNotFoundException e) {
+            return List.of();
+        }
+    }
+
+    private static boolean sameFields(ObjectStreamClass a, ObjectStreamClass b) {
+        var fields = a.getFields();
+        var others = b.getFields();
+        if (fields.length != others.length) return false;
+
+        for (int i = 0; i < fields.length; i++) {
+            if (!fields[i].getName().equals(others[i].getName())
+                    || fields[i].getTypeCode() != others[i].getTypeCode()
+                    || !Objects.equals(fields[i].getTypeString(), others[i].getTypeString())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
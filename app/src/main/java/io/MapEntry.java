@@ -0,0 +1,26 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An entry of a map file, the part of it a feature is stored in. Entries can be opened any number of
+ * times, and nothing is read until they are.
+ */
+public interface MapEntry {
+    /**
+     * @return The whole entry, decompressed if it was compressed as a whole
+     */
+    InputStream open() throws IOException;
+
+    /**
+     * @return Some bytes of the entry as they are stored, without reading the ones before them
+     */
+    InputStream open(long offset, long length) throws IOException;
+
+    /**
+     * @return The version of the map format the entry was written in, which is 0 for the entries of
+     * tar maps
+     */
+    int version();
+}
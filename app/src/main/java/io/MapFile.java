@@ -0,0 +1,376 @@
+package io;
+
+import org.anarres.parallelgzip.ParallelGZIPInputStream;
+import org.anarres.parallelgzip.ParallelGZIPOutputStream;
+import org.apache.commons.compress.archivers.tar.TarFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A map file, which is a table of contents followed by the entries of the features, one after
+ * another. The table has the offset, length and CRC-32 of every entry, so an entry can be opened
+ * without reading the ones before it, and only when it is needed. Entries that are read to the end
+ * are checked against their checksum. The table also says which entries are gzipped.
+ *
+ * <p>Maps used to be tar files of gzipped, Java-serialized features, which are still read. Their
+ * entries are found by name in the same way, but aren't checked, as tar has no checksums. Classes
+ * that have changed since are read as described in {@link LegacyInputStream}.
+ */
+public final class MapFile implements Closeable {
+    private static final int MAGIC = 0x4F534D4D; // "OSMM"
+    /**
+     * Version 3 says in the table which entries are gzipped. Version 2 stores the parts of chunks as
+     * blobs, see {@link PartialChunk#serialize()}. Version 1 stored them Java-serialized. All of them
+     * are still read, see {@link MapEntry#version()}.
+     */
+    static final int VERSION = 3;
+    private static final int OLDEST_VERSION = 1;
+    /**
+     * The version the entries of tar maps have
+     */
+    static final int TAR = 0;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final Map<String, MapEntry> entries = new HashMap<>();
+
+    private MapFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param gzipped Whether the entry is gzipped as a whole, see {@link Writer#compresses()}
+     */
+    private record Toc(String name, long offset, long length, int crc, boolean gzipped) {
+    }
+
+    /**
+     * @throws IOException If the file isn't a map, or is a map of a version that can't be read
+     */
+    public static MapFile open(File file) throws IOException {
+        var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        var map = new MapFile(channel);
+
+        try {
+            // Not closed, as that would close the channel
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (channel.size() < Integer.BYTES || in.readInt() != MAGIC) {
+                map.readTar(file);
+                return map;
+            }
+
+            var version = in.readInt();
+            if (version < OLDEST_VERSION || version > VERSION) {
+                throw new IOException(
+                        file.getName() + " is version " + version + " of the map format, and must be"
+                                + " made again");
+            }
+
+            var count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var name = in.readUTF();
+                var offset = in.readLong();
+                var length = in.readLong();
+                var crc = in.readInt();
+                // Older versions gzipped every entry whose writer didn't compress it, which is told by
+                // the magic number of gzip, as those entries never start with it
+                var gzipped = version >= 3 ? in.readBoolean() : gzipped(channel, offset, length);
+
+                var toc = new Toc(name, offset, length, crc, gzipped);
+                map.entries.put(toc.name, new Entry(channel, toc, version));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        return map;
+    }
+
+    /**
+     * Find the entries of a tar map, which are all gzipped. Only their names and where they are is
+     * read from the tar file, and they are read from the channel like the entries of any map.
+     */
+    private void readTar(File file) throws IOException {
+        try (var tar = new TarFile(file)) {
+            for (var entry : tar.getEntries()) {
+                var toc = new Toc(entry.getName(), entry.getDataOffset(), entry.getSize(), 0, true);
+                entries.put(toc.name, new Entry(channel, toc, TAR));
+            }
+        } catch (IOException e) {
+            throw new IOException(file.getName() + " isn't a map", e);
+        }
+
+        if (entries.isEmpty()) throw new IOException(file.getName() + " isn't a map");
+    }
+
+    private static boolean gzipped(FileChannel channel, long offset, long length)
+            throws IOException {
+        if (length < 2) return false;
+
+        var magic = ByteBuffer.allocate(2);
+        while (magic.hasRemaining()) {
+            if (channel.read(magic, offset + magic.position()) < 0) {
+                throw new EOFException("Map file ends inside an entry");
+            }
+        }
+        return (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /**
+     * Write a map file. Writers that compress what they write themselves write straight into the
+     * file, while the others are gzipped at the same time, each on a thread of its own, into temp
+     * files that are moved over once the first are done. No entry is read back to be checksummed.
+     *
+     * @param entries Names of the entries, and the writers that write them
+     */
+    public static void write(File file, Map<String, Writer> entries) throws IOException {
+        // The checksums aren't known until the entries are written, so the table is written last, in
+        // the space left for it
+        var tocs = new ArrayList<Toc>();
+        for (var name : entries.keySet()) tocs.add(new Toc(name, 0, 0, 0, false));
+        var offset = (long) table(tocs).length;
+        tocs.clear();
+
+        var gzipped = new LinkedHashMap<String, Future<Spilled>>();
+        var pool = Executors.newFixedThreadPool(Math.max(1, entries.size()));
+        try (var channel =
+                     FileChannel.open(
+                             file.toPath(),
+                             StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE,
+                             StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var entry : entries.entrySet()) {
+                if (!entry.getValue().compresses()) {
+                    gzipped.put(entry.getKey(), pool.submit(() -> spill(entry.getValue())));
+                }
+            }
+
+            channel.position(offset);
+            for (var entry : entries.entrySet()) {
+                if (!entry.getValue().compresses()) continue;
+
+                // Not closed, as that would close the channel
+                var out =
+                        new CheckedOutputStream(
+                                new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE),
+                                new CRC32());
+                entry.getValue().writeTo(out);
+                out.flush();
+
+                var length = channel.position() - offset;
+                tocs.add(
+                        new Toc(entry.getKey(), offset, length, (int) out.getChecksum().getValue(), false));
+                offset += length;
+            }
+
+            for (var entry : gzipped.entrySet()) {
+                var spilled = get(entry.getValue());
+                try (var in = FileChannel.open(spilled.file.toPath(), StandardOpenOption.READ)) {
+                    var length = in.size();
+                    channel.position(offset);
+                    for (long done = 0; done < length; ) {
+                        done += in.transferTo(done, length - done, channel);
+                    }
+
+                    tocs.add(new Toc(entry.getKey(), offset, length, spilled.crc, true));
+                    offset += length;
+                } finally {
+                    spilled.file.delete();
+                }
+            }
+
+            var table = ByteBuffer.wrap(table(tocs));
+            while (table.hasRemaining()) channel.write(table, table.position());
+        } finally {
+            pool.shutdownNow();
+            // Temp files of entries that weren't moved over, if writing failed
+            for (var future : gzipped.values()) {
+                if (future.isDone() && !future.isCancelled()) {
+                    try {
+                        future.get().file.delete();
+                    } catch (ExecutionException | InterruptedException e) {
+                        // Nothing was spilled
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A gzipped entry in a temp file, and the checksum of the file
+     */
+    private record Spilled(File file, int crc) {
+    }
+
+    private static Spilled spill(Writer writer) throws IOException {
+        var file = File.createTempFile("osm", "");
+        file.deleteOnExit();
+
+        var checked = new CheckedOutputStream(new FileOutputStream(file), new CRC32());
+        try (var out = new ParallelGZIPOutputStream(checked)) {
+            writer.writeTo(out);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        return new Spilled(file, (int) checked.getChecksum().getValue());
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] table(List<Toc> tocs) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(tocs.size());
+        for (var toc : tocs) {
+            out.writeUTF(toc.name);
+            out.writeLong(toc.offset);
+            out.writeLong(toc.length);
+            out.writeInt(toc.crc);
+            out.writeBoolean(toc.gzipped);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws NoSuchElementException If there is no entry with the name
+     */
+    public MapEntry get(String name) {
+        var entry = entries.get(name);
+        if (entry == null) throw new NoSuchElementException("No entry named " + name);
+        return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static final class Entry implements MapEntry {
+        private final FileChannel channel;
+        private final Toc toc;
+        private final int version;
+
+        private Entry(FileChannel channel, Toc toc, int version) {
+            this.channel = channel;
+            this.toc = toc;
+            this.version = version;
+        }
+
+        @Override
+        public int version() {
+            return version;
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            // Tar maps have no checksums to check against
+            var checked = version == TAR ? null : toc;
+            var in =
+                    new BufferedInputStream(
+                            new RegionInputStream(channel, checked, toc.offset, toc.length), BUFFER_SIZE);
+            return toc.gzipped ? new ParallelGZIPInputStream(in) : in;
+        }
+
+        @Override
+        public InputStream open(long offset, long length) {
+            if (offset < 0 || length < 0 || offset + length > toc.length) {
+                throw new IndexOutOfBoundsException("Outside of entry " + toc.name);
+            }
+            return new BufferedInputStream(
+                    new RegionInputStream(channel, null, toc.offset + offset, length), BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Reads part of a file with positional reads, so that any number of them can read the same
+     * channel at once
+     */
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        /**
+         * The entry the region is the whole of, which it is checked against, or null
+         */
+        private final Toc toc;
+        private final CRC32 crc = new CRC32();
+
+        private RegionInputStream(FileChannel channel, Toc toc, long offset, long length) {
+            this.channel = channel;
+            this.toc = toc;
+            position = offset;
+            end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (position == end) return -1;
+
+            var buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+            var read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException("Map file ends inside an entry");
+
+            position += read;
+            if (toc != null) {
+                crc.update(b, off, read);
+                if (position == end && (int) crc.getValue() != toc.crc) {
+                    throw new IOException("Entry " + toc.name + " of the map file is corrupt");
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
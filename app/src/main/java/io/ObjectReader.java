@@ -14,9 +14,14 @@ public class ObjectReader<T> extends Reader<T> {
         super(in);
     }
 
+    public ObjectReader(MapEntry entry) {
+        super(entry);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public T read() {
+        open();
         try {
             return (T) stream.readUnshared();
         } catch (IOException | ClassNotFoundException e) {
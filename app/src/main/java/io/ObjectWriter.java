@@ -1,6 +1,7 @@
 package io;
 
 import geometry.Rect;
+import osm.Interest;
 import osm.OSMObserver;
 import osm.elements.OSMNode;
 import osm.elements.OSMRelation;
@@ -52,4 +53,9 @@ public class ObjectWriter<T extends OSMObserver & Serializable> implements Write
     public void onFinish() {
         obj.onFinish();
     }
+
+    @Override
+    public Interest interest() {
+        return obj.interest();
+    }
 }
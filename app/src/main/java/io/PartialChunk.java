@@ -1,28 +1,76 @@
 package io;
 
+import collections.lists.ByteList;
+import collections.lists.FloatList;
+import collections.lists.IntList;
+import collections.lists.LongList;
 import drawing.Drawing;
 import geometry.Point;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.Serial;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
-public class PartialChunk implements Serializable {
-    public final List<Drawing> drawings;
+/**
+ * The drawings of a chunk, or of a part of one. Drawings are added one at a time while a map is
+ * made, and written as a blob that has the indices, vertices and drawables of all of them in three
+ * arrays, see {@link #serialize()}. A chunk that is read keeps the blob, and hands out views of the
+ * arrays that can be uploaded as they are.
+ */
+public class PartialChunk {
+    /**
+     * First int of a blob
+     */
+    private static final int BLOB = 0x43484E4B; // "CHNK"
+    /**
+     * Ints before the counts of the drawings in a blob
+     */
+    private static final int HEADER_INTS = 7;
+    /**
+     * Blobs are little-endian, like the GPUs they are uploaded to
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
 
     public final Point point;
     public final float cellSize;
+    private final List<Drawing> drawings = new ArrayList<>();
     private int byteSize = 0;
     private int totalIndices = 0;
     private int totalVertices = 0;
     private int totalDrawables = 0;
 
+    /**
+     * The arrays of a chunk that was read, or null while drawing
+     */
+    private ByteBuffer indices;
+    private ByteBuffer vertices;
+    private ByteBuffer drawables;
+    /**
+     * What the indices of a chunk that was read are offset by, which is the number of points in
+     * earlier parts of the chunk, or half their vertices
+     */
+    private int base;
+    /**
+     * The number of indices, vertices and drawables of each drawing in a chunk that was read
+     */
+    private int[] counts;
+
     public PartialChunk(Point point, float cellSize) {
         this.point = point;
         this.cellSize = cellSize;
-        drawings = new ArrayList<>();
     }
 
     public void add(Drawing drawing) {
@@ -34,20 +82,324 @@ public class PartialChunk implements Serializable {
         totalDrawables += drawing.drawables().size();
     }
 
+    /**
+     * @return The drawings, which are made from the arrays again if the chunk was read
+     */
+    public List<Drawing> drawings() {
+        if (indices != null && drawings.isEmpty()) unpack();
+        return drawings;
+    }
+
     public int byteSize() {
         return byteSize;
     }
 
-    public void flush(ObjectOutputStream out) {
-        try {
-            out.writeUnshared(this);
-            out.reset();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Write the drawings so far as a blob, and start over. The indices in the blob are offset by the
+     * vertices of the parts written before, so a chunk can be uploaded part by part without
+     * touching them. The result still has to be compressed into a {@link Part}, which may be done
+     * on another thread.
+     */
+    public byte[] serialize() {
+        // A chunk that was read is written from its drawings, like any other
+        drawings();
+
+        var count = drawings.size();
+        int indexCount = 0, vertexCount = 0, drawableCount = 0;
+        for (var drawing : drawings) {
+            indexCount += drawing.indices().size();
+            vertexCount += drawing.vertices().size();
+            drawableCount += drawing.drawables().size();
+        }
+
+        var size =
+                (HEADER_INTS + 3 * count) * Integer.BYTES
+                        + indexCount * Integer.BYTES
+                        + vertexCount * Float.BYTES
+                        + drawableCount * Byte.BYTES;
+        var blob = ByteBuffer.allocate(size).order(ORDER);
+
+        var base = (totalVertices - vertexCount) / 2;
+        blob.putInt(BLOB);
+        blob.putInt(count);
+        blob.putInt(base);
+        blob.putInt(indexCount);
+        blob.putInt(vertexCount);
+        blob.putInt(drawableCount);
+        blob.putInt(0);
+        for (var drawing : drawings) {
+            blob.putInt(drawing.indices().size());
+            blob.putInt(drawing.vertices().size());
+            blob.putInt(drawing.drawables().size());
+        }
+
+        // Indices of a drawing start at 0, and are offset by the vertices before it
+        var offset = base;
+        for (var drawing : drawings) {
+            var array = drawing.indices().getArray();
+            for (int i = 0; i < drawing.indices().size(); i++) blob.putInt(array[i] + offset);
+            offset += drawing.vertices().size() / 2;
+        }
+        for (var drawing : drawings) {
+            blob.asFloatBuffer().put(drawing.vertices().getArray(), 0, drawing.vertices().size());
+            blob.position(blob.position() + drawing.vertices().size() * Float.BYTES);
+        }
+        for (var drawing : drawings) {
+            blob.put(drawing.drawables().getArray(), 0, drawing.drawables().size());
         }
 
         drawings.clear();
         byteSize = 0;
+        return blob.array();
+    }
+
+    /**
+     * Read a blob written by {@link #serialize()}, without copying its arrays
+     *
+     * @throws IOException If it isn't a blob, which only happens if the map is corrupt, as maps
+     *                     with other kinds of parts have another version, see {@link MapFile}
+     */
+    static PartialChunk deserialize(float cellSize, Point point, byte[] bytes) throws IOException {
+        var blob = ByteBuffer.wrap(bytes).order(ORDER);
+        if (bytes.length < HEADER_INTS * Integer.BYTES || blob.getInt() != BLOB) {
+            throw new IOException("Part of a chunk is not a blob");
+        }
+
+        var chunk = new PartialChunk(point, cellSize);
+        var count = blob.getInt();
+        chunk.base = blob.getInt();
+        chunk.totalIndices = blob.getInt();
+        chunk.totalVertices = blob.getInt();
+        chunk.totalDrawables = blob.getInt();
+        var hasSources = blob.getInt() != 0;
+
+        chunk.counts = new int[3 * count];
+        blob.asIntBuffer().get(chunk.counts);
+        blob.position(blob.position() + chunk.counts.length * Integer.BYTES);
+        // Maps that could be made again with changes kept the element each drawing came from
+        if (hasSources) blob.position(blob.position() + count * Long.BYTES);
+
+        chunk.indices = view(blob, chunk.totalIndices * Integer.BYTES);
+        chunk.vertices = view(blob, chunk.totalVertices * Float.BYTES);
+        chunk.drawables = view(blob, chunk.totalDrawables * Byte.BYTES);
+        chunk.byteSize = bytes.length;
+        return chunk;
+    }
+
+    /**
+     * @return The next bytes of a buffer as a buffer of their own, which it is moved past
+     */
+    private static ByteBuffer view(ByteBuffer buffer, int length) {
+        var view = buffer.slice(buffer.position(), length).order(ORDER);
+        buffer.position(buffer.position() + length);
+        return view;
+    }
+
+    /**
+     * Make the drawings of a chunk that was read, with their indices starting at 0 again
+     */
+    private void unpack() {
+        var indices = this.indices.duplicate().order(ORDER).asIntBuffer();
+        var vertices = this.vertices.duplicate().order(ORDER).asFloatBuffer();
+        var drawables = this.drawables.duplicate();
+
+        var offset = base;
+        for (int i = 0; i < counts.length; i += 3) {
+            var indexArray = new int[counts[i]];
+            indices.get(indexArray);
+            for (int j = 0; j < indexArray.length; j++) indexArray[j] -= offset;
+
+            var vertexArray = new float[counts[i + 1]];
+            vertices.get(vertexArray);
+            var drawableArray = new byte[counts[i + 2]];
+            drawables.get(drawableArray);
+
+            drawings.add(
+                    new Drawing(
+                            new IntList(indexArray), new FloatList(vertexArray), new ByteList(drawableArray)));
+            offset += vertexArray.length / 2;
+        }
+    }
+
+    /**
+     * @param base The number of points in the chunk before this part, which is what the indices are
+     *             offset by already when parts are read in the order they were written in
+     * @return The indices of a chunk that was read, as little-endian ints
+     */
+    public ByteBuffer indices(int base) {
+        if (base == this.base) return indices.duplicate().order(ORDER);
+
+        // Only if the parts of a chunk aren't read in order
+        var rebased = ByteBuffer.allocate(indices.remaining()).order(ORDER);
+        var from = indices.duplicate().order(ORDER);
+        while (from.hasRemaining()) rebased.putInt(from.getInt() - this.base + base);
+        return rebased.flip();
+    }
+
+    /**
+     * @return The vertices of a chunk that was read, as little-endian floats
+     */
+    public ByteBuffer vertices() {
+        return vertices.duplicate().order(ORDER);
+    }
+
+    /**
+     * @return The drawables of a chunk that was read
+     */
+    public ByteBuffer drawables() {
+        return drawables.duplicate();
+    }
+
+    /**
+     * A part of a chunk as it is written, which is the cell it belongs to and the compressed blob.
+     * Parts can be copied as they are, without reading the drawings in them.
+     */
+    public record Part(float cellSize, Point point, byte[] bytes) {
+        public static Part compress(float cellSize, Point point, byte[] serialized) {
+            var bytes = new ByteArrayOutputStream(serialized.length / 2);
+            try (var out = new DeflaterOutputStream(bytes)) {
+                out.write(serialized);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Part(cellSize, point, bytes.toByteArray());
+        }
+
+        /**
+         * @throws java.io.EOFException If there are no more parts
+         */
+        public static Part readFrom(DataInput in) throws IOException {
+            var cellSize = in.readFloat();
+            var point = new Point(in.readFloat(), in.readFloat());
+            var bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new Part(cellSize, point, bytes);
+        }
+
+        /**
+         * @return How many bytes {@link #writeTo(DataOutput)} writes
+         */
+        public int size() {
+            return 3 * Float.BYTES + Integer.BYTES + bytes.length;
+        }
+
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeFloat(cellSize);
+            out.writeFloat(point.x());
+            out.writeFloat(point.y());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        public PartialChunk chunk() throws IOException {
+            try (var in = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+                return deserialize(cellSize, point, in.readAllBytes());
+            }
+        }
+
+        /**
+         * @param version The version of the map format the part was written in, see {@link MapFile}
+         * @return The part as it is written now. Parts of version 1 were Java-serialized chunks, which
+         * are written as blobs.
+         */
+        public Part upgrade(int version) throws IOException {
+            if (version >= 2) return this;
+
+            try (var in = new OldInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+                // Its indices aren't offset by the parts before it, see indices(int)
+                return compress(cellSize, point, oldChunk(in).serialize());
+            }
+        }
+    }
+
+    /**
+     * @return A stream of chunks as the tar maps and version 1 of the map format serialized them,
+     * which are read with {@link #readOld(ObjectInputStream)}
+     */
+    static ObjectInputStream oldStream(InputStream in) throws IOException {
+        return new OldInputStream(in);
+    }
+
+    /**
+     * Read a chunk serialized by an older version of the map format, as a chunk that was read
+     *
+     * @param in A stream made by {@link #oldStream(InputStream)}
+     * @throws java.io.EOFException If there are no more chunks
+     */
+    static PartialChunk readOld(ObjectInputStream in) throws IOException {
+        var chunk = oldChunk(in);
+        return deserialize(chunk.cellSize, chunk.point, chunk.serialize());
+    }
+
+    /**
+     * @return A chunk serialized by an older version, as one that is drawn now
+     */
+    private static PartialChunk oldChunk(ObjectInputStream in) throws IOException {
+        Object old;
+        try {
+            old = in.readUnshared();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+
+        if (old instanceof V0 v0) return chunk(v0.point, v0.cellSize, v0.drawings);
+        if (old instanceof V1 v1) return chunk(v1.point, v1.cellSize, v1.drawings);
+        throw new IOException("Part of a chunk is not a chunk");
+    }
+
+    private static PartialChunk chunk(Point point, float cellSize, List<Drawing> drawings) {
+        var chunk = new PartialChunk(point, cellSize);
+        for (var drawing : drawings) chunk.add(drawing);
+        return chunk;
+    }
+
+    /**
+     * The fields of a chunk as the tar maps serialized it
+     */
+    private static final class V0 implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private List<Drawing> drawings;
+        private Point point;
+        private float cellSize;
+        private int byteSize;
+        private int totalIndices;
+        private int totalVertices;
+        private int totalDrawables;
+    }
+
+    /**
+     * The fields of a chunk as version 1 of the map format serialized it, which kept the elements
+     * the drawings of the base chunk were made from
+     */
+    private static final class V1 implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private List<Drawing> drawings;
+        private Point point;
+        private float cellSize;
+        private int byteSize;
+        private int totalIndices;
+        private int totalVertices;
+        private int totalDrawables;
+        private LongList sources;
+    }
+
+    /**
+     * Reads chunks serialized by older versions into the class with their fields
+     */
+    private static final class OldInputStream extends LegacyInputStream {
+        private OldInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected List<Class<?>> classes(String name) {
+            if (name.equals(PartialChunk.class.getName())) return List.of(V0.class, V1.class);
+            return super.classes(name);
+        }
     }
 
     public int getTotalIndices() {
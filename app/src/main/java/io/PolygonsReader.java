@@ -4,22 +4,60 @@ import canvas.Chunk;
 import geometry.Point;
 import geometry.Rect;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Reads a stream written by a PolygonsWriter. The result is an iterable of PartialChunks, which are
  * read on demand instead of in bulk.
+ *
+ * <p>Streams start with a header that says where the parts of every chunk are, so that the chunks
+ * of a single cell can be read without the rest, see {@link #read(float, Point)}. Parts of maps of
+ * an older version are made into parts as they are written now while they are read, see {@link
+ * PartialChunk.Part#upgrade(int)}.
+ *
+ * <p>The drawings of tar maps have no index, and are serialized chunks that can only be read in
+ * order, see {@link #isIndexed()}.
  */
-public class PolygonsReader extends StreamingReader<PartialChunk> {
+public class PolygonsReader extends Reader<Iterable<PartialChunk>> {
+    /**
+     * First int of the stream
+     */
+    static final int INDEXED = 0x504F4C59; // "POLY"
+
     private Map<Float, Map<Point, Chunk>> chunks = null;
     private Rect bounds;
     private PartialChunk baseChunk;
+    /**
+     * The parts, one after another
+     */
+    private DataInput parts;
+    /**
+     * The chunks of a tar map, one after another, or null
+     */
+    private ObjectInputStream oldChunks;
+    /**
+     * Offsets and lengths of the parts of each chunk, after each other. Offsets are from
+     * {@link #partsOffset}. Null for tar maps.
+     */
+    private Map<Float, Map<Point, long[]>> index;
+    private long partsOffset;
 
-    public PolygonsReader(ObjectInputStream in) {
-        super(in);
+    public PolygonsReader(MapEntry entry) {
+        super(entry);
     }
 
     /**
@@ -31,36 +69,158 @@ public class PolygonsReader extends StreamingReader<PartialChunk> {
         chunks = new HashMap<>();
 
         try {
-            bounds = (Rect) stream.readUnshared();
-            baseChunk = (PartialChunk) stream.readUnshared();
-
-            var gridCount = stream.readInt();
-            for (int i = 0; i < gridCount; i++) {
-                var cellSize = stream.readFloat();
-                var chunkCount = stream.readInt();
-                var map = new HashMap<Point, Chunk>();
+            if (getEntry().version() == MapFile.TAR) {
+                var in = PartialChunk.oldStream(getEntry().open());
+                readHeader(in);
+                // The chunks were serialized by another stream, which was copied into this one
+                oldChunks = PartialChunk.oldStream(in);
+                return;
+            }
 
-                for (int j = 0; j < chunkCount; j++) {
-                    var p = (Point) stream.readUnshared();
-                    var chunk = new Chunk(stream.readInt(), stream.readInt(), stream.readInt());
+            var data = new DataInputStream(getEntry().open());
+            if (data.readInt() != INDEXED) throw new IOException("Drawings have no index");
 
-                    map.put(p, chunk);
-                }
+            var header = new byte[data.readInt()];
+            data.readFully(header);
+            partsOffset = 2 * Integer.BYTES + header.length;
+            index = new HashMap<>();
+            readHeader(new ObjectInputStream(new ByteArrayInputStream(header)));
+            parts = data;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                chunks.put(cellSize, map);
+    private void readHeader(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        bounds = (Rect) in.readUnshared();
+        baseChunk = index == null ? PartialChunk.readOld(in) : readPart(in).chunk();
+
+        var gridCount = in.readInt();
+        for (int i = 0; i < gridCount; i++) {
+            var cellSize = in.readFloat();
+            var chunkCount = in.readInt();
+            var map = new HashMap<Point, Chunk>();
+            var cellIndex = new HashMap<Point, long[]>();
+
+            for (int j = 0; j < chunkCount; j++) {
+                var p = (Point) in.readUnshared();
+                var chunk = new Chunk(in.readInt(), in.readInt(), in.readInt());
+                map.put(p, chunk);
+                if (index == null) continue;
+
+                var offsets = new long[2 * in.readInt()];
+                for (int k = 0; k < offsets.length; k++) offsets[k] = in.readLong();
+                cellIndex.put(p, offsets);
             }
 
-            // Wrap in another stream to read the 4-byte object stream header
-            setStream(new ObjectInputStream(stream));
-        } catch (IOException | ClassNotFoundException e) {
-            throw new RuntimeException(e);
+            chunks.put(cellSize, map);
+            if (index != null) index.put(cellSize, cellIndex);
         }
     }
 
     @Override
     public Iterable<PartialChunk> read() {
         readHeader();
-        return super.read();
+        if (index == null) return iterate(() -> PartialChunk.readOld(oldChunks));
+        return iterate(() -> readPart(parts).chunk());
+    }
+
+    /**
+     * @return Whether the chunks of a single cell can be read, see {@link #read(float, Point)}. The
+     * drawings of tar maps can only be read in order.
+     */
+    public boolean isIndexed() {
+        readHeader();
+        return index != null;
+    }
+
+    /**
+     * Read the parts of a single chunk, without reading any other
+     *
+     * @throws IllegalStateException If the drawings have no index, see {@link #isIndexed()}
+     */
+    public List<PartialChunk> read(float cellSize, Point point) {
+        if (!isIndexed()) throw new IllegalStateException("Drawings have no index");
+
+        var offsets = index.get(cellSize).get(point);
+        var result = new ArrayList<PartialChunk>(offsets.length / 2);
+        for (int i = 0; i < offsets.length; i += 2) {
+            try (InputStream in = getEntry().open(partsOffset + offsets[i], offsets[i + 1])) {
+                result.add(readPart(new DataInputStream(in)).chunk());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The parts of the chunks as they were written, read on demand like {@link #read()}
+     */
+    public Iterable<PartialChunk.Part> parts() {
+        readHeader();
+        if (index != null) return iterate(() -> readPart(parts));
+
+        return iterate(
+                () -> {
+                    var chunk = PartialChunk.readOld(oldChunks);
+                    return PartialChunk.Part.compress(chunk.cellSize, chunk.point, chunk.serialize());
+                });
+    }
+
+    private interface Next<T> {
+        /**
+         * @throws EOFException If there is nothing more to read
+         */
+        T read() throws IOException;
+    }
+
+    /**
+     * @return What is read by next until it runs out, read on demand instead of in bulk
+     */
+    private static <T> Iterable<T> iterate(Next<T> next) {
+        return () ->
+                new Iterator<>() {
+                    private T item;
+
+                    @Override
+                    public boolean hasNext() {
+                        return item != null || tryRead();
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) throw new NoSuchElementException("next called on empty iterator");
+
+                        try {
+                            return item;
+                        } finally {
+                            item = null;
+                        }
+                    }
+
+                    private boolean tryRead() {
+                        try {
+                            item = next.read();
+                        } catch (EOFException e) {
+                            // The only way to know if we're done is to try to read more and see if we fail
+                            return false;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+
+                        return true;
+                    }
+                };
+    }
+
+    /**
+     * Read a part, as it is written now if the map is of an older version
+     *
+     * @throws EOFException If there are no more parts
+     */
+    private PartialChunk.Part readPart(DataInput in) throws IOException {
+        return PartialChunk.Part.readFrom(in).upgrade(getEntry().version());
     }
 
     public Map<Float, Map<Point, Chunk>> getChunks() {
@@ -77,4 +237,11 @@ public class PolygonsReader extends StreamingReader<PartialChunk> {
         readHeader();
         return baseChunk;
     }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        if (parts instanceof Closeable closeable) closeable.close();
+        if (oldChunks != null) oldChunks.close();
+    }
 }
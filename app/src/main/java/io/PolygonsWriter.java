@@ -1,46 +1,113 @@
 package io;
 
 import collections.grid.Grid;
+import collections.lists.LongList;
 import drawing.*;
+import geometry.DouglasPeucker;
 import geometry.Point;
 import geometry.Rect;
 import geometry.Vector2D;
+import osm.Interest;
+import osm.elements.Coordinates;
 import osm.elements.OSMRelation;
 import osm.elements.OSMWay;
-import osm.elements.SlimOSMNode;
-import osm.elements.SlimOSMWay;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
- * Writes Drawings to a file as they are finished
+ * Writes Drawings to a file as they are finished. The file is a header, with the totals of every
+ * chunk and where its parts are, followed by the parts, see {@link PolygonsReader}.
  */
 public class PolygonsWriter extends TempFileWriter {
     private static final int MAX_SIZE = 100 * 1024 * 1024; // Max size on heap before flushing chunks
     private static final float CELL_SIZE = 0.05f;
     private static final int GRIDS = 3;
+    /**
+     * Widest screen, in pixels, that elements are simplified for. No point is moved by more than
+     * half a pixel on it.
+     */
+    private static final int SCREEN_WIDTH = 2000;
+    /**
+     * Most parts that are compressed at once, which is also how many are kept on the heap for it
+     */
+    private static final int MAX_COMPRESSING = 2 * Runtime.getRuntime().availableProcessors();
+    /**
+     * Most elements that are triangulated in one task
+     */
+    private static final int BATCH_SIZE = 256;
+    /**
+     * Most batches that are triangulated at once, which is also how many are kept on the heap for it
+     */
+    private static final int MAX_TRIANGULATING = 2 * Runtime.getRuntime().availableProcessors();
 
-    private final List<Vector2D> points = new ArrayList<>();
+    private final LongList coordinates = new LongList();
     private final PartialChunk baseChunk = new PartialChunk(null, 0);
     private final List<Grid<PartialChunk>> grids = new ArrayList<>();
     private int maxChunkSize;
     private Rect bounds;
+    /**
+     * Parts that are being compressed, in the order they are written in
+     */
+    private final Deque<ForkJoinTask<PartialChunk.Part>> compressing = new ArrayDeque<>();
+    /**
+     * Elements that wait for a batch to fill up before they are triangulated
+     */
+    private List<Pending> batch = new ArrayList<>();
+    /**
+     * Batches that are being triangulated, in the order the elements in them were drawn in
+     */
+    private final Deque<ForkJoinTask<List<Pending>>> triangulating = new ArrayDeque<>();
+    /**
+     * Whether elements are triangulated one at a time on the thread that draws them, instead of on
+     * the pool, so tests can check that both make the same chunks
+     */
+    boolean inline;
+    /**
+     * How many elements are triangulated in one task, and how many tasks are in flight at once, so
+     * benchmarks can compare other sizes
+     */
+    int batchSize = BATCH_SIZE;
+    int maxTriangulating = MAX_TRIANGULATING;
+    /**
+     * The offset and length of every part written so far, after each other, by the cell they belong
+     * to. Offsets are from the first part.
+     */
+    private final Map<Cell, LongList> index = new HashMap<>();
+    private long written;
 
     public PolygonsWriter() throws IOException {
     }
 
+    /**
+     * Chunks are compressed one part at a time, so each can be read without the others
+     */
+    @Override
+    public boolean compresses() {
+        return true;
+    }
+
     @Override
     public void writeTo(OutputStream out) throws IOException {
-        var objOut = new ObjectOutputStream(out);
+        var header = new ByteArrayOutputStream();
+        var objOut = new ObjectOutputStream(header);
 
-        // Write header to beginning of stream
         objOut.writeUnshared(bounds);
-        objOut.writeUnshared(baseChunk);
+        PartialChunk.Part.compress(0, new Point(0, 0), baseChunk.serialize()).writeTo(objOut);
+
         objOut.writeInt(grids.size());
         for (var grid : grids) {
             objOut.writeFloat(grid.cellSize);
@@ -50,19 +117,51 @@ public class PolygonsWriter extends TempFileWriter {
                 objOut.writeInt(chunk.getTotalIndices());
                 objOut.writeInt(chunk.getTotalVertices());
                 objOut.writeInt(chunk.getTotalDrawables());
+
+                // Where the parts of the chunk are, so it can be read on its own
+                var index = this.index.get(new Cell(grid.cellSize, chunk.point));
+                var count = index == null ? 0 : index.size() / 2;
+                objOut.writeInt(count);
+                for (int i = 0; i < 2 * count; i++) objOut.writeLong(index.get(i));
             }
         }
+        objOut.flush();
+
+        // The header is written first, with its length, and then the parts as they are
+        var dataOut = new DataOutputStream(out);
+        dataOut.writeInt(PolygonsReader.INDEXED);
+        dataOut.writeInt(header.size());
+        header.writeTo(dataOut);
+        dataOut.flush();
+        super.writeTo(out);
+    }
 
-        // Write chunks
-        super.writeTo(objOut);
+    private record Cell(float cellSize, Point point) {
+    }
+
+    /**
+     * @return The size of the cells of the grid of a detail level, in degrees
+     */
+    private static float cellSize(int detail) {
+        return (int) Math.pow(detail + 1, detail + 1) * CELL_SIZE;
+    }
+
+    /**
+     * @return How far points may be moved when elements are simplified for a detail level, in map
+     * units
+     */
+    private static double tolerance(int detail) {
+        // A grid is shown when the screen is at least two cells wide, see MapCanvas.chunkSize
+        var screen = Point.geoToMapX(2 * cellSize(detail)) - Point.geoToMapX(0);
+        return screen / SCREEN_WIDTH / 2;
     }
 
     @Override
     public void onBounds(Rect bounds) {
         this.bounds = bounds;
         var total = 0;
-        for (int i = 1; i <= GRIDS; i++) {
-            var cellSize = (int) Math.pow(i, i) * CELL_SIZE;
+        for (int detail = 0; detail < GRIDS; detail++) {
+            var cellSize = cellSize(detail);
             var grid = new Grid<>(bounds, cellSize, p -> new PartialChunk(p, cellSize));
             total += grid.size();
             grids.add(grid);
@@ -82,45 +181,58 @@ public class PolygonsWriter extends TempFileWriter {
 
     @Override
     public void onWay(OSMWay way) {
-        var drawable = DrawableEnum.from(way);
+        var drawable = way.classification().drawable();
         if (drawable == DrawableEnum.IGNORED || drawable == DrawableEnum.UNKNOWN) return;
 
-        drawNodes(Arrays.asList(way.nodes()), drawable);
+        coordinates.limit(0);
+        for (int i = 0; i < way.nodeCount(); i++) {
+            coordinates.add(way.coordinate(i));
+        }
+        drawNodes(coordinates, drawable);
     }
 
     @Override
     public void onRelation(OSMRelation relation) {
-        var drawable = DrawableEnum.from(relation);
+        var drawable = relation.classification().drawable();
         if (drawable == DrawableEnum.IGNORED || drawable == DrawableEnum.UNKNOWN) return;
 
-        // Create line segments from all members and join them
+        // Create line segments from all members and join them. Members meet where their end nodes
+        // have the same coordinates.
         var joiner =
                 new SegmentJoiner<>(
                         relation.ways().stream()
-                                .map(SlimOSMWay::nodes)
-                                .map(Arrays::asList)
-                                .map(Segment<SlimOSMNode>::new)
+                                .map(w -> Arrays.stream(w.coordinates()).boxed().toList())
+                                .map(Segment<Long>::new)
                                 .toList());
         joiner.join();
 
         // Draw all the segments
         for (var segment : joiner) {
-            drawNodes(segment, drawable);
+            coordinates.limit(0);
+            for (var coordinate : segment) {
+                coordinates.add(coordinate);
+            }
+            drawNodes(coordinates, drawable);
         }
     }
 
-    private void drawNodes(Iterable<SlimOSMNode> iter, Drawable drawable) {
+    private void drawNodes(LongList coordinates, Drawable drawable) {
         // Transform nodes to points and get bounding box
         double top = Double.POSITIVE_INFINITY,
                 left = Double.POSITIVE_INFINITY,
                 bottom = Double.NEGATIVE_INFINITY,
                 right = Double.NEGATIVE_INFINITY;
-        for (var node : iter) {
-            points.add(Vector2D.create(Point.geoToMapX(node.lon()), Point.geoToMapY(node.lat())));
-            if (node.lon() < left) left = node.lon();
-            if (node.lon() > right) right = node.lon();
-            if (node.lat() < top) top = node.lat();
-            if (node.lat() > bottom) bottom = node.lat();
+        var points = new double[2 * coordinates.size()];
+        for (int i = 0; i < coordinates.size(); i++) {
+            var coordinate = coordinates.get(i);
+            var lon = Coordinates.lon(coordinate);
+            var lat = Coordinates.lat(coordinate);
+            points[2 * i] = Point.geoToMapX(lon);
+            points[2 * i + 1] = Point.geoToMapY(lat);
+            if (lon < left) left = lon;
+            if (lon > right) right = lon;
+            if (lat < top) top = lat;
+            if (lat > bottom) bottom = lat;
         }
 
         // If the element spans many cells, or it has high detail, we add it to the base instead of
@@ -128,37 +240,189 @@ public class PolygonsWriter extends TempFileWriter {
         var size = (right - left) + (bottom - top);
         if ((size > 2 * CELL_SIZE || drawable.detail() >= GRIDS - 1 && size > 0.3 * CELL_SIZE)
                 && drawable.shape() == Drawable.Shape.FILL) {
-            var drawing = Drawing.create(points, drawable);
-            baseChunk.add(drawing);
+            draw(new Pending(points, drawable, null));
         } else {
+            var chunks = new ArrayList<List<PartialChunk>>();
+            var drawn = false;
+
             for (int detail = 0; detail < grids.size(); detail++) {
                 if (detail > drawable.detail()) break;
 
-                var drawing = Drawing.create(points, DrawableDetailWrapper.from(drawable, detail));
-
+                var cells = new ArrayList<PartialChunk>();
                 var grid = grids.get(detail);
                 for (var chunk : grid.range(top, left, bottom, right)) {
-                    if (chunk == null) continue;
+                    if (chunk != null) cells.add(chunk);
+                }
+
+                chunks.add(cells);
+                drawn |= !cells.isEmpty();
+            }
+
+            if (drawn) draw(new Pending(points, drawable, chunks));
+        }
+    }
 
-                    chunk.add(drawing);
+    /**
+     * An element that is drawn, and the chunks its drawings are added to once they are made
+     */
+    private static final class Pending {
+        /**
+         * Points of the element in map coordinates, x and y after each other
+         */
+        private final double[] points;
+        private final Drawable drawable;
+        /**
+         * The chunks of each detail level that the element is drawn in, or null if it is drawn in
+         * the base
+         */
+        private final List<List<PartialChunk>> chunks;
+        /**
+         * The drawing of each detail level, or the base, once the element is triangulated
+         */
+        private Drawing[] drawings;
 
-                    if (chunk.byteSize() > maxChunkSize) {
-                        chunk.flush(stream);
+        private Pending(double[] points, Drawable drawable, List<List<PartialChunk>> chunks) {
+            this.points = points;
+            this.drawable = drawable;
+            this.chunks = chunks;
+        }
+
+        /**
+         * Make the drawings, which may be done on any thread, as it only uses the points
+         */
+        private void triangulate() {
+            if (chunks == null) {
+                drawings = new Drawing[]{Drawing.create(points, drawable)};
+            } else {
+                drawings = new Drawing[chunks.size()];
+                double[] filled = null;
+                Drawing fill = null;
+                for (int detail = 0; detail < chunks.size(); detail++) {
+                    // Only made if a chunk needs it
+                    if (chunks.get(detail).isEmpty()) continue;
+
+                    // The first grid is also shown when zoomed in further, so it isn't simplified
+                    var simplified = points;
+                    if (detail > 0) simplified = DouglasPeucker.simplify(points, tolerance(detail));
+
+                    // Besides simplifying, only the width of lines depends on the detail, so fills
+                    // are triangulated again only if they keep other points
+                    if (drawable.shape() == Drawable.Shape.FILL) {
+                        if (!Arrays.equals(simplified, filled)) {
+                            filled = simplified;
+                            fill = Drawing.create(simplified, drawable);
+                        }
+                        drawings[detail] = fill;
+                        continue;
                     }
+
+                    var wrapper = DrawableDetailWrapper.from(drawable, detail);
+                    drawings[detail] = Drawing.create(simplified, wrapper);
                 }
             }
         }
+    }
 
-        points.forEach(Vector2D::reuse);
-        points.clear();
+    /**
+     * Triangulate an element on the common pool, together with the ones drawn before and after it.
+     * Its drawings are added to its chunks on this thread, in the order the elements were drawn in,
+     * so chunks are the same as if they had been drawn one at a time.
+     */
+    private void draw(Pending pending) {
+        if (inline) {
+            pending.triangulate();
+            add(pending);
+            return;
+        }
+
+        batch.add(pending);
+        if (batch.size() >= batchSize) triangulateBatch();
+    }
+
+    private void triangulateBatch() {
+        var batch = this.batch;
+        this.batch = new ArrayList<>();
+        triangulating.add(
+                ForkJoinPool.commonPool()
+                        .submit(
+                                () -> {
+                                    for (var pending : batch) pending.triangulate();
+                                    return batch;
+                                }));
+        if (triangulating.size() > maxTriangulating) addTriangulated();
+    }
+
+    private void addTriangulated() {
+        for (var pending : triangulating.remove().join()) add(pending);
+    }
+
+    /**
+     * Add the drawings of an element that has been triangulated to its chunks
+     */
+    private void add(Pending pending) {
+        if (pending.chunks == null) {
+            baseChunk.add(pending.drawings[0]);
+            return;
+        }
+
+        for (int detail = 0; detail < pending.chunks.size(); detail++) {
+            for (var chunk : pending.chunks.get(detail)) {
+                chunk.add(pending.drawings[detail]);
+
+                if (chunk.byteSize() > maxChunkSize) {
+                    flush(chunk);
+                }
+            }
+        }
     }
 
     @Override
     public void onFinish() {
+        if (!batch.isEmpty()) triangulateBatch();
+        while (!triangulating.isEmpty()) addTriangulated();
+
         for (var grid : grids) {
             for (var chunk : grid) {
-                chunk.flush(stream);
+                flush(chunk);
             }
         }
+        while (!compressing.isEmpty()) writeCompressed();
+    }
+
+    /**
+     * Write the drawings of a chunk so far. They are serialized here, but compressed on the common
+     * pool while drawing goes on, and written in order once they are.
+     */
+    private void flush(PartialChunk chunk) {
+        var serialized = chunk.serialize();
+        var point = chunk.point;
+        var cellSize = chunk.cellSize;
+        compressing.add(
+                ForkJoinPool.commonPool()
+                        .submit(() -> PartialChunk.Part.compress(cellSize, point, serialized)));
+        if (compressing.size() > MAX_COMPRESSING) writeCompressed();
+    }
+
+    private void writeCompressed() {
+        write(compressing.remove().join());
+    }
+
+    private void write(PartialChunk.Part part) {
+        try {
+            part.writeTo(stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var cell = new Cell(part.cellSize(), part.point());
+        var index = this.index.computeIfAbsent(cell, c -> new LongList());
+        index.add(written);
+        index.add(part.size());
+        written += part.size();
+    }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE.ways().relations().geometry().members().allKeys();
     }
 }
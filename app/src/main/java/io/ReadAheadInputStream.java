@@ -0,0 +1,151 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads another stream ahead on a thread of its own, into a ring of large blocks. Whatever produces
+ * the bytes, like a decompressor, then runs at the same time as whatever consumes them, instead of
+ * the two taking turns.
+ */
+public class ReadAheadInputStream extends InputStream {
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int BLOCKS = 4;
+
+    private final InputStream in;
+    private final BlockingQueue<Block> filled;
+    private final BlockingQueue<byte[]> free;
+    private final Thread thread;
+    /**
+     * Why the stream couldn't be closed, which is only read once the thread has finished
+     */
+    private IOException closeError;
+    /**
+     * Set before the thread is interrupted, for streams that swallow the interrupt while reading
+     */
+    private volatile boolean closed;
+    private Block block;
+    private int pos;
+
+    /**
+     * A block of bytes that have been read ahead. A block that isn't full is the last one, and a
+     * block with an error takes the place of the bytes that couldn't be read.
+     */
+    private record Block(byte[] bytes, int length, IOException error) {
+        boolean isLast() {
+            return error == null && length < bytes.length;
+        }
+    }
+
+    public ReadAheadInputStream(InputStream in) {
+        this(in, BLOCK_SIZE, BLOCKS);
+    }
+
+    ReadAheadInputStream(InputStream in, int blockSize, int blocks) {
+        this.in = in;
+        filled = new ArrayBlockingQueue<>(blocks);
+        free = new ArrayBlockingQueue<>(blocks);
+        for (int i = 0; i < blocks; i++) free.add(new byte[blockSize]);
+
+        thread = new Thread(this::readAhead, "read-ahead");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Only this thread uses the stream, and it closes it when it is done
+     */
+    private void readAhead() {
+        try (in) {
+            while (!closed) {
+                var bytes = free.take();
+
+                Block read;
+                try {
+                    read = new Block(bytes, in.readNBytes(bytes, 0, bytes.length), null);
+                } catch (IOException e) {
+                    read = new Block(bytes, 0, e);
+                }
+                if (closed) return;
+
+                filled.put(read);
+                if (read.error() != null || read.isLast()) return;
+            }
+        } catch (InterruptedException e) {
+            // Closed before the end
+        } catch (IOException e) {
+            closeError = e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return block.bytes()[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, buf.length);
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+
+        var n = Math.min(len, block.length() - pos);
+        System.arraycopy(block.bytes(), pos, buf, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return block == null ? 0 : block.length() - pos;
+    }
+
+    /**
+     * Stop reading ahead, and wait for the thread to close the stream. A read that has started is
+     * finished first.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        if (closeError != null) throw closeError;
+    }
+
+    /**
+     * Make sure the current block has bytes left, if there are any left at all
+     *
+     * @return Whether there are bytes left
+     */
+    private boolean fill() throws IOException {
+        while (block == null || pos == block.length()) {
+            if (block != null) {
+                if (block.error() != null) throw new IOException(block.error());
+                if (block.isLast()) return false;
+
+                free.add(block.bytes());
+            }
+
+            try {
+                block = filled.take();
+                pos = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        return true;
+    }
+}
@@ -7,12 +7,16 @@ import java.util.Map;
 
 /**
  * Object to manage multiple readers read from a file
+ *
+ * @param file The file that is read from, which is closed along with the readers
  */
-public record ReadResult(Map<Feature, Reader> readers, OSMBounds bounds) implements AutoCloseable {
+public record ReadResult(Map<Feature, Reader> readers, OSMBounds bounds, MapFile file)
+        implements AutoCloseable {
     @Override
     public void close() throws Exception {
         for (var reader : readers().values()) {
             reader.close();
         }
+        file.close();
     }
 }
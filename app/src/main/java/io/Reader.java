@@ -1,6 +1,8 @@
 package io;
 
+import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
 
 /**
  * Reads objects from a stream
@@ -9,13 +11,47 @@ import java.io.ObjectInputStream;
  */
 public abstract class Reader<T> implements AutoCloseable {
     protected ObjectInputStream stream;
+    private final MapEntry entry;
 
     public Reader(ObjectInputStream in) {
+        entry = null;
         setStream(in);
     }
 
+    /**
+     * Read from an entry of a map file, which isn't opened until it is first read from
+     */
+    public Reader(MapEntry entry) {
+        this.entry = entry;
+    }
+
     public abstract T read();
 
+    /**
+     * @return The entry read from, or null if the reader was given a stream
+     */
+    protected MapEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Open the entry as an object stream, if the stream isn't set yet. Entries of older versions may
+     * have been serialized from classes that have changed since, see {@link LegacyInputStream}.
+     */
+    protected void open() {
+        if (stream != null) return;
+
+        try {
+            var in = entry.open();
+            setStream(
+                    entry.version() < MapFile.VERSION
+                            ? new LegacyInputStream(in)
+                            : new ObjectInputStream(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Set the stream to read from
      *
@@ -27,6 +63,6 @@ public abstract class Reader<T> implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
-        stream.close();
+        if (stream != null) stream.close();
     }
 }
@@ -8,18 +8,18 @@ import java.io.*;
  * continuously.
  */
 public abstract class TempFileWriter implements Writer {
-    protected final ObjectOutputStream stream;
+    protected final DataOutputStream stream;
     private final File file;
 
     public TempFileWriter() throws IOException {
         file = File.createTempFile("osm", "");
         file.deleteOnExit();
-        stream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
     }
 
     /**
      * Called when we're done writing to the temp file. Closes the file stream and returns an input
-     * stream of the file instead.
+     * stream of the file instead. The file is deleted when that stream is closed.
      *
      * @return Input stream of the underlying file
      * @throws IOException
@@ -27,7 +27,13 @@ public abstract class TempFileWriter implements Writer {
     private InputStream finish() throws IOException {
         stream.flush();
         stream.close();
-        return new BufferedInputStream(new FileInputStream(file));
+        return new BufferedInputStream(new FileInputStream(file)) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                file.delete();
+            }
+        };
     }
 
     @Override
@@ -36,6 +42,5 @@ public abstract class TempFileWriter implements Writer {
             in.transferTo(out);
             out.flush();
         }
-        file.delete();
     }
 }
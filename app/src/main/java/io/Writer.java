@@ -10,4 +10,12 @@ import java.io.OutputStream;
  */
 public interface Writer extends OSMObserver {
     void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * @return Whether the writer compresses what it writes itself, so it shouldn't be compressed
+     * again
+     */
+    default boolean compresses() {
+        return false;
+    }
 }
@@ -9,8 +9,11 @@ import geometry.Point;
 import geometry.Rect;
 import java.io.Serializable;
 import java.util.*;
+import osm.Classification;
+import osm.Classification.Direction;
+import osm.Interest;
 import osm.OSMObserver;
-import osm.elements.OSMTag;
+import osm.elements.Coordinates;
 import osm.elements.OSMWay;
 import util.DistanceUtils;
 
@@ -91,62 +94,32 @@ public class Dijkstra implements OSMObserver, Serializable {
         return null;
     }
 
-    private static Direction determineDirection(OSMWay way) {
-        var direction = Direction.UNKNOWN;
+    private static EnumFlags<EdgeRole> getEdgeRoles(Classification classification) {
+        var highway = classification.value(HIGHWAY);
 
-        for (var tag : way.tags()) {
-            direction = determineDirection(tag);
-            if (direction != Direction.UNKNOWN) break;
-        }
-
-        return direction;
-    }
-
-    private static Direction determineDirection(OSMTag tag) {
-        return switch (tag.key()) {
-            case JUNCTION -> switch (tag.value()) {
-                case "roundabout" -> Direction.SINGLE;
-                default -> Direction.UNKNOWN;
-            };
-            case ONEWAY -> switch (tag.value()) {
-                case "yes", "true", "1" -> Direction.SINGLE;
-                case "no", "false", "0" -> Direction.BOTH;
-                case "-1" -> Direction.REVERSE;
-                default -> Direction.UNKNOWN;
-            };
-            default -> Direction.UNKNOWN;
-        };
-    }
-
-    private static EnumFlags<EdgeRole> getEdgeRoles(OSMWay way) {
-        var highwayTag = way.tags().stream().filter(t -> t.key() == HIGHWAY).findFirst().orElse(null);
-
-        if (highwayTag == null) {
+        if (highway == null) {
             throw new IllegalArgumentException("The OSM way must be a highway or cycleway.");
         }
 
         var edgeRoles = new EnumFlags<EdgeRole>(false);
 
         boolean isCycleway =
-                way.tags().stream()
-                        .anyMatch(
-                                t ->
-                                        t.key() == CYCLEWAY
-                                                || t.key() == CYCLEWAY_LEFT
-                                                || t.key() == CYCLEWAY_RIGHT
-                                                || t.key() == CYCLEWAY_BOTH);
+                classification.has(CYCLEWAY)
+                        || classification.has(CYCLEWAY_LEFT)
+                        || classification.has(CYCLEWAY_RIGHT)
+                        || classification.has(CYCLEWAY_BOTH);
 
         if (isCycleway) {
             edgeRoles.set(EdgeRole.BIKE);
         }
 
-        boolean isFootway = way.tags().stream().anyMatch(t -> t.key() == FOOTWAY);
+        boolean isFootway = classification.has(FOOTWAY);
 
         if (isFootway) {
             edgeRoles.set(EdgeRole.WALK);
         }
 
-        switch (highwayTag.value()) {
+        switch (highway) {
             case "motorway",
                     "trunk",
                     "primary",
@@ -162,7 +135,7 @@ public class Dijkstra implements OSMObserver, Serializable {
                     "tertiary_link" -> edgeRoles.set(EdgeRole.CAR);
         }
 
-        switch (highwayTag.value()) {
+        switch (highway) {
             case "primary",
                     "secondary",
                     "tertiary",
@@ -177,7 +150,7 @@ public class Dijkstra implements OSMObserver, Serializable {
                     "tertiary_link" -> edgeRoles.set(EdgeRole.BIKE);
         }
 
-        switch (highwayTag.value()) {
+        switch (highway) {
             case "primary",
                     "secondary",
                     "tertiary",
@@ -194,15 +167,15 @@ public class Dijkstra implements OSMObserver, Serializable {
                     "tertiary_link" -> edgeRoles.set(EdgeRole.WALK);
         }
 
-        if (highwayTag.value().equals("service")) {
-            var serviceTag = way.tags().stream().filter(t -> t.key() == SERVICE).findFirst().orElse(null);
+        if (highway.equals("service")) {
+            var service = classification.value(SERVICE);
 
-            if (serviceTag != null) {
-                switch (serviceTag.value()) {
+            if (service != null) {
+                switch (service) {
                     case "parking_aisle", "driveway" -> edgeRoles.set(EdgeRole.CAR);
                 }
 
-                switch (serviceTag.value()) {
+                switch (service) {
                     case "parking_aisle", "driveway", "alley" -> {
                         edgeRoles.set(EdgeRole.BIKE);
                         edgeRoles.set(EdgeRole.WALK);
@@ -225,58 +198,47 @@ public class Dijkstra implements OSMObserver, Serializable {
 
     @Override
     public void onWay(OSMWay way) {
-        var tags = way.tags();
+        var classification = way.classification();
 
-        if (tags.stream().noneMatch(t -> t.key() == HIGHWAY)) {
+        if (!classification.has(HIGHWAY)) {
             return;
         }
 
-        var edgeRoles = getEdgeRoles(way);
+        var edgeRoles = getEdgeRoles(classification);
 
         if (edgeRoles.getFlags() == 0) {
             // The way is a highway that should not be used for navigation.
             return;
         }
 
-        int maxSpeed =
-                tags.stream()
-                        .filter(
-                                t ->
-                                        t.key() == MAXSPEED
-                                                && !t.value().equals("signals")
-                                                && !t.value().equals("none"))
-                        .map(t -> Integer.parseInt(t.value()))
-                        .findFirst()
-                        .orElse(getExpectedMaxSpeed(way));
+        int maxSpeed = classification.maxSpeed();
+        if (maxSpeed == -1) maxSpeed = getExpectedMaxSpeed(classification);
 
         // Max speed will be 0 if 'getExpectedMaxSpeed' is 0 or if there is a way with max speed 0.
         if (edgeRoles.isSet(EdgeRole.CAR) && maxSpeed == 0) {
             maxSpeed = 1; // Set max speed to 1 to avoid division by zero in 'calculateWeight'.
         }
 
-        var direction = determineDirection(way);
+        var direction = classification.direction();
 
         if (direction == Direction.UNKNOWN) {
             direction = Direction.BOTH;
         }
 
-        var nodes = way.nodes();
-        var firstNode = nodes[0];
+        var firstNode = way.coordinate(0);
 
-        String name =
-                tags.stream()
-                        .filter(t -> t.key() == NAME)
-                        .map(OSMTag::value)
-                        .findFirst()
-                        .orElse("Unnamed way");
+        var name = classification.value(NAME);
+        if (name == null) name = "Unnamed way";
 
-        var roadRole = getRoadRole(way);
+        var roadRole = getRoadRole(classification);
 
-        for (int i = 1; i < nodes.length; i++) {
-            var secondNode = nodes[i];
+        for (int i = 1; i < way.nodeCount(); i++) {
+            var secondNode = way.coordinate(i);
 
-            var firstPoint = new Point((float) firstNode.lon(), (float) firstNode.lat());
-            var secondPoint = new Point((float) secondNode.lon(), (float) secondNode.lat());
+            var firstPoint =
+                    new Point((float) Coordinates.lon(firstNode), (float) Coordinates.lat(firstNode));
+            var secondPoint =
+                    new Point((float) Coordinates.lon(secondNode), (float) Coordinates.lat(secondNode));
 
             if (!bounds.contains(firstPoint) || !bounds.contains(secondPoint)) {
                 continue;
@@ -427,15 +389,15 @@ public class Dijkstra implements OSMObserver, Serializable {
         return "";
     }
 
-    private int getExpectedMaxSpeed(OSMWay way) {
-        var highwayTag = way.tags().stream().filter(t -> t.key() == HIGHWAY).findFirst().orElse(null);
+    private int getExpectedMaxSpeed(Classification classification) {
+        var highway = classification.value(HIGHWAY);
 
-        if (highwayTag == null) {
+        if (highway == null) {
             throw new IllegalArgumentException("The OSM way must be a highway or cycleway.");
         }
 
         var maxSpeed =
-                switch (highwayTag.value()) {
+                switch (highway) {
                     case "motorway" -> 110;
                     case "motorway_link" -> 100;
                     case "primary", "trunk" -> 80;
@@ -447,11 +409,11 @@ public class Dijkstra implements OSMObserver, Serializable {
                 };
 
         if (maxSpeed == 0) {
-            var serviceTag = way.tags().stream().filter(t -> t.key() == SERVICE).findFirst().orElse(null);
+            var service = classification.value(SERVICE);
 
-            if (serviceTag != null) {
+            if (service != null) {
                 maxSpeed =
-                        switch (serviceTag.value()) {
+                        switch (service) {
                             case "parking_aisle" -> 15;
                             case "driveway" -> 20;
                             default -> 0; // Return 0 for service roads that aren't handled by Dijkstra in CAR
@@ -463,12 +425,11 @@ public class Dijkstra implements OSMObserver, Serializable {
         return maxSpeed;
     }
 
-    private RoadRole getRoadRole(OSMWay way) {
-        var tags = way.tags().stream().filter(t -> t.key() == HIGHWAY).findFirst().orElse(null);
-        var tagsRoundabout =
-                way.tags().stream().filter(t -> t.key() == JUNCTION).findFirst().orElse(null);
-        if (tagsRoundabout == null) {
-            return switch (tags.value()) {
+    private RoadRole getRoadRole(Classification classification) {
+        var highway = classification.value(HIGHWAY);
+        var junction = classification.value(JUNCTION);
+        if (junction == null) {
+            return switch (highway) {
                 case "motorway" -> RoadRole.MOTORWAY;
                 case "motorway_link" -> RoadRole.MOTORWAYLINK;
                 case "primary_link", "trunk_link", "tertiary_link", "secondary_link" -> RoadRole.LINK;
@@ -476,18 +437,30 @@ public class Dijkstra implements OSMObserver, Serializable {
                 default -> RoadRole.WAY;
             };
         } else {
-            return switch (tagsRoundabout.value()) {
+            return switch (junction) {
                 case "roundabout" -> RoadRole.ROUNDABOUT;
                 default -> RoadRole.WAY;
             };
         }
     }
 
-    private enum Direction {
-        SINGLE,
-        BOTH,
-        REVERSE,
-        UNKNOWN
+    @Override
+    public Interest interest() {
+        return Interest.NONE
+                .ways()
+                .geometry()
+                .keys(
+                        HIGHWAY,
+                        CYCLEWAY,
+                        CYCLEWAY_LEFT,
+                        CYCLEWAY_RIGHT,
+                        CYCLEWAY_BOTH,
+                        FOOTWAY,
+                        SERVICE,
+                        MAXSPEED,
+                        JUNCTION,
+                        ONEWAY,
+                        NAME);
     }
 
     private record Node(long vertex, float weight) implements Comparable<Node>, Serializable {
@@ -5,8 +5,8 @@ import collections.spatial.SpatialTree;
 import geometry.Point;
 import geometry.Rect;
 import javafx.util.Pair;
+import osm.Interest;
 import osm.OSMObserver;
-import osm.elements.OSMTag;
 import osm.elements.OSMWay;
 
 import java.io.Serializable;
@@ -32,20 +32,20 @@ public class NearestNeighbor implements OSMObserver, Serializable {
     public void onWay(OSMWay way) {
         assert tree != null;
 
-        var tags = way.tags();
+        var classification = way.classification();
 
-        if (tags.stream().noneMatch(t -> t.key() == HIGHWAY)) {
+        if (!classification.has(HIGHWAY)) {
             return;
         }
 
-        var name = tags.stream().filter(t -> t.key() == NAME).map(OSMTag::value).findAny().orElse(null);
+        var name = classification.value(NAME);
 
         if (name == null) {
             return;
         }
 
-        for (var node : way.nodes()) {
-            var point = new Point((float) node.lon(), (float) node.lat());
+        for (int i = 0; i < way.nodeCount(); i++) {
+            var point = new Point((float) way.nodeLon(i), (float) way.nodeLat(i));
             var pair = new Pair<>(point, name);
             nodeCache.add(pair);
         }
@@ -97,4 +97,9 @@ public class NearestNeighbor implements OSMObserver, Serializable {
         addToTree(firstHalf, level + 1);
         addToTree(secondHalf, level + 1);
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE.ways().geometry().keys(HIGHWAY, NAME);
+    }
 }
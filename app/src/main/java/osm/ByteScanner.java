@@ -0,0 +1,43 @@
+package osm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds the next occurrence of a byte in a buffer, which is most of the work of reading XML.
+ *
+ * <p>There are two ways to do it: {@link VectorByteScanner} compares a whole vector register of
+ * bytes at a time, but needs the incubating jdk.incubator.vector module, and {@link
+ * SwarByteScanner} compares the 8 bytes of a long at a time with plain arithmetic. The vector
+ * scanner is used if the module is there, unless the system property osm.scanner is set to swar.
+ * Which one is faster depends on the machine, see ByteScannerBenchmark.
+ *
+ * <p>Scanners read ahead of the byte they find, so a buffer must contain the byte with at least 64
+ * bytes to spare after it.
+ */
+interface ByteScanner {
+    /**
+     * @return The offset of the first `b` at or after `from`
+     */
+    int find(ByteBuffer buf, int from, byte b);
+
+    /**
+     * @return The offset of the first `a` or `b` at or after `from`
+     */
+    int find(ByteBuffer buf, int from, byte a, byte b);
+
+    /**
+     * Choose the scanner to use in this JVM. Only the module and the property decide, so the choice
+     * is the same every time and costs nothing.
+     */
+    static ByteScanner create() {
+        var property = System.getProperty("osm.scanner");
+        if ("swar".equals(property)) return new SwarByteScanner();
+
+        // The vector scanner can't even be loaded without the module
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return new SwarByteScanner();
+        }
+
+        return new VectorByteScanner();
+    }
+}
@@ -0,0 +1,158 @@
+package osm;
+
+import drawing.Drawable;
+import drawing.DrawableEnum;
+import osm.elements.OSMTag;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What the tags of an element say about it, decoded in a single pass over the tags. Observers ask
+ * the classification instead of each searching the tags for the same keys again.
+ *
+ * <p>Get it from {@link osm.elements.OSMElement#classification()}, which classifies an element the
+ * first time it is asked for, and hands out the same classification to every later observer.
+ */
+public final class Classification {
+    private static final OSMTag.Key[] KEYS = OSMTag.Key.values();
+
+    /**
+     * The value of the first tag with each key, indexed by key ordinal
+     */
+    private final String[] values = new String[KEYS.length];
+    /**
+     * Bit set of the ordinals of the keys that have a value
+     */
+    private int keys = 0;
+    /**
+     * The value of the last tag with each key that is repeated, only made when one is
+     */
+    private String[] lastValues;
+    /**
+     * Bit set of the ordinals of the keys that are repeated
+     */
+    private int repeated = 0;
+    private Drawable drawable = DrawableEnum.UNKNOWN;
+    private Direction direction = Direction.UNKNOWN;
+    private int maxSpeed = -1;
+
+    /**
+     * Replace the classification with one of the given tags
+     */
+    public void classify(List<OSMTag> tags) {
+        if (keys != 0) Arrays.fill(values, null);
+        keys = 0;
+        repeated = 0;
+        drawable = DrawableEnum.UNKNOWN;
+        direction = Direction.UNKNOWN;
+        maxSpeed = -1;
+
+        for (int i = 0; i < tags.size(); i++) {
+            var tag = tags.get(i);
+            var bit = 1 << tag.key().ordinal();
+            if ((keys & bit) != 0) {
+                if (lastValues == null) lastValues = new String[KEYS.length];
+                lastValues[tag.key().ordinal()] = tag.value();
+                repeated |= bit;
+                continue;
+            }
+
+            keys |= bit;
+            values[tag.key().ordinal()] = tag.value();
+
+            if (drawable == DrawableEnum.UNKNOWN) drawable = DrawableEnum.from(tag);
+            if (direction == Direction.UNKNOWN) direction = Direction.from(tag);
+            if (tag.key() == OSMTag.Key.MAXSPEED) maxSpeed = parseSpeed(tag.value());
+        }
+    }
+
+    public void copyFrom(Classification other) {
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        keys = other.keys;
+        repeated = other.repeated;
+        if (repeated != 0) {
+            if (lastValues == null) lastValues = new String[KEYS.length];
+            System.arraycopy(other.lastValues, 0, lastValues, 0, lastValues.length);
+        }
+        drawable = other.drawable;
+        direction = other.direction;
+        maxSpeed = other.maxSpeed;
+    }
+
+    /**
+     * @return Whether the element has a tag with the key
+     */
+    public boolean has(OSMTag.Key key) {
+        return (keys & 1 << key.ordinal()) != 0;
+    }
+
+    /**
+     * @return The value of the tag with the key, or null if there is none
+     */
+    public String value(OSMTag.Key key) {
+        return values[key.ordinal()];
+    }
+
+    /**
+     * @return The value of the last tag with the key, or null if there is none
+     */
+    public String lastValue(OSMTag.Key key) {
+        var ordinal = key.ordinal();
+        return (repeated & 1 << ordinal) != 0 ? lastValues[ordinal] : values[ordinal];
+    }
+
+    /**
+     * @return How the element is drawn, from the first tag that says so, or UNKNOWN
+     */
+    public Drawable drawable() {
+        return drawable;
+    }
+
+    /**
+     * @return Which way traffic may follow the element, from the first junction or oneway tag that
+     * says so
+     */
+    public Direction direction() {
+        return direction;
+    }
+
+    /**
+     * @return The max speed in km/h, or -1 if there is none or it isn't a plain number
+     */
+    public int maxSpeed() {
+        return maxSpeed;
+    }
+
+    private static int parseSpeed(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            // E.g. "signals", "none" or "50 mph"
+            return -1;
+        }
+    }
+
+    public enum Direction {
+        SINGLE,
+        BOTH,
+        REVERSE,
+        UNKNOWN;
+
+        private static Direction from(OSMTag tag) {
+            return switch (tag.key()) {
+                case JUNCTION -> switch (tag.value()) {
+                    case "roundabout" -> SINGLE;
+                    default -> UNKNOWN;
+                };
+                case ONEWAY -> switch (tag.value()) {
+                    case "yes", "true", "1" -> SINGLE;
+                    case "no", "false", "0" -> BOTH;
+                    case "-1" -> REVERSE;
+                    default -> UNKNOWN;
+                };
+                default -> UNKNOWN;
+            };
+        }
+    }
+}
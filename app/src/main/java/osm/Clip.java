@@ -0,0 +1,83 @@
+package osm;
+
+import geometry.Rect;
+import osm.elements.OSMRelation;
+import osm.elements.OSMWay;
+
+/**
+ * Cuts the elements of a file down to those in a box, to make a map of part of a bigger extract.
+ *
+ * <p>Nodes are kept if they are in the box or in a small margin around it, so that ways which cross
+ * the edge still reach a bit past it. Ways are kept if any of their nodes is in the box itself, and
+ * relations if any of their ways were kept. The box is in degrees, with top and bottom being the
+ * minimum and maximum latitude, like the bounds of a file.
+ */
+public final class Clip {
+    /**
+     * Margin around the box, as a fraction of its width and height
+     */
+    private static final double MARGIN = 0.05;
+
+    private final Rect box;
+    private final double minLat;
+    private final double minLon;
+    private final double maxLat;
+    private final double maxLon;
+
+    public Clip(Rect box) {
+        this.box = box;
+        var latMargin = (box.bottom() - box.top()) * MARGIN;
+        var lonMargin = (box.right() - box.left()) * MARGIN;
+        minLat = box.top() - latMargin;
+        minLon = box.left() - lonMargin;
+        maxLat = box.bottom() + latMargin;
+        maxLon = box.right() + lonMargin;
+    }
+
+    public Rect box() {
+        return box;
+    }
+
+    /**
+     * @return Whether a node at a position is kept
+     */
+    public boolean keeps(double lon, double lat) {
+        return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+    }
+
+    /**
+     * @return Whether any node of a way is in the box
+     */
+    public boolean keeps(OSMWay way) {
+        for (int i = 0; i < way.nodeCount(); i++) {
+            var lon = way.nodeLon(i);
+            var lat = way.nodeLat(i);
+            if (lat >= box.top() && lat <= box.bottom() && lon >= box.left() && lon <= box.right()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Whether any way of a relation was kept
+     */
+    public boolean keeps(OSMRelation relation) {
+        return !relation.ways().isEmpty();
+    }
+
+    /**
+     * @param bounds Bounds of the whole file
+     * @return The part of the box that the file covers, or the box if they don't overlap at all
+     */
+    public Rect bounds(Rect bounds) {
+        if (!box.intersects(bounds)) return box;
+
+        return new Rect(
+                Math.max(box.top(), bounds.top()),
+                Math.max(box.left(), bounds.left()),
+                Math.min(box.bottom(), bounds.bottom()),
+                Math.min(box.right(), bounds.right()));
+    }
+}
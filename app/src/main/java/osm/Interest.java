@@ -0,0 +1,154 @@
+package osm;
+
+import osm.elements.OSMTag;
+
+import java.util.Objects;
+
+/**
+ * What an observer needs from the parser, so that the parser can skip work nobody needs. Bounds and
+ * onFinish are always passed on.
+ *
+ * <p>Interests are immutable, and built up from {@link #NONE}, e.g.
+ * {@code Interest.NONE.ways().geometry().keys(HIGHWAY)}.
+ */
+public final class Interest {
+    private static final int ALL_KEYS = (1 << OSMTag.Key.values().length) - 1;
+
+    public static final Interest NONE = new Interest(false, false, false, false, false, 0);
+    public static final Interest ALL = new Interest(true, true, true, true, true, ALL_KEYS);
+
+    private final boolean nodes;
+    private final boolean ways;
+    private final boolean relations;
+    private final boolean geometry;
+    private final boolean members;
+    /**
+     * Bit set of the ordinals of the tag keys that are needed
+     */
+    private final int keys;
+
+    private Interest(
+            boolean nodes, boolean ways, boolean relations, boolean geometry, boolean members, int keys) {
+        this.nodes = nodes;
+        this.ways = ways;
+        this.relations = relations;
+        this.geometry = geometry;
+        this.members = members;
+        this.keys = keys;
+    }
+
+    /**
+     * @return Whether onNode is called
+     */
+    public boolean wantsNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return Whether onWay is called
+     */
+    public boolean wantsWays() {
+        return ways;
+    }
+
+    /**
+     * @return Whether onRelation is called
+     */
+    public boolean wantsRelations() {
+        return relations;
+    }
+
+    /**
+     * @return Whether ways have their coordinates. Without them, the coordinates are empty.
+     */
+    public boolean wantsGeometry() {
+        return geometry;
+    }
+
+    /**
+     * @return Whether relations have their member ways. Without them, the members are empty.
+     */
+    public boolean wantsMembers() {
+        return members;
+    }
+
+    /**
+     * @return Whether tags with the key are passed on. Other tags are left out.
+     */
+    public boolean wants(OSMTag.Key key) {
+        return (keys & 1 << key.ordinal()) != 0;
+    }
+
+    /**
+     * @return Whether any tags are passed on at all
+     */
+    public boolean wantsTags() {
+        return keys != 0;
+    }
+
+    public Interest nodes() {
+        return new Interest(true, ways, relations, geometry, members, keys);
+    }
+
+    public Interest ways() {
+        return new Interest(nodes, true, relations, geometry, members, keys);
+    }
+
+    public Interest relations() {
+        return new Interest(nodes, ways, true, geometry, members, keys);
+    }
+
+    public Interest geometry() {
+        return new Interest(nodes, ways, relations, true, members, keys);
+    }
+
+    public Interest members() {
+        return new Interest(nodes, ways, relations, geometry, true, keys);
+    }
+
+    public Interest keys(OSMTag.Key... keys) {
+        var mask = this.keys;
+        for (var key : keys) {
+            mask |= 1 << key.ordinal();
+        }
+        return new Interest(nodes, ways, relations, geometry, members, mask);
+    }
+
+    public Interest allKeys() {
+        return new Interest(nodes, ways, relations, geometry, members, ALL_KEYS);
+    }
+
+    public Interest union(Interest other) {
+        return new Interest(
+                nodes || other.nodes,
+                ways || other.ways,
+                relations || other.relations,
+                geometry || other.geometry,
+                members || other.members,
+                keys | other.keys);
+    }
+
+    public static Interest union(Iterable<? extends OSMObserver> observers) {
+        var interest = NONE;
+        for (var observer : observers) {
+            interest = interest.union(observer.interest());
+        }
+        return interest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Interest i
+                && nodes == i.nodes
+                && ways == i.ways
+                && relations == i.relations
+                && geometry == i.geometry
+                && members == i.members
+                && keys == i.keys;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodes, ways, relations, geometry, members, keys);
+    }
+}
@@ -0,0 +1,100 @@
+package osm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.DoubleConsumer;
+
+/**
+ * An uncompressed file that is read through memory mapped windows instead of a stream. The scanner
+ * reads directly from the mapped window, so no bytes are copied on the way.
+ *
+ * <p>A window is never mapped past the end of the file, which means that there is no room for the
+ * `&lt;end&gt;` sentinel the scanner relies on. The last {@link #MARGIN} bytes of the file are
+ * therefore read through {@link #tail(int)} instead.
+ */
+class MappedInput implements Closeable {
+    /**
+     * Size of a mapped window
+     */
+    static final int WINDOW = 256 * 1024 * 1024;
+    /**
+     * A new window is mapped when fewer than this many bytes are left in the current one. Must be
+     * larger than any single element.
+     */
+    static final int MARGIN = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final DoubleConsumer progress;
+    private final long progressStep;
+    private long lastProgress = 0;
+    private long base = 0;
+    private MappedByteBuffer window;
+
+    /**
+     * @param path     File to read
+     * @param progress Called with the fraction of the file that has been read, may be null
+     */
+    MappedInput(Path path, DoubleConsumer progress) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        this.progress = progress;
+        progressStep = Math.max(size / 1000, MARGIN);
+    }
+
+    /**
+     * Map a new window starting at an offset in the current one
+     *
+     * @param cur Offset in the current window
+     * @return The new window, where `cur` is at offset 0
+     */
+    MappedByteBuffer remap(int cur) throws IOException {
+        base += cur;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(WINDOW, size - base));
+        return window;
+    }
+
+    MappedByteBuffer window() {
+        return window;
+    }
+
+    /**
+     * @return Number of bytes in the file after offset `cur` in the current window
+     */
+    long remaining(int cur) {
+        return size - base - cur;
+    }
+
+    /**
+     * @return Whether the current window ends at the end of the file
+     */
+    boolean atEnd() {
+        return base + window.limit() == size;
+    }
+
+    /**
+     * @return The rest of the file from offset `cur` in the current window as a stream
+     */
+    InputStream tail(int cur) throws IOException {
+        return Channels.newInputStream(channel.position(base + cur));
+    }
+
+    void reportProgress(int cur) {
+        if (progress == null || base + cur - lastProgress < progressStep) return;
+
+        lastProgress = base + cur;
+        progress.accept((double) lastProgress / size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (progress != null) progress.accept(1);
+        channel.close();
+    }
+}
@@ -21,4 +21,11 @@ public interface OSMObserver {
 
     default void onFinish() {
     }
+
+    /**
+     * @return What this observer needs. The parser may leave out anything that no observer needs.
+     */
+    default Interest interest() {
+        return Interest.ALL;
+    }
 }
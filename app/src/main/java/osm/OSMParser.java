@@ -0,0 +1,30 @@
+package osm;
+
+import geometry.Rect;
+
+import java.io.InputStream;
+
+/**
+ * Parses an OSM file and passes every element in it to the observers
+ */
+public interface OSMParser {
+    void addObservers(OSMObserver... observers);
+
+    /**
+     * Set how many threads may be used to parse the input. Observers are always called on the thread
+     * that calls parse, in the order the elements appear in the input.
+     *
+     * @param parallelism Number of threads
+     */
+    void setParallelism(int parallelism);
+
+    /**
+     * Only pass on the elements in and around a box, see {@link Clip}. The bounds passed on are
+     * then the box, or the part of it that the file covers.
+     *
+     * @param box Box to keep, or null to keep everything
+     */
+    void setClip(Rect box);
+
+    void parse(InputStream stream) throws Exception;
+}
@@ -1,10 +1,8 @@
 package osm;
 
 import geometry.Rect;
-import jdk.incubator.vector.ByteVector;
-import jdk.incubator.vector.VectorMask;
-import jdk.incubator.vector.VectorSpecies;
 import osm.elements.*;
+import osm.tables.ArrayNodeTable;
 import osm.tables.NodeTable;
 import osm.tables.WayTable;
 import util.ThrowingRunnable;
@@ -13,90 +11,373 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.DoubleConsumer;
 
-public class OSMReader {
-    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
-    private static final int SPECIES_LENGTH = SPECIES.length();
-    private static final VectorMask<Byte>[] LSHIFT_MASKS =
-            (VectorMask<Byte>[]) new VectorMask[SPECIES_LENGTH];
+public class OSMReader implements OSMParser {
+    private static final ByteScanner SCANNER = ByteScanner.create();
     private static final double[] POWERS_OF_TEN = new double[24];
-    private static final ByteVector TAG = ByteVector.broadcast(SPECIES, (byte) '<');
-    private static final ByteVector QUOTE = ByteVector.broadcast(SPECIES, (byte) '"');
-    private static final ByteVector L = ByteVector.broadcast(SPECIES, (byte) 'l');
-    private static final ByteVector DOT = ByteVector.broadcast(SPECIES, (byte) '.');
+    private static final ThrowingRunnable SKIP = () -> {};
+    private static final byte TAG = '<';
+    private static final byte EQUALS = '=';
+    private static final byte END_TAG = '>';
+
+    // The attributes we read, by their index in ATTRIBUTES
+    private static final int ID = 0;
+    private static final int LAT = 1;
+    private static final int LON = 2;
+    private static final int K = 3;
+    private static final int V = 4;
+    private static final int REF = 5;
+    private static final int TYPE = 6;
+    private static final int ROLE = 7;
+    private static final int MINLAT = 8;
+    private static final int MINLON = 9;
+    private static final int MAXLAT = 10;
+    private static final int MAXLON = 11;
+    private static final int OTHER = -1;
+    private static final int END = -2;
+    private static final byte[][] ATTRIBUTES =
+            Arrays.stream(
+                            new String[] {
+                                "id", "lat", "lon", "k", "v", "ref", "type", "role",
+                                "minlat", "minlon", "maxlat", "maxlon"
+                            })
+                    .map(OSMReader::bytes)
+                    .toArray(byte[][]::new);
+    // The start of each tag up to its first value, and what comes between values, in the usual
+    // attribute order
+    private static final byte[] NODE_ID = bytes("node id=\"");
+    private static final byte[] WAY_ID = bytes("way id=\"");
+    private static final byte[] RELATION_ID = bytes("relation id=\"");
+    private static final byte[] ND_REF = bytes("nd ref=\"");
+    private static final byte[] TAG_K = bytes("tag k=\"");
+    private static final byte[] MEMBER_TYPE = bytes("member type=\"");
+    private static final byte[] LAT_NEXT = bytes("\" lat=\"");
+    private static final byte[] LON_NEXT = bytes("\" lon=\"");
+    private static final byte[] V_NEXT = bytes("\" v=\"");
+    private static final byte[] REF_NEXT = bytes("\" ref=\"");
+    private static final byte[] ROLE_NEXT = bytes("\" role=\"");
 
     static {
-        for (int i = 0; i < SPECIES_LENGTH; i++) {
-            LSHIFT_MASKS[i] = VectorMask.fromLong(SPECIES, 0xFFFF_FFFF_FFFF_FFFFL << i);
-        }
-
         for (int i = 0; i < POWERS_OF_TEN.length; i++) {
             POWERS_OF_TEN[i] = Math.pow(10, i);
         }
     }
 
-    private final byte[] buf = new byte[64 * 4096]; // must be multiple of 64
+    private final byte[] array = new byte[64 * 4096]; // must be multiple of 64
     private final List<OSMObserver> observers = new ArrayList<>();
-    private final NodeTable nodes = new NodeTable();
-    private final WayTable ways = new WayTable();
+    private final NodeTable nodes;
+    private final WayTable ways;
+    private final boolean reuse;
     private final OSMNode node = new OSMNode();
     private final OSMWay way = new OSMWay();
     private final OSMRelation relation = new OSMRelation();
-    private final List<SlimOSMNode> wayNdList = new ArrayList<>();
+    private final SymbolTable symbols = new SymbolTable();
+    /**
+     * Tags by the symbol code of their key and value
+     */
+    private final List<OSMTag> tags = new ArrayList<>();
+    // Bound once, as a method reference is a new object every time it is evaluated
+    private final ThrowingRunnable tagParser = this::parseTag;
+    private final ThrowingRunnable ndParser = this::parseNd;
+    private final ThrowingRunnable memberParser = this::parseMember;
+    private ByteBuffer buf = ByteBuffer.wrap(array);
     private InputStream stream;
+    private MappedInput mapped;
     private int cur = 0;
+    private int limit = Integer.MAX_VALUE;
     private OSMElement current;
     private boolean atTag;
+    // The quote around the value of the attribute being read, see nextAttribute()
+    private byte quote;
+    private int parallelism = 1;
+    private ByteScanner scanner = SCANNER;
+    private Clip clip;
+    // What the observers need, see prepare()
+    private Interest interest = Interest.ALL;
+    private boolean nodeTags = true;
+    private boolean wayTags = true;
+    private boolean relationTags = true;
+    private List<OSMObserver> nodeObservers = observers;
+    private List<OSMObserver> wayObservers = observers;
+    private List<OSMObserver> relationObservers = observers;
 
     public OSMReader() {
+        this(new ArrayNodeTable());
+    }
+
+    /**
+     * @param nodes Where the nodes are kept until the ways have been read
+     */
+    public OSMReader(NodeTable nodes) {
+        this(nodes, new WayTable());
+    }
+
+    /**
+     * @param nodes Where the nodes are kept until the ways have been read
+     * @param ways  Where the ways are kept until the relations have been read
+     */
+    public OSMReader(NodeTable nodes, WayTable ways) {
+        this(nodes, ways, true);
         addObservers(nodes, ways);
     }
 
+    /**
+     * Create a reader that resolves references against tables owned by someone else. Used to parse
+     * fragments of a file, see {@link ParallelOSMReader}.
+     *
+     * @param nodes Nodes that ways are resolved against
+     * @param ways  Ways that relations are resolved against
+     * @param reuse Whether the same element instances are passed to observers every time. If false,
+     *              every element is a new instance that observers may keep.
+     */
+    OSMReader(NodeTable nodes, WayTable ways, boolean reuse) {
+        this.nodes = nodes;
+        this.ways = ways;
+        this.reuse = reuse;
+    }
+
+    @Override
     public void parse(InputStream stream) throws Exception {
-        this.stream =
-                new SequenceInputStream(
-                        stream, new ByteArrayInputStream("<end>".getBytes(StandardCharsets.UTF_8)));
-        stream.read(buf);
+        prepare();
 
+        if (parallelism > 1) {
+            new ParallelOSMReader(this, parallelism).parse(stream);
+            return;
+        }
+
+        init(stream);
         parseBounds();
+        parseElements();
+        finish();
+    }
 
-        current = node;
-        parseAll(Parseable.NODE, this::parseNode);
-        current = way;
-        parseAll(Parseable.WAY, this::parseWay);
-        current = relation;
-        parseAll(Parseable.RELATION, this::parseRelation);
+    /**
+     * Parse an uncompressed file by mapping it into memory instead of streaming it. This avoids
+     * copying the input around before it is scanned.
+     *
+     * @param path     File to parse
+     * @param progress Called with the fraction of the file that has been parsed, may be null
+     */
+    public void parse(Path path, DoubleConsumer progress) throws Exception {
+        prepare();
+
+        try (var input = new MappedInput(path, progress)) {
+            if (parallelism > 1) {
+                new ParallelOSMReader(this, parallelism).parse(input);
+                return;
+            }
 
-        for (var observer : observers) {
-            observer.onFinish();
+            mapped = input;
+            buf = input.remap(0);
+            cur = 0;
+            atTag = false;
+
+            parseBounds();
+            parseElements();
+            finish();
+        } finally {
+            mapped = null;
         }
     }
 
+    /**
+     * Parse the elements in [from, to) of a buffer, where `from` must be the start of an element.
+     * Parsing stops at the first element that starts at or after `to`, so the buffer must have room
+     * for the scanner to look past it, either because it continues with more elements or because
+     * it has an end sentinel. Does not call onBounds or onFinish on the observers.
+     */
+    void parseFragment(ByteBuffer buffer, int from, int to) throws Exception {
+        buf = buffer;
+        cur = from;
+        limit = to;
+        stream = null;
+        atTag = false;
+
+        try {
+            parseElements();
+        } finally {
+            buf = ByteBuffer.wrap(array);
+            limit = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Parse only up to and including the bounds element of a stream
+     */
+    void parseHeader(InputStream stream) throws Exception {
+        init(stream);
+        parseBounds();
+    }
+
+    @Override
     public void addObservers(OSMObserver... observers) {
         this.observers.addAll(Arrays.asList(observers));
     }
 
+    /**
+     * Set how many threads are used to scan the input. With a parallelism of 1 (the default) the
+     * input is scanned on the calling thread.
+     *
+     * @param parallelism Number of threads that scan the input
+     */
+    @Override
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public void setClip(Rect box) {
+        clip = box == null ? null : new Clip(box);
+    }
+
+    /**
+     * Use another way to find bytes than the one chosen for this JVM, see {@link ByteScanner}
+     */
+    void setScanner(ByteScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    List<OSMObserver> observers() {
+        return observers;
+    }
+
+    List<OSMObserver> nodeObservers() {
+        return nodeObservers;
+    }
+
+    List<OSMObserver> wayObservers() {
+        return wayObservers;
+    }
+
+    List<OSMObserver> relationObservers() {
+        return relationObservers;
+    }
+
+    /**
+     * Work out what the observers need, so that parsing can skip the rest. The node and way tables
+     * are only fed if another observer needs the coordinates or the relation members they resolve,
+     * or if they are needed to tell which ways and relations are in the clip box.
+     */
+    void prepare() {
+        var others = observers.stream().filter(o -> o != nodes && o != ways).toList();
+        var wanted = Interest.union(others);
+        var needWays = wanted.wantsMembers() || clip != null && wanted.wantsRelations();
+        var needNodes = wanted.wantsGeometry() || needWays || clip != null && wanted.wantsWays();
+
+        nodeObservers =
+                observers.stream()
+                        .filter(o -> o == nodes ? needNodes : o != ways && o.interest().wantsNodes())
+                        .toList();
+        wayObservers =
+                observers.stream()
+                        .filter(o -> o == ways ? needWays : o != nodes && o.interest().wantsWays())
+                        .toList();
+        relationObservers = others.stream().filter(o -> o.interest().wantsRelations()).toList();
+
+        // Tags are only decoded for kinds of elements where someone looks at them
+        nodeTags = Interest.union(withoutTables(nodeObservers)).wantsTags();
+        wayTags = Interest.union(withoutTables(wayObservers)).wantsTags();
+        relationTags = Interest.union(relationObservers).wantsTags();
+
+        interest =
+                Interest.union(nodeObservers)
+                        .union(Interest.union(wayObservers))
+                        .union(Interest.union(relationObservers));
+        if (needNodes) interest = interest.geometry();
+        if (needWays) interest = interest.members();
+    }
+
+    private List<OSMObserver> withoutTables(List<OSMObserver> list) {
+        return list.stream().filter(o -> o != nodes && o != ways).toList();
+    }
+
+    /**
+     * Skip the same work as another reader, whose observers this reader is parsing for
+     */
+    void prepare(OSMReader other) {
+        interest = other.interest;
+        nodeTags = other.nodeTags;
+        wayTags = other.wayTags;
+        relationTags = other.relationTags;
+        scanner = other.scanner;
+        clip = other.clip;
+    }
+
+    NodeTable nodes() {
+        return nodes;
+    }
+
+    WayTable ways() {
+        return ways;
+    }
+
+    void finish() {
+        for (var observer : observers) {
+            observer.onFinish();
+        }
+    }
+
+    private void init(InputStream stream) throws IOException {
+        this.stream =
+                new SequenceInputStream(
+                        stream, new ByteArrayInputStream("<end>".getBytes(StandardCharsets.UTF_8)));
+        this.stream.readNBytes(array, 0, array.length);
+        buf = ByteBuffer.wrap(array);
+        cur = 0;
+        atTag = false;
+    }
+
+    private void parseElements() throws Exception {
+        parseAll(Parseable.NODE, this::parseNode);
+        parseAll(Parseable.WAY, this::parseWay);
+        parseAll(Parseable.RELATION, this::parseRelation);
+    }
+
     private void refill() throws IOException {
-        int half = buf.length >> 1;
+        if (mapped != null) {
+            refillMapped();
+            return;
+        }
+
+        if (stream == null) return;
+
+        int half = array.length >> 1;
 
         if (cur >= half) {
-            System.arraycopy(buf, half, buf, 0, half);
-            stream.read(buf, half, half);
+            System.arraycopy(array, half, array, 0, half);
+            stream.readNBytes(array, half, half);
             cur -= half;
         }
     }
 
-    private byte read() {
-        advance();
-        return at();
+    private void refillMapped() throws IOException {
+        mapped.reportProgress(cur);
+
+        if (mapped.remaining(cur) < MappedInput.MARGIN) {
+            // Read the last bit as a stream, which gives us the end sentinel
+            stream =
+                    new SequenceInputStream(
+                            mapped.tail(cur),
+                            new ByteArrayInputStream("<end>".getBytes(StandardCharsets.UTF_8)));
+            stream.readNBytes(array, 0, array.length);
+            buf = ByteBuffer.wrap(array);
+            cur = 0;
+            mapped = null;
+        } else if (cur > buf.limit() - MappedInput.MARGIN) {
+            buf = mapped.remap(cur);
+            cur = 0;
+        }
     }
 
     private byte at() {
-        return buf[cur];
+        return buf.get(cur);
     }
 
     private void advance() {
@@ -107,15 +388,8 @@ public class OSMReader {
         cur += amount;
     }
 
-    private void advance(ByteVector until) {
-        while (true) {
-            int next = ByteVector.fromArray(SPECIES, buf, cur).eq(until).firstTrue();
-            cur += next;
-
-            if (next != SPECIES_LENGTH) {
-                return;
-            }
-        }
+    private void advance(byte until) {
+        cur = scanner.find(buf, cur, until);
     }
 
     private void advanceTag() {
@@ -131,48 +405,23 @@ public class OSMReader {
 
         atTag = false;
 
-        double minlat;
-        double minlon;
-        double maxlat;
-        double maxlon;
-
-        advance(L);
-        var latFirst = read() == 'a';
-        advance(QUOTE);
-        advance();
-        if (latFirst) {
-            minlat = getDouble();
-            advance();
-            advance(QUOTE);
-            advance();
-            minlon = getDouble();
-        } else {
-            minlon = getDouble();
-            advance();
-            advance(QUOTE);
-            advance();
-            minlat = getDouble();
-        }
-
-        advance(L);
-        latFirst = read() == 'a';
-        advance(QUOTE);
-        advance();
-        if (latFirst) {
-            maxlat = getDouble();
-            advance();
-            advance(QUOTE);
-            advance();
-            maxlon = getDouble();
-        } else {
-            maxlon = getDouble();
-            advance();
-            advance(QUOTE);
-            advance();
-            maxlat = getDouble();
+        double minlat = 0;
+        double minlon = 0;
+        double maxlat = 0;
+        double maxlon = 0;
+
+        for (int attribute; (attribute = nextAttribute()) != END; ) {
+            switch (attribute) {
+                case MINLAT -> minlat = getDouble();
+                case MINLON -> minlon = getDouble();
+                case MAXLAT -> maxlat = getDouble();
+                case MAXLON -> maxlon = getDouble();
+                default -> skipValue();
+            }
         }
 
         var bounds = new Rect((float) minlat, (float) minlon, (float) maxlat, (float) maxlon);
+        if (clip != null) bounds = clip.bounds(bounds);
 
         for (var observer : observers) {
             observer.onBounds(bounds);
@@ -183,6 +432,9 @@ public class OSMReader {
         while (true) {
             refill();
 
+            // End of a fragment. cur is past the '<' at `limit` once the last element has been parsed.
+            if (cur > limit) return;
+
             if (!atTag) advanceTag();
 
             if (at() != parseable.b) {
@@ -199,155 +451,332 @@ public class OSMReader {
     }
 
     private void parseNode() throws Exception {
-        advance(9); // advance(QUOTE);
-        var id = getLong();
+        if (!interest.wantsNodes()) {
+            parseAll(Parseable.TAG, SKIP);
+            return;
+        }
+
+        long id = 0;
+        double lat = 0;
+        double lon = 0;
+        int found = 0;
+
+        // The usual order, which is checked first as it is faster than looking up every attribute
+        if (skip(NODE_ID)) {
+            id = getLong();
+            found++;
+
+            if (skip(LAT_NEXT)) {
+                lat = getDouble();
+                found++;
+
+                if (skip(LON_NEXT)) {
+                    lon = getDouble();
+                    found++;
+                }
+            }
+        }
 
-        advance(L);
-        advance(5); // advance(QUOTE);
-        var lat = getDouble();
-        advance(L);
-        advance(5); // advance(QUOTE);
-        var lon = getDouble();
+        for (int attribute; found < 3 && (attribute = nextAttribute()) != END; ) {
+            switch (attribute) {
+                case ID -> {
+                    id = getLong();
+                    found++;
+                }
+                case LAT -> {
+                    lat = getDouble();
+                    found++;
+                }
+                case LON -> {
+                    lon = getDouble();
+                    found++;
+                }
+                default -> skipValue();
+            }
+        }
 
+        if (clip != null && !clip.keeps(lon, lat)) {
+            parseAll(Parseable.TAG, SKIP);
+            return;
+        }
+
+        var node = reuse ? this.node : new OSMNode();
         node.init(id, lon, lat);
+        current = node;
 
-        parseAll(Parseable.TAG, this::parseTag);
+        parseAll(Parseable.TAG, nodeTags ? tagParser : SKIP);
 
-        for (var observer : observers) {
+        for (var observer : nodeObservers) {
             observer.onNode(node);
         }
     }
 
     private void parseWay() throws Exception {
-        advance(8); // advance(QUOTE);
-        var id = getLong();
+        if (!interest.wantsWays()) {
+            parseAll(Parseable.ND, SKIP);
+            parseAll(Parseable.TAG, SKIP);
+            return;
+        }
+
+        var id = getId(WAY_ID);
 
+        var way = reuse ? this.way : new OSMWay();
         way.init(id);
+        current = way;
 
-        parseAll(Parseable.ND, this::parseNd);
-        parseAll(Parseable.TAG, this::parseTag);
+        parseAll(Parseable.ND, interest.wantsGeometry() ? ndParser : SKIP);
+        parseAll(Parseable.TAG, wayTags ? tagParser : SKIP);
 
-        way.setNodes(wayNdList.toArray(new SlimOSMNode[0]));
-        wayNdList.clear();
+        if (clip != null && !clip.keeps(way)) return;
 
-        for (var observer : observers) {
+        for (var observer : wayObservers) {
             observer.onWay(way);
         }
     }
 
     private void parseRelation() throws Exception {
-        advance(13); // advance(QUOTE);
-        var id = getLong();
+        if (!interest.wantsRelations()) {
+            parseAll(Parseable.MEMBER, SKIP);
+            parseAll(Parseable.TAG, SKIP);
+            return;
+        }
 
+        var id = getId(RELATION_ID);
+
+        var relation = reuse ? this.relation : new OSMRelation();
         relation.init(id);
+        current = relation;
 
-        parseAll(Parseable.MEMBER, this::parseMember);
-        parseAll(Parseable.TAG, this::parseTag);
+        parseAll(Parseable.MEMBER, interest.wantsMembers() ? memberParser : SKIP);
+        parseAll(Parseable.TAG, relationTags ? tagParser : SKIP);
 
-        for (var observer : observers) {
+        if (clip != null && !clip.keeps(relation)) return;
+
+        for (var observer : relationObservers) {
             observer.onRelation(relation);
         }
     }
 
     private void parseTag() {
-        advance(7); // advance(QUOTE);
-        var k = getString();
-        var key = OSMTag.Key.from(k);
-        if (key == null) return;
+        OSMTag.Key key = null;
+        int valueOff = -1;
+        int valueLen = 0;
+
+        if (skip(TAG_K)) {
+            var off = cur;
+            skipValue();
+            key = OSMTag.Key.from(buf, off, cur - off);
+            if (key == null || !interest.wants(key)) return;
+
+            if (skip(V_NEXT)) {
+                valueOff = cur;
+                skipValue();
+                valueLen = cur - valueOff;
+            }
+        }
+
+        for (int attribute; (key == null || valueOff == -1) && (attribute = nextAttribute()) != END; ) {
+            var off = cur;
+            skipValue();
 
-        advance(5); // advance(QUOTE);
-        var v = getString().intern();
-        var tag = new OSMTag(key, v);
+            if (attribute == K) {
+                key = OSMTag.Key.from(buf, off, cur - off);
+                if (key == null || !interest.wants(key)) return;
+            } else if (attribute == V) {
+                valueOff = off;
+                valueLen = cur - off;
+            }
+        }
+
+        if (key == null || valueOff == -1) return;
 
-        current.tags().add(tag);
+        // The same tag is shared by every element that has it
+        var code = symbols.code(key.ordinal(), buf, valueOff, valueLen);
+        if (code == tags.size()) tags.add(new OSMTag(key, symbols.string(code)));
+
+        current.tags().add(tags.get(code));
     }
 
     private void parseNd() {
-        advance(8); // advance(QUOTE);
-        var ref = getLong();
-        var node = nodes.get(ref);
-        if (node == null) return;
-        wayNdList.add(node);
+        var ref = getId(ND_REF);
+        var coordinate = nodes.get(ref);
+        if (coordinate == Coordinates.NONE) return;
+        ((OSMWay) current).addCoordinate(coordinate);
     }
 
     private void parseMember() {
-        advance(12); // advance(QUOTE);
-        var type = read();
+        var way = false;
+        var outer = false;
+        long ref = 0;
+        int found = 0;
+
+        if (skip(MEMBER_TYPE)) {
+            if (at() != 'w') return; // way
+            way = true;
+            skipValue();
+            found++;
+
+            if (skip(REF_NEXT)) {
+                ref = getLong();
+                found++;
+
+                if (skip(ROLE_NEXT)) {
+                    if (at() != 'o') return; // outer
+                    outer = true;
+                    found++;
+                }
+            }
+        }
 
-        if (type != 'w') return; // way
+        for (int attribute; found < 3 && (attribute = nextAttribute()) != END; ) {
+            switch (attribute) {
+                case TYPE -> {
+                    if (at() != 'w') return; // way
+                    way = true;
+                    skipValue();
+                    found++;
+                }
+                case REF -> {
+                    ref = getLong();
+                    found++;
+                }
+                case ROLE -> {
+                    if (at() != 'o') return; // outer
+                    outer = true;
+                    skipValue();
+                    found++;
+                }
+                default -> skipValue();
+            }
+        }
 
-        advance(10); // advance(QUOTE);
-        var ref = getLong();
+        if (!way || !outer) return;
 
-        advance(7); // advance(QUOTE);
-        var role = read();
+        var member = ways.get(ref);
+        if (member == null) return;
 
-        if (role != 'o') return; // outer
+        ((OSMRelation) current).ways().add(member);
+    }
 
-        var way = ways.get(ref);
-        if (way == null) return;
+    /**
+     * Move to the value of the next attribute of the current start tag. Attributes may come in any
+     * order, with either kind of quote and with other attributes in between.
+     *
+     * @return The attribute, or END if the start tag has no more attributes
+     */
+    private int nextAttribute() {
+        cur = scanner.find(buf, cur, EQUALS, END_TAG);
+        if (at() == END_TAG) return END;
 
-        ((OSMRelation) current).ways().add(way);
-    }
+        var attribute = attributeBefore(cur);
 
-    private String getString() {
-        int off = cur;
-        advance(QUOTE);
-        int len = cur - off;
+        do {
+            advance();
+        } while (at() != '"' && at() != '\'');
 
-        return new String(buf, off, len, StandardCharsets.UTF_8);
+        quote = at();
+        advance();
+        return attribute;
     }
 
-    private long getLong() {
-        long num = 0;
+    /**
+     * @return The attribute whose name ends just before an offset, or OTHER if it isn't one we use
+     */
+    private int attributeBefore(int end) {
+        var start = end;
+        while (buf.get(start - 1) > ' ') start--;
 
-        int off = cur;
-        advance(QUOTE);
-        int len = cur - off;
-
-        for (int i = 0; i < len; i++) {
-            num = num * 10 + buf[off + i] - '0';
+        for (int attribute = 0; attribute < ATTRIBUTES.length; attribute++) {
+            if (ATTRIBUTES[attribute].length == end - start && matches(start, ATTRIBUTES[attribute])) {
+                return attribute;
+            }
         }
 
-        return num;
+        return OTHER;
     }
 
-    private double getDouble() {
-        int off = cur;
-        advance(DOT);
-        int len = cur - off;
-
-        // really nasty edge-case where some coords don't have any decimal places
-        if (len > 4) {
-            cur = off;
-            return getDoubleNoDecimals();
+    private boolean matches(int off, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (buf.get(off + i) != pattern[i]) return false;
         }
+        return true;
+    }
+
+    /**
+     * Move past the given bytes if they are next, which end with the opening quote of a value
+     *
+     * @return Whether they were next
+     */
+    private boolean skip(byte[] expected) {
+        if (!matches(cur, expected)) return false;
+
+        advance(expected.length);
+        quote = '"';
+        return true;
+    }
 
-        int first = readInt(off, len);
+    /**
+     * Move to the quote that ends the current attribute value
+     */
+    private void skipValue() {
+        advance(quote);
+    }
 
-        off = cur + 1;
-        advance(QUOTE);
-        len = cur - off;
+    /**
+     * @param usual The start of the tag up to the value, when the id comes first
+     * @return The id attribute of the current start tag, or the ref attribute of an nd
+     */
+    private long getId(byte[] usual) {
+        if (skip(usual)) return getLong();
 
-        int second = readInt(off, len);
+        for (int attribute; (attribute = nextAttribute()) != END; ) {
+            if (attribute == ID || attribute == REF) return getLong();
+            skipValue();
+        }
 
-        return first + second / POWERS_OF_TEN[len];
+        return 0;
     }
 
-    private double getDoubleNoDecimals() {
-        int off = cur;
-        advance(QUOTE);
-        int len = cur - off;
+    private long getLong() {
+        var negative = at() == '-';
+        if (negative) advance();
 
-        return readInt(off, len);
+        long num = 0;
+        for (byte b; (b = at()) >= '0' && b <= '9'; advance()) {
+            num = num * 10 + b - '0';
+        }
+
+        return negative ? -num : num;
     }
 
-    private int readInt(int off, int len) {
-        int num = 0;
-        for (int i = 0; i < len; i++) {
-            num = num * 10 + buf[off + i] - '0';
+    private double getDouble() {
+        var negative = at() == '-';
+        if (negative) advance();
+
+        int first = 0;
+        for (byte b; (b = at()) >= '0' && b <= '9'; advance()) {
+            first = first * 10 + b - '0';
+        }
+
+        // Some coordinates don't have any decimal places
+        double value = first;
+        if (at() == '.') {
+            advance();
+
+            var off = cur;
+            int second = 0;
+            for (byte b; (b = at()) >= '0' && b <= '9'; advance()) {
+                second = second * 10 + b - '0';
+            }
+
+            value += second / POWERS_OF_TEN[cur - off];
         }
-        return num;
+
+        return negative ? -value : value;
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
     }
 
     enum Parseable {
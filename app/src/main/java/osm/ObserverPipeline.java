@@ -0,0 +1,280 @@
+package osm;
+
+import geometry.Rect;
+import osm.elements.OSMNode;
+import osm.elements.OSMRelation;
+import osm.elements.OSMWay;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Passes events on to observers that each run on a thread of their own, so that slow observers run
+ * in parallel with each other and with the parser instead of one after another inside it.
+ *
+ * <p>Events are published in batches to a bounded ring buffer, and every observer follows the ring
+ * with a cursor of its own. The parser waits when the slowest observer is a whole ring behind.
+ * Parsers reuse their elements, so every event is copied into an element owned by the ring, which
+ * is reused once every observer has seen it. Observers must therefore not keep the elements they are
+ * given, just as with a parser.
+ *
+ * <p>A batch only holds one kind of element, and an observer skips the batches of kinds its {@link
+ * OSMObserver#interest()} doesn't want, like a parser would. Elements that no observer wants are
+ * not copied at all.
+ *
+ * <p>{@link #onFinish()} returns once every observer has finished, and rethrows the first exception
+ * thrown by one of them.
+ */
+public class ObserverPipeline implements OSMObserver, Closeable {
+    private static final int BATCH_SIZE = 1024;
+    private static final int RING_SIZE = 64; // Must be a power of two
+    private static final int MASK = RING_SIZE - 1;
+
+    private final Batch[] ring = new Batch[RING_SIZE];
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final boolean wantsNodes;
+    private final boolean wantsWays;
+    private final boolean wantsRelations;
+    /**
+     * Sequence number of the last batch that has been published
+     */
+    private volatile long published = -1;
+    private volatile Thread waiting;
+    private volatile boolean closed;
+    private Batch batch;
+    private long next = 0;
+
+    public ObserverPipeline(OSMObserver... observers) {
+        for (int i = 0; i < RING_SIZE; i++) {
+            ring[i] = new Batch();
+        }
+
+        for (var observer : observers) {
+            var consumer = new Consumer(observer);
+            consumer.thread.start();
+            consumers.add(consumer);
+        }
+
+        var interest = interest();
+        wantsNodes = interest.wantsNodes();
+        wantsWays = interest.wantsWays();
+        wantsRelations = interest.wantsRelations();
+    }
+
+    @Override
+    public void onBounds(Rect bounds) {
+        claim(Type.BOUNDS).bounds = bounds;
+    }
+
+    @Override
+    public void onNode(OSMNode node) {
+        if (!wantsNodes) return;
+
+        var event = claim(Type.NODE);
+        if (event.node == null) event.node = new OSMNode();
+        event.node.copyFrom(node);
+    }
+
+    @Override
+    public void onWay(OSMWay way) {
+        if (!wantsWays) return;
+
+        var event = claim(Type.WAY);
+        if (event.way == null) event.way = new OSMWay();
+        event.way.copyFrom(way);
+    }
+
+    @Override
+    public void onRelation(OSMRelation relation) {
+        if (!wantsRelations) return;
+
+        var event = claim(Type.RELATION);
+        if (event.relation == null) event.relation = new OSMRelation();
+        event.relation.copyFrom(relation);
+    }
+
+    @Override
+    public void onFinish() {
+        claim(Type.FINISH);
+        publish();
+
+        for (var consumer : consumers) {
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        rethrow();
+    }
+
+    @Override
+    public Interest interest() {
+        return Interest.union(consumers.stream().map(c -> c.observer).toList());
+    }
+
+    /**
+     * Stop every observer that has not finished yet. Only needed if {@link #onFinish()} is never
+     * called, e.g. because the parser failed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    private Event claim(Type type) {
+        if (batch != null && (batch.size == BATCH_SIZE || batch.type != type)) {
+            publish();
+            // The observers that have not failed must still be told to finish
+            if (type != Type.FINISH) rethrow();
+        }
+
+        if (batch == null) {
+            // The batch that used to be in this slot must have been seen by every observer
+            var wrap = next - RING_SIZE;
+            while (slowestCursor() < wrap) {
+                waiting = Thread.currentThread();
+                if (slowestCursor() >= wrap) break;
+                LockSupport.park(this);
+            }
+            waiting = null;
+
+            batch = ring[(int) next & MASK];
+            batch.type = type;
+            batch.size = 0;
+        }
+
+        return batch.events[batch.size++];
+    }
+
+    private void publish() {
+        published = next++;
+        batch = null;
+
+        for (var consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    private long slowestCursor() {
+        var min = Long.MAX_VALUE;
+        for (var consumer : consumers) {
+            min = Math.min(min, consumer.cursor);
+        }
+        return min;
+    }
+
+    private void rethrow() {
+        var e = error.get();
+        if (e == null) return;
+
+        if (e instanceof RuntimeException runtime) throw runtime;
+        if (e instanceof Error err) throw err;
+        throw new RuntimeException(e);
+    }
+
+    private enum Type {
+        BOUNDS,
+        NODE,
+        WAY,
+        RELATION,
+        FINISH
+    }
+
+    private static class Event {
+        Rect bounds;
+        OSMNode node;
+        OSMWay way;
+        OSMRelation relation;
+    }
+
+    private static class Batch {
+        final Event[] events = new Event[BATCH_SIZE];
+        Type type;
+        int size = 0;
+
+        Batch() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                events[i] = new Event();
+            }
+        }
+    }
+
+    private class Consumer implements Runnable {
+        final OSMObserver observer;
+        final Thread thread;
+        /**
+         * Whether the observer wants each type of event, indexed by ordinal
+         */
+        final boolean[] wants = new boolean[Type.values().length];
+        /**
+         * Sequence number of the last batch this observer has seen
+         */
+        volatile long cursor = -1;
+        boolean failed = false;
+
+        Consumer(OSMObserver observer) {
+            this.observer = observer;
+            this.thread = new Thread(this, "pipeline-" + observer.getClass().getSimpleName());
+            this.thread.setDaemon(true);
+
+            var interest = observer.interest();
+            wants[Type.BOUNDS.ordinal()] = true;
+            wants[Type.NODE.ordinal()] = interest.wantsNodes();
+            wants[Type.WAY.ordinal()] = interest.wantsWays();
+            wants[Type.RELATION.ordinal()] = interest.wantsRelations();
+            wants[Type.FINISH.ordinal()] = true;
+        }
+
+        @Override
+        public void run() {
+            for (long seq = 0; ; seq++) {
+                while (published < seq) {
+                    if (closed) return;
+                    LockSupport.park(this);
+                }
+
+                var batch = ring[(int) seq & MASK];
+                if (wants[batch.type.ordinal()]) {
+                    for (int i = 0; i < batch.size; i++) {
+                        dispatch(batch.type, batch.events[i]);
+                    }
+                }
+                var finished = batch.type == Type.FINISH;
+
+                cursor = seq;
+                var producer = waiting;
+                if (producer != null) LockSupport.unpark(producer);
+
+                if (finished) return;
+            }
+        }
+
+        private void dispatch(Type type, Event event) {
+            // A failed observer keeps following the ring, so it doesn't hold up the others
+            if (failed) return;
+
+            try {
+                switch (type) {
+                    case BOUNDS -> observer.onBounds(event.bounds);
+                    case NODE -> observer.onNode(event.node);
+                    case WAY -> observer.onWay(event.way);
+                    case RELATION -> observer.onRelation(event.relation);
+                    case FINISH -> observer.onFinish();
+                }
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+                failed = true;
+            }
+        }
+    }
+}
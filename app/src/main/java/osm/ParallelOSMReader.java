@@ -0,0 +1,365 @@
+package osm;
+
+import osm.elements.OSMElement;
+import osm.elements.OSMNode;
+import osm.elements.OSMRelation;
+import osm.elements.OSMWay;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Scans an OSM file on multiple threads. The input is cut into blocks that start at an element
+ * boundary, and every block is scanned by its own {@link OSMReader} on a fork-join worker. The
+ * elements found are then passed to the observers on the calling thread, in the same order as they
+ * appear in the input.
+ *
+ * <p>Ways can only be resolved once every node has been seen, and relations once every way has been
+ * seen. Blocks therefore never span two sections, and all blocks of one section are handed to the
+ * observers (which include the node and way tables) before any block of the next section is
+ * scanned.
+ *
+ * <p>When reading a {@link MappedInput}, blocks are handed to the workers as ranges of the mapped
+ * window instead of copies. Only the last part of the file, which has no room for the end sentinel,
+ * is read as a stream.
+ */
+class ParallelOSMReader {
+    private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final byte[][] SECTIONS = {
+            "<node ".getBytes(), "<way ".getBytes(), "<relation ".getBytes()
+    };
+    private static final byte[] END = "<end>".getBytes(StandardCharsets.UTF_8);
+    /**
+     * Room after the end sentinel of a copied block, so the scanner can load whole vectors there
+     */
+    private static final int PADDING = 128;
+
+    private final OSMReader reader;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final ArrayDeque<Future<List<OSMElement>>> pending = new ArrayDeque<>();
+    private final ThreadLocal<OSMReader> fragmentReaders;
+    private final int blockSize;
+    private InputStream stream;
+    private byte[] block;
+    /**
+     * The buffer the blocks are cut from, either {@link #block} or a mapped window
+     */
+    private ByteBuffer data;
+    private int len = 0;
+    private boolean eof = false;
+    private int section = 0;
+
+    ParallelOSMReader(OSMReader reader, int parallelism) {
+        this(reader, parallelism, BLOCK_SIZE);
+    }
+
+    ParallelOSMReader(OSMReader reader, int parallelism, int blockSize) {
+        this.reader = reader;
+        this.parallelism = parallelism;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        this.data = ByteBuffer.wrap(block);
+        this.pool = new ForkJoinPool(parallelism);
+        this.fragmentReaders =
+                ThreadLocal.withInitial(
+                        () -> {
+                            var fragmentReader = new OSMReader(reader.nodes(), reader.ways(), false);
+                            fragmentReader.prepare(reader);
+                            return fragmentReader;
+                        });
+    }
+
+    void parse(InputStream stream) throws Exception {
+        this.stream = stream;
+        reader.prepare();
+
+        try {
+            fill();
+
+            // Everything before the first element is the header, which holds the bounds
+            var start = findFirst();
+            if (start == -1) start = len;
+            reader.parseHeader(new ByteArrayInputStream(block, 0, start));
+            consume(start);
+            fill();
+
+            parseBlocks();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        reader.finish();
+    }
+
+    void parse(MappedInput input) throws Exception {
+        reader.prepare();
+        var window = input.remap(0);
+
+        // Not worth mapping, and the whole file would be in the tail anyway
+        if (input.remaining(0) <= blockSize + MappedInput.MARGIN) {
+            parse(input.tail(0));
+            return;
+        }
+
+        try {
+            data = window;
+            len = window.limit();
+
+            // Like the stream path, a window without elements is all header, and then the rest of
+            // the file is left to the stream
+            var pos = findFirst();
+            var mapped = pos != -1;
+            if (!mapped) pos = len;
+            var header = new byte[pos];
+            window.get(0, header);
+            reader.parseHeader(new ByteArrayInputStream(header));
+
+            while (mapped && input.remaining(pos) > blockSize + MappedInput.MARGIN) {
+                if (pos + blockSize + MappedInput.MARGIN > window.limit()) {
+                    window = input.remap(pos);
+                    data = window;
+                    len = window.limit();
+                    pos = 0;
+                }
+
+                var blockSection = sectionAt(pos);
+                var end = findLast(pos, pos + blockSize);
+                // A single element bigger than a block, which still fits in the margin
+                if (end == -1) end = findNext(pos + blockSize);
+                // Or one that doesn't, which the stream can grow its buffer for
+                if (end == -1) break;
+                end = sectionEnd(blockSection, pos, end);
+
+                barrier(blockSection);
+                submit(window, pos, end);
+                input.reportProgress(pos);
+                pos = end;
+            }
+
+            // The rest is read as a stream, which gives it an end sentinel
+            stream = input.tail(pos);
+            data = ByteBuffer.wrap(block);
+            len = 0;
+            fill();
+
+            parseBlocks();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        reader.finish();
+    }
+
+    /**
+     * Cut the rest of {@link #stream} into blocks and scan them
+     */
+    private void parseBlocks() throws Exception {
+        while (len > 0) {
+            var blockSection = sectionAt(0);
+            var end = nextBlockEnd(blockSection);
+
+            barrier(blockSection);
+
+            var fragment = Arrays.copyOf(block, end + END.length + PADDING);
+            System.arraycopy(END, 0, fragment, end, END.length);
+            submit(ByteBuffer.wrap(fragment), 0, end);
+
+            consume(end);
+            fill();
+        }
+
+        drain();
+    }
+
+    /**
+     * Make sure every element of the previous section has been seen before a block of a new section
+     * is scanned
+     */
+    private void barrier(int blockSection) throws Exception {
+        if (blockSection <= section) return;
+
+        drain();
+        reader.nodes().sort();
+        reader.ways().sort();
+        section = blockSection;
+    }
+
+    private void submit(ByteBuffer buffer, int from, int to) throws Exception {
+        if (pending.size() >= parallelism * 2) {
+            dispatch(pending.remove());
+        }
+
+        pending.add(
+                pool.submit(
+                        () -> {
+                            var elements = new ArrayList<OSMElement>();
+                            var fragmentReader = fragmentReaders.get();
+                            fragmentReader.observers().clear();
+                            fragmentReader.addObservers(
+                                    new OSMObserver() {
+                                        @Override
+                                        public void onNode(OSMNode node) {
+                                            elements.add(node);
+                                        }
+
+                                        @Override
+                                        public void onWay(OSMWay way) {
+                                            elements.add(way);
+                                        }
+
+                                        @Override
+                                        public void onRelation(OSMRelation relation) {
+                                            elements.add(relation);
+                                        }
+                                    });
+                            fragmentReader.parseFragment(buffer, from, to);
+                            return elements;
+                        }));
+    }
+
+    private void drain() throws Exception {
+        while (!pending.isEmpty()) {
+            dispatch(pending.remove());
+        }
+    }
+
+    private void dispatch(Future<List<OSMElement>> future) throws Exception {
+        List<OSMElement> elements;
+        try {
+            elements = future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+
+        for (var element : elements) {
+            if (element instanceof OSMNode node) {
+                for (var observer : reader.nodeObservers()) observer.onNode(node);
+            } else if (element instanceof OSMWay way) {
+                for (var observer : reader.wayObservers()) observer.onWay(way);
+            } else if (element instanceof OSMRelation relation) {
+                for (var observer : reader.relationObservers()) observer.onRelation(relation);
+            }
+        }
+    }
+
+    /**
+     * Find where the block starting at offset 0 should end. This is at the start of the last element
+     * in the buffer, or at the start of the first element of the next section, whichever comes first.
+     * If the whole stream is in the buffer, the block is the rest of it.
+     *
+     * @param first Section of the element at offset 0, or -1 if only the end of the file is left
+     */
+    private int nextBlockEnd(int first) throws IOException {
+        var end = len;
+
+        if (!eof) {
+            end = findLast(0, len);
+
+            // A single element bigger than the buffer, grow it and try again
+            while (end == -1 && !eof) {
+                block = Arrays.copyOf(block, block.length * 2);
+                data = ByteBuffer.wrap(block);
+                fill();
+                end = eof ? len : findLast(0, len);
+            }
+        }
+
+        return sectionEnd(first, 0, end);
+    }
+
+    /**
+     * Move the end of a block back to the first element of the next section, if there is one in it
+     *
+     * @param first Section of the element at `from`, or -1 if only the end of the file is left
+     */
+    private int sectionEnd(int first, int from, int end) {
+        // Sections only ever go forward, so there can only be a new section in this block if the
+        // last element is of a different kind than the first one.
+        if (first == -1 || first == SECTIONS.length - 1) return end;
+        if (end < len && sectionAt(end) == first) return end;
+
+        var next = indexOf(SECTIONS[first + 1], from, end);
+        if (next == -1 && first + 2 < SECTIONS.length) next = indexOf(SECTIONS[first + 2], from, end);
+
+        return next == -1 ? end : next;
+    }
+
+    private void fill() throws IOException {
+        if (eof) return;
+
+        var read = stream.readNBytes(block, len, block.length - len);
+        len += read;
+        eof = len < block.length;
+    }
+
+    private void consume(int count) {
+        System.arraycopy(block, count, block, 0, len - count);
+        len -= count;
+    }
+
+    /**
+     * @return Index into SECTIONS of the element starting at `off`, or -1 if no element starts there
+     */
+    private int sectionAt(int off) {
+        for (int i = 0; i < SECTIONS.length; i++) {
+            if (startsWith(SECTIONS[i], off)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Offset of the first element start in the buffer, or -1
+     */
+    private int findFirst() {
+        for (int i = 0; i < len; i++) {
+            if (data.get(i) == '<' && sectionAt(i) != -1) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Offset of the first element start at or after `from`, or -1
+     */
+    private int findNext(int from) {
+        for (int i = from; i < len; i++) {
+            if (data.get(i) == '<' && sectionAt(i) != -1) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Offset of the last element start in (from, to), or -1
+     */
+    private int findLast(int from, int to) {
+        for (int i = to - 1; i > from; i--) {
+            if (data.get(i) == '<' && sectionAt(i) != -1) return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == '<' && startsWith(pattern, i)) return i;
+        }
+        return -1;
+    }
+
+    private boolean startsWith(byte[] pattern, int off) {
+        if (off + pattern.length > len) return false;
+        for (int i = 0; i < pattern.length; i++) {
+            if (data.get(off + i) != pattern[i]) return false;
+        }
+        return true;
+    }
+}
@@ -82,4 +82,9 @@ public class ReaderStats implements OSMObserver {
         prevRelationCount = curRelationCount;
         update();
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE.nodes().ways().relations();
+    }
 }
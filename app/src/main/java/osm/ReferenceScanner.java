@@ -0,0 +1,314 @@
+package osm;
+
+import collections.IdSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the ids of every node that a way refers to, and of every way that is an outer member of a
+ * relation, in an uncompressed OSM file. Only these nodes and ways have to be kept to resolve ways
+ * and relations, which is usually a small part of them.
+ *
+ * <p>The file is never parsed from the start. Elements are sorted by kind, so the way and relation
+ * sections are found with a binary search, and only they are scanned, on multiple threads. The scan
+ * can run while another reader parses the nodes.
+ */
+public final class ReferenceScanner {
+    private static final int NODE = 0;
+    private static final int WAY = 1;
+    private static final int RELATION = 2;
+    private static final int END = 3;
+    private static final byte[][] KINDS = {
+            "node".getBytes(), "way".getBytes(), "relation".getBytes()
+    };
+    private static final byte[] ND_REF = "<nd ref=".getBytes();
+    private static final byte[] MEMBER = "<member ".getBytes();
+    /**
+     * Largest part of a section a single task maps
+     */
+    private static final long TASK_SIZE = MappedInput.WINDOW;
+    private static final int PROBE_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final long size;
+
+    private ReferenceScanner(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     * @param nodes Ids of the nodes that ways refer to
+     * @param ways  Ids of the ways that are outer members of relations
+     */
+    public record References(IdSet nodes, IdSet ways) {
+    }
+
+    /**
+     * Start scanning a file on a thread of its own
+     */
+    public static CompletableFuture<References> start(Path path, int parallelism) {
+        var future = new CompletableFuture<References>();
+        var thread =
+                new Thread(
+                        () -> {
+                            try {
+                                future.complete(scan(path, parallelism));
+                            } catch (Throwable e) {
+                                future.completeExceptionally(e);
+                            }
+                        },
+                        "reference-scanner");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    public static References scan(Path path, int parallelism) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ReferenceScanner(channel).scan(parallelism);
+        }
+    }
+
+    private References scan(int parallelism) throws IOException {
+        var ways = sectionStart(WAY);
+        var relations = sectionStart(RELATION);
+
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            var nodeIds = submit(pool, parallelism, ways, relations, ReferenceScanner::scanNds);
+            var wayIds = submit(pool, parallelism, relations, size, ReferenceScanner::scanMembers);
+            return new References(collect(nodeIds), collect(wayIds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Scan [from, to) of the file in parts, one task per part
+     */
+    private List<Future<IdSet>> submit(
+            ForkJoinPool pool, int parallelism, long from, long to, Scan scan) throws IOException {
+        var tasks = Math.max(parallelism, (int) ((to - from + TASK_SIZE - 1) / TASK_SIZE));
+        var step = Math.max((to - from + tasks - 1) / tasks, 1);
+
+        var futures = new ArrayList<Future<IdSet>>();
+        for (var start = from; start < to; start += step) {
+            // A tag that starts in this part may end in the next one, but never after the next '<'
+            var end = Math.min(start + step, to);
+            var mapEnd = nextTag(end);
+            var map = channel.map(FileChannel.MapMode.READ_ONLY, start, mapEnd - start);
+            var count = (int) (end - start);
+            futures.add(pool.submit(() -> scan.scan(map, count)));
+        }
+        return futures;
+    }
+
+    private static IdSet collect(List<Future<IdSet>> futures)
+            throws InterruptedException, ExecutionException {
+        var ids = new IdSet();
+        for (var future : futures) {
+            ids.addAll(future.get());
+        }
+        return ids;
+    }
+
+    /**
+     * Collect the refs of the nd tags that start in the first `count` bytes of a buffer
+     */
+    private static IdSet scanNds(MappedByteBuffer buf, int count) {
+        var ids = new IdSet();
+        var limit = Math.min(count, buf.limit() - ND_REF.length);
+
+        for (int i = 0; i < limit; i++) {
+            if (buf.get(i) != '<' || buf.get(i + 1) != 'n' || buf.get(i + 2) != 'd') continue;
+            if (!startsWith(buf, i, ND_REF)) continue;
+
+            i += ND_REF.length + 1; // and the quote
+            ids.add(parseId(buf, i));
+        }
+
+        return ids;
+    }
+
+    /**
+     * Collect the refs of the outer way members that start in the first `count` bytes of a buffer.
+     * Like {@link OSMReader}, this takes the attributes in any order.
+     */
+    private static IdSet scanMembers(MappedByteBuffer buf, int count) {
+        var ids = new IdSet();
+        var limit = Math.min(count, buf.limit() - MEMBER.length);
+
+        for (int i = 0; i < limit; i++) {
+            if (buf.get(i) != '<' || buf.get(i + 1) != 'm') continue;
+            if (!startsWith(buf, i, MEMBER)) continue;
+
+            var way = false;
+            var outer = false;
+            long id = 0;
+
+            // Each attribute is a name, '=' and a quoted value, up to the end of the tag
+            i += MEMBER.length;
+            for (byte b; i < buf.limit() && (b = buf.get(i)) != '>'; i++) {
+                if (b != '=') continue;
+
+                var value = i + 2;
+                if (value >= buf.limit()) break;
+
+                switch (buf.get(i - 1)) {
+                    case 'e' -> { // type or role
+                        if (buf.get(i - 2) == 'p') way = buf.get(value) == 'w';
+                        else outer = buf.get(value) == 'o';
+                    }
+                    case 'f' -> id = parseId(buf, value); // ref
+                    default -> {}
+                }
+
+                // Skip the value, which may contain '=' or '>'
+                var quote = buf.get(i + 1);
+                for (i = value; i < buf.limit() && buf.get(i) != quote; i++) {}
+            }
+
+            if (way && outer) ids.add(id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return The id that starts at an offset, up to the next quote
+     */
+    private static long parseId(ByteBuffer buf, int i) {
+        var negative = buf.get(i) == '-';
+        if (negative) i++;
+
+        long id = 0;
+        for (byte b; i < buf.limit() && (b = buf.get(i)) >= '0' && b <= '9'; i++) {
+            id = id * 10 + (b - '0');
+        }
+
+        return negative ? -id : id;
+    }
+
+    /**
+     * Find the first element of a kind, or of a later kind if there is none
+     *
+     * @return The offset of its start, or the size of the file if there is none
+     */
+    private long sectionStart(int kind) throws IOException {
+        long lo = 0;
+        long hi = size;
+
+        while (lo < hi) {
+            var mid = lo + (hi - lo) / 2;
+            var next = nextElement(mid);
+            if (next == -1 || kindAt(next) >= kind) hi = mid;
+            else lo = mid + 1;
+        }
+
+        var next = nextElement(lo);
+        return next == -1 ? size : next;
+    }
+
+    /**
+     * @return The offset of the first element that starts at or after an offset, or -1 if there is
+     * none
+     */
+    private long nextElement(long from) throws IOException {
+        var probe = ByteBuffer.allocate(PROBE_SIZE);
+
+        for (var pos = from; pos < size; ) {
+            probe.clear();
+            var read = channel.read(probe, pos);
+            if (read <= 0) return -1;
+
+            // The last bytes are left for the next probe, so a name is never cut in two
+            var last = pos + read >= size ? read : Math.max(read - 16, 1);
+            for (int i = 0; i < last; i++) {
+                if (probe.get(i) == '<' && kindAt(probe, i + 1, read) != END) return pos + i;
+            }
+
+            pos += last;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return The offset of the first '<' at or after an offset, or the size of the file if there is
+     * none
+     */
+    private long nextTag(long from) throws IOException {
+        var probe = ByteBuffer.allocate(PROBE_SIZE);
+
+        for (var pos = from; pos < size; ) {
+            probe.clear();
+            var read = channel.read(probe, pos);
+            if (read <= 0) break;
+
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '<') return pos + i;
+            }
+
+            pos += read;
+        }
+
+        return size;
+    }
+
+    private int kindAt(long offset) throws IOException {
+        var probe = ByteBuffer.allocate(16);
+        var read = channel.read(probe, offset);
+        return kindAt(probe, 1, Math.max(read, 0));
+    }
+
+    /**
+     * @return The kind of element whose name starts at an offset, or END if it isn't one
+     */
+    private static int kindAt(ByteBuffer buf, int off, int len) {
+        for (int kind = NODE; kind <= RELATION; kind++) {
+            var name = KINDS[kind];
+            if (off + name.length >= len) continue;
+            if (!startsWith(buf, off, name)) continue;
+
+            var after = buf.get(off + name.length);
+            if (isSpace(after) || after == '>' || after == '/') return kind;
+        }
+
+        return END;
+    }
+
+    /**
+     * @return Whether a byte is whitespace, as XML has it
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean startsWith(ByteBuffer buf, int off, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (buf.get(off + i) != pattern[i]) return false;
+        }
+        return true;
+    }
+
+    private interface Scan {
+        IdSet scan(MappedByteBuffer buf, int count);
+    }
+}
@@ -0,0 +1,51 @@
+package osm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compares 8 bytes at a time, as a long (SIMD within a register). Only needs plain Java, and can
+ * be faster than {@link VectorByteScanner} where vector registers are narrow.
+ */
+final class SwarByteScanner implements ByteScanner {
+    private static final long ONES = 0x0101_0101_0101_0101L;
+    private static final long HIGH_BITS = 0x8080_8080_8080_8080L;
+    /**
+     * Reads longs in little endian order whatever the order of the buffer, so the first byte of the
+     * buffer is the lowest byte of the long
+     */
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public int find(ByteBuffer buf, int from, byte b) {
+        var pattern = ONES * (b & 0xFF);
+
+        for (int i = from; ; i += Long.BYTES) {
+            var found = zeroBytes((long) LONGS.get(buf, i) ^ pattern);
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+    }
+
+    @Override
+    public int find(ByteBuffer buf, int from, byte a, byte b) {
+        var patternA = ONES * (a & 0xFF);
+        var patternB = ONES * (b & 0xFF);
+
+        for (int i = from; ; i += Long.BYTES) {
+            var word = (long) LONGS.get(buf, i);
+            var found = zeroBytes(word ^ patternA) | zeroBytes(word ^ patternB);
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+    }
+
+    /**
+     * @return The high bit of the lowest zero byte of a word set, and maybe some above it. A borrow
+     * can only mark a byte above a zero one, so the lowest mark is always exact.
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGH_BITS;
+    }
+}
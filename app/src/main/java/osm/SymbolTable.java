@@ -0,0 +1,113 @@
+package osm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hands out stable int codes for byte strings, so that repeated values such as tag values only have
+ * their String created once. A code is looked up straight from the bytes in the input buffer, and
+ * the bytes of every symbol are kept in one array, so a lookup of a known symbol allocates nothing.
+ *
+ * <p>Every symbol belongs to a namespace, and equal bytes in two namespaces are two symbols. Codes
+ * start at 0 and are handed out in order, so they can be used as indices into other tables.
+ *
+ * <p>Unlike String.intern(), a table is owned by a single reader and is garbage once it is done.
+ */
+public class SymbolTable {
+    private int[] slots = new int[1024]; // code + 1 of the symbol in each slot, 0 if empty
+    private byte[] bytes = new byte[16 * 1024];
+    private int bytesSize = 0;
+    private int[] offsets = new int[256];
+    private int[] lengths = new int[256];
+    private int[] namespaces = new int[256];
+    private String[] strings = new String[256];
+    private int size = 0;
+
+    /**
+     * @return The code of the bytes in [off, off + len) of the buffer, which is a new code if they
+     * haven't been seen before in this namespace
+     */
+    public int code(int namespace, ByteBuffer buf, int off, int len) {
+        var mask = slots.length - 1;
+        var slot = hash(namespace, buf, off, len) & mask;
+
+        while (slots[slot] != 0) {
+            var code = slots[slot] - 1;
+            if (equals(code, namespace, buf, off, len)) return code;
+            slot = slot + 1 & mask;
+        }
+
+        var code = add(namespace, buf, off, len);
+        slots[slot] = code + 1;
+
+        if (size * 2 > slots.length) rehash();
+
+        return code;
+    }
+
+    public String string(int code) {
+        return strings[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(int namespace, ByteBuffer buf, int off, int len) {
+        if (size == offsets.length) {
+            var capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            namespaces = Arrays.copyOf(namespaces, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+
+        if (bytesSize + len > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesSize + len));
+        }
+
+        buf.get(off, bytes, bytesSize, len);
+
+        offsets[size] = bytesSize;
+        lengths[size] = len;
+        namespaces[size] = namespace;
+        strings[size] = new String(bytes, bytesSize, len, StandardCharsets.UTF_8);
+        bytesSize += len;
+
+        return size++;
+    }
+
+    private boolean equals(int code, int namespace, ByteBuffer buf, int off, int len) {
+        if (namespaces[code] != namespace || lengths[code] != len) return false;
+
+        var offset = offsets[code];
+        for (int i = 0; i < len; i++) {
+            if (bytes[offset + i] != buf.get(off + i)) return false;
+        }
+
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        var mask = slots.length - 1;
+        var buf = ByteBuffer.wrap(bytes);
+
+        for (int code = 0; code < size; code++) {
+            var slot = hash(namespaces[code], buf, offsets[code], lengths[code]) & mask;
+            while (slots[slot] != 0) slot = slot + 1 & mask;
+            slots[slot] = code + 1;
+        }
+    }
+
+    private static int hash(int namespace, ByteBuffer buf, int off, int len) {
+        var hash = namespace;
+        for (int i = 0; i < len; i++) {
+            hash = 31 * hash + buf.get(off + i);
+        }
+
+        // Spread the bits, as the low bits of short strings are not very random
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,37 @@
+package osm;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compares as many bytes at a time as the widest vector register of the machine holds
+ */
+final class VectorByteScanner implements ByteScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int SPECIES_LENGTH = SPECIES.length();
+
+    @Override
+    public int find(ByteBuffer buf, int from, byte b) {
+        for (int i = from; ; i += SPECIES_LENGTH) {
+            int next =
+                    ByteVector.fromByteBuffer(SPECIES, buf, i, ByteOrder.nativeOrder())
+                            .eq(b)
+                            .firstTrue();
+
+            if (next != SPECIES_LENGTH) return i + next;
+        }
+    }
+
+    @Override
+    public int find(ByteBuffer buf, int from, byte a, byte b) {
+        for (int i = from; ; i += SPECIES_LENGTH) {
+            var vector = ByteVector.fromByteBuffer(SPECIES, buf, i, ByteOrder.nativeOrder());
+            int next = vector.eq(a).or(vector.eq(b)).firstTrue();
+
+            if (next != SPECIES_LENGTH) return i + next;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package osm.elements;
+
+/**
+ * Packs a coordinate into a single long, so that nodes can be stored without an object per node.
+ * Latitude and longitude are kept as fixed-point ints in units of 1e-7 degrees, which is the
+ * precision of OSM files, with the latitude in the upper half.
+ */
+public final class Coordinates {
+    /**
+     * Not a valid coordinate, used for missing nodes. Its latitude is far outside [-90, 90].
+     */
+    public static final long NONE = Long.MIN_VALUE;
+    private static final double SCALE = 1e7;
+
+    private Coordinates() {
+    }
+
+    public static long pack(double lon, double lat) {
+        return pack(toFixed(lon), toFixed(lat));
+    }
+
+    public static long pack(int lon, int lat) {
+        return (long) lat << 32 | lon & 0xFFFFFFFFL;
+    }
+
+    public static double lon(long coordinate) {
+        return fromFixed((int) coordinate);
+    }
+
+    public static double lat(long coordinate) {
+        return fromFixed((int) (coordinate >> 32));
+    }
+
+    public static int toFixed(double degrees) {
+        return (int) Math.round(degrees * SCALE);
+    }
+
+    public static double fromFixed(int fixed) {
+        return fixed / SCALE;
+    }
+}
@@ -1,6 +1,7 @@
 package osm.elements;
 
 import geometry.Rect;
+import osm.Interest;
 import osm.OSMObserver;
 
 import java.io.Serializable;
@@ -19,4 +20,9 @@ public class OSMBounds implements OSMObserver, Serializable {
     public void onBounds(Rect bounds) {
         rect = bounds;
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE;
+    }
 }
@@ -1,9 +1,43 @@
 package osm.elements;
 
 import collections.Entity;
+import osm.Classification;
 
 import java.util.List;
 
 public abstract class OSMElement extends Entity {
+    private transient Classification classification;
+    private transient boolean classified = false;
+
     public abstract List<OSMTag> tags();
+
+    /**
+     * @return The classification of the tags, which is only worked out the first time it is asked
+     * for. The tags must not change afterwards, unless the element is initialized again.
+     */
+    public Classification classification() {
+        if (classification == null) classification = new Classification();
+        if (!classified) {
+            classification.classify(tags());
+            classified = true;
+        }
+        return classification;
+    }
+
+    /**
+     * Must be called when the element is initialized again, so that it is classified again
+     */
+    protected void declassify() {
+        classified = false;
+    }
+
+    /**
+     * Share the work of classifying another element with the same tags. As this classifies the
+     * copy up front, threads that share the copy never classify it at the same time.
+     */
+    protected void copyClassification(OSMElement other) {
+        if (classification == null) classification = new Classification();
+        classification.copyFrom(other.classification());
+        classified = true;
+    }
 }
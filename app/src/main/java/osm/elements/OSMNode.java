@@ -6,32 +6,42 @@ import java.util.List;
 
 public final class OSMNode extends OSMElement implements Serializable {
     private final List<OSMTag> tags = new ArrayList<>();
-    private SlimOSMNode slim;
+    private long id;
+    private double lon;
+    private double lat;
 
     public void init(long id, double lon, double lat) {
-        this.slim = new SlimOSMNode(id, lon, lat);
+        this.id = id;
+        this.lon = lon;
+        this.lat = lat;
         tags.clear();
+        declassify();
+    }
+
+    /**
+     * Make this node a copy of another one, so that the other one can be reused
+     */
+    public void copyFrom(OSMNode other) {
+        init(other.id, other.lon, other.lat);
+        tags.addAll(other.tags);
+        copyClassification(other);
     }
 
     @Override
     public long id() {
-        return slim.id();
+        return id;
     }
 
     public double lon() {
-        return slim.lon();
+        return lon;
     }
 
     public double lat() {
-        return slim.lat();
+        return lat;
     }
 
     @Override
     public List<OSMTag> tags() {
         return tags;
     }
-
-    public SlimOSMNode slim() {
-        return slim;
-    }
 }
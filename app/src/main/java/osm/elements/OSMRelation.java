@@ -3,22 +3,39 @@ package osm.elements;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A relation as it is passed to observers. Parsers reuse the same instance for every relation, so
+ * observers must use {@link #slim()} to get a copy they can keep.
+ */
 public final class OSMRelation extends OSMElement {
     private final List<OSMTag> tags = new ArrayList<>();
-    private SlimOSMRelation slim;
+    private final List<SlimOSMWay> ways = new ArrayList<>();
+    private long id;
 
     public void init(long id) {
-        this.slim = new SlimOSMRelation(id, new ArrayList<>());
+        this.id = id;
+        ways.clear();
         tags.clear();
+        declassify();
+    }
+
+    /**
+     * Make this relation a copy of another one, so that the other one can be reused
+     */
+    public void copyFrom(OSMRelation other) {
+        init(other.id);
+        ways.addAll(other.ways);
+        tags.addAll(other.tags);
+        copyClassification(other);
     }
 
     @Override
     public long id() {
-        return slim.id();
+        return id;
     }
 
     public List<SlimOSMWay> ways() {
-        return slim.ways();
+        return ways;
     }
 
     @Override
@@ -26,7 +43,10 @@ public final class OSMRelation extends OSMElement {
         return tags;
     }
 
+    /**
+     * @return A new copy of the relation that can be kept
+     */
     public SlimOSMRelation slim() {
-        return slim;
+        return new SlimOSMRelation(id, new ArrayList<>(ways));
     }
 }
@@ -1,6 +1,8 @@
 package osm.elements;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public record OSMTag(Key key, String value) implements Serializable {
     public static OSMTag from(String key, String value) {
@@ -11,63 +13,86 @@ public record OSMTag(Key key, String value) implements Serializable {
     }
 
     public enum Key {
-        BUILDING,
-        HIGHWAY,
-        WATERWAY,
-        CYCLEWAY,
-        CYCLEWAY_LEFT,
-        CYCLEWAY_RIGHT,
-        CYCLEWAY_BOTH,
-        FOOTWAY,
-        SERVICE,
-        NATURAL,
-        LANDUSE,
-        AMENITY,
-        LEISURE,
-        BARRIER,
-        TOURISM,
-        MAN_MADE,
-        PLACE,
-        TYPE,
-        NAME,
-        JUNCTION,
-        ONEWAY,
-        MAXSPEED,
-        STREET,
-        HOUSENUMBER,
-        CITY,
-        POSTCODE;
+        BUILDING("building"),
+        HIGHWAY("highway"),
+        WATERWAY("waterway"),
+        CYCLEWAY("cycleway"),
+        CYCLEWAY_LEFT("cycleway:left"),
+        CYCLEWAY_RIGHT("cycleway:right"),
+        CYCLEWAY_BOTH("cycleway:both"),
+        FOOTWAY("footway"),
+        SERVICE("service"),
+        NATURAL("natural"),
+        LANDUSE("landuse"),
+        AMENITY("amenity"),
+        LEISURE("leisure"),
+        BARRIER("barrier"),
+        TOURISM("tourism"),
+        MAN_MADE("man_made"),
+        PLACE("place"),
+        TYPE("type"),
+        NAME("name"),
+        JUNCTION("junction"),
+        ONEWAY("oneway"),
+        MAXSPEED("maxspeed"),
+        STREET("addr:street"),
+        HOUSENUMBER("addr:housenumber"),
+        CITY("addr:city"),
+        POSTCODE("addr:postcode");
+
+        // Perfect hash of the keys, see hash()
+        private static final int HASH_SIZE = 64;
+        private static final Key[] BY_HASH = new Key[HASH_SIZE];
+
+        static {
+            for (var key : values()) {
+                var hash = hash(ByteBuffer.wrap(key.bytes), 0, key.bytes.length);
+                if (BY_HASH[hash] != null) {
+                    throw new IllegalStateException(key + " collides with " + BY_HASH[hash]);
+                }
+                BY_HASH[hash] = key;
+            }
+        }
+
+        private final byte[] bytes;
+
+        Key(String key) {
+            this.bytes = key.getBytes(StandardCharsets.UTF_8);
+        }
 
         public static Key from(String key) {
-            return switch (key) {
-                case "building" -> BUILDING;
-                case "highway" -> HIGHWAY;
-                case "waterway" -> WATERWAY;
-                case "cycleway" -> CYCLEWAY;
-                case "cycleway:left" -> CYCLEWAY_LEFT;
-                case "cycleway:right" -> CYCLEWAY_RIGHT;
-                case "cycleway:both" -> CYCLEWAY_BOTH;
-                case "footway" -> FOOTWAY;
-                case "service" -> SERVICE;
-                case "natural" -> NATURAL;
-                case "landuse" -> LANDUSE;
-                case "amenity" -> AMENITY;
-                case "leisure" -> LEISURE;
-                case "barrier" -> BARRIER;
-                case "tourism" -> TOURISM;
-                case "man_made" -> MAN_MADE;
-                case "place" -> PLACE;
-                case "type" -> TYPE;
-                case "name" -> NAME;
-                case "junction" -> JUNCTION;
-                case "oneway" -> ONEWAY;
-                case "maxspeed" -> MAXSPEED;
-                case "addr:street" -> STREET;
-                case "addr:housenumber" -> HOUSENUMBER;
-                case "addr:city" -> CITY;
-                case "addr:postcode" -> POSTCODE;
-                default -> null;
-            };
+            var bytes = key.getBytes(StandardCharsets.UTF_8);
+            return from(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+
+        /**
+         * Match a key against its raw UTF-8 bytes, without creating a String
+         *
+         * @return The key, or null if it is not one we know
+         */
+        public static Key from(ByteBuffer buf, int off, int len) {
+            if (len == 0) return null;
+
+            var key = BY_HASH[hash(buf, off, len)];
+            if (key == null || key.bytes.length != len) return null;
+
+            for (int i = 0; i < len; i++) {
+                if (buf.get(off + i) != key.bytes[i]) return null;
+            }
+
+            return key;
+        }
+
+        /**
+         * A hash that happens to have no collisions among the known keys, found by trying small
+         * multipliers for the length and the first, last and middle byte.
+         */
+        private static int hash(ByteBuffer buf, int off, int len) {
+            var first = buf.get(off);
+            var last = buf.get(off + len - 1);
+            var middle = buf.get(off + (len >> 1));
+
+            return len + 5 * (first + last) + 7 * middle & HASH_SIZE - 1;
         }
     }
 }
@@ -1,28 +1,78 @@
 package osm.elements;
 
+import collections.lists.LongList;
+
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A way as it is passed to observers. Parsers reuse the same instance for every way, so the
+ * coordinates are kept in a buffer that is reused too. Observers read them with
+ * {@link #nodeCount()} and {@link #coordinate(int)}, and only ask for a copy with
+ * {@link #coordinates()} or {@link #slim()} if they keep it.
+ */
 public final class OSMWay extends OSMElement {
     private final List<OSMTag> tags = new ArrayList<>();
-    private SlimOSMWay slim;
+    private final LongList coordinates = new LongList();
+    private long id;
 
     public void init(long id) {
-        this.slim = new SlimOSMWay(id, null);
+        this.id = id;
+        coordinates.limit(0);
         tags.clear();
+        declassify();
+    }
+
+    /**
+     * Make this way a copy of another one, so that the other one can be reused
+     */
+    public void copyFrom(OSMWay other) {
+        init(other.id);
+        coordinates.extend(other.coordinates);
+        tags.addAll(other.tags);
+        copyClassification(other);
     }
 
     @Override
     public long id() {
-        return slim.id();
+        return id;
+    }
+
+    public int nodeCount() {
+        return coordinates.size();
+    }
+
+    /**
+     * @return The {@link Coordinates packed coordinates} of the i'th node of the way
+     */
+    public long coordinate(int i) {
+        return coordinates.get(i);
+    }
+
+    public double nodeLon(int i) {
+        return Coordinates.lon(coordinates.get(i));
+    }
+
+    public double nodeLat(int i) {
+        return Coordinates.lat(coordinates.get(i));
+    }
+
+    public void addCoordinate(long coordinate) {
+        coordinates.add(coordinate);
     }
 
-    public SlimOSMNode[] nodes() {
-        return slim.nodes();
+    /**
+     * @return A copy of the {@link Coordinates packed coordinates} of the nodes of the way
+     */
+    public long[] coordinates() {
+        return coordinates.toArray();
     }
 
-    public void setNodes(SlimOSMNode[] nodes) {
-        slim.setNodes(nodes);
+    public void setCoordinates(long[] coordinates) {
+        this.coordinates.limit(0);
+        for (var coordinate : coordinates) {
+            this.coordinates.add(coordinate);
+        }
     }
 
     @Override
@@ -30,7 +80,10 @@ public final class OSMWay extends OSMElement {
         return tags;
     }
 
+    /**
+     * @return A new copy of the way that can be kept
+     */
     public SlimOSMWay slim() {
-        return slim;
+        return new SlimOSMWay(id, coordinates.toArray());
     }
 }
@@ -4,11 +4,11 @@ import collections.Entity;
 
 public final class SlimOSMWay extends Entity {
     private final long id;
-    private SlimOSMNode[] nodes;
+    private final long[] coordinates;
 
-    public SlimOSMWay(long id, SlimOSMNode[] nodes) {
+    public SlimOSMWay(long id, long[] coordinates) {
         this.id = id;
-        this.nodes = nodes;
+        this.coordinates = coordinates;
     }
 
     @Override
@@ -16,11 +16,10 @@ public final class SlimOSMWay extends Entity {
         return id;
     }
 
-    public SlimOSMNode[] nodes() {
-        return nodes;
-    }
-
-    void setNodes(SlimOSMNode[] nodes) {
-        this.nodes = nodes;
+    /**
+     * @return The {@link Coordinates packed coordinates} of the nodes of the way
+     */
+    public long[] coordinates() {
+        return coordinates;
     }
 }
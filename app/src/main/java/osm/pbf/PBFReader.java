@@ -0,0 +1,685 @@
+package osm.pbf;
+
+import geometry.Rect;
+import osm.Clip;
+import osm.Interest;
+import osm.OSMObserver;
+import osm.OSMParser;
+import osm.SymbolTable;
+import osm.elements.*;
+import osm.tables.ArrayNodeTable;
+import osm.tables.NodeTable;
+import osm.tables.WayTable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads OSM PBF files and passes the elements to observers, just like {@link osm.OSMReader} does for
+ * XML files.
+ *
+ * <p>A PBF file is a sequence of independently compressed blobs. Data blobs are inflated and decoded
+ * on a pool of workers, and the decoded elements are passed to the observers on the calling thread
+ * in the order they appear in the file. References from ways to nodes and from relations to ways are
+ * resolved on the calling thread, when every earlier element has been seen.
+ *
+ * <p>Workers skip what no observer wants, see {@link #prepare()}, and find the tags of an element
+ * in the strings of its block. The calling thread looks their values up in a table of its own, so
+ * every tag is only created once.
+ *
+ * <p>Files without a bounding box get the box around their nodes. Observers need the bounds before
+ * any element, so the blobs of nodes are held back, compressed, until the first other element, and
+ * are decoded again once the bounds are known.
+ *
+ * @see <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>
+ */
+public class PBFReader implements OSMParser {
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    private static final Set<String> SUPPORTED_FEATURES = Set.of("OsmSchema-V0.6", "DenseNodes");
+    private static final int MEMBER_WAY = 1;
+    private static final byte[] OUTER = "outer".getBytes(StandardCharsets.UTF_8);
+    private static final OSMTag.Key[] KEYS = OSMTag.Key.values();
+    private static final long[] NO_REFS = new long[0];
+
+    private final List<OSMObserver> observers = new ArrayList<>();
+    private final NodeTable nodes;
+    private final WayTable ways = new WayTable();
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final SymbolTable symbols = new SymbolTable();
+    /**
+     * Tags by their code in the symbol table
+     */
+    private final List<OSMTag> tags = new ArrayList<>();
+    // What the observers need, see prepare()
+    private List<OSMObserver> nodeObservers;
+    private List<OSMObserver> wayObservers;
+    private List<OSMObserver> relationObservers;
+    private Interest interest = Interest.ALL;
+    private boolean nodeTags;
+    private boolean wayTags;
+    private boolean relationTags;
+    private int parallelism = 1;
+    private Clip clip;
+    /**
+     * Blobs of nodes that are held back until the bounds are known, or null if they are
+     */
+    private List<byte[]> held;
+    private double minLat, minLon, maxLat, maxLon;
+
+    /**
+     * A data blob, and the elements that are being decoded from it
+     */
+    private record Pending(byte[] blob, Future<Block> decoded) {
+    }
+
+    public PBFReader() {
+        this(new ArrayNodeTable());
+    }
+
+    /**
+     * @param nodes Where the nodes are kept until the ways have been read
+     */
+    public PBFReader(NodeTable nodes) {
+        this.nodes = nodes;
+        addObservers(nodes, ways);
+    }
+
+    @Override
+    public void addObservers(OSMObserver... observers) {
+        this.observers.addAll(Arrays.asList(observers));
+    }
+
+    @Override
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public void setClip(Rect box) {
+        clip = box == null ? null : new Clip(box);
+    }
+
+    /**
+     * Work out what the observers need, just like {@link osm.OSMReader} does, so that the workers can
+     * skip the rest. The node and way tables are only fed if another observer needs the coordinates
+     * or the relation members they resolve, or to tell which ways and relations are in the clip box.
+     */
+    private void prepare() {
+        var others = observers.stream().filter(o -> o != nodes && o != ways).toList();
+        var wanted = Interest.union(others);
+        var needWays = wanted.wantsMembers() || clip != null && wanted.wantsRelations();
+        var needNodes = wanted.wantsGeometry() || needWays || clip != null && wanted.wantsWays();
+
+        nodeObservers =
+                observers.stream()
+                        .filter(o -> o == nodes ? needNodes : o != ways && o.interest().wantsNodes())
+                        .toList();
+        wayObservers =
+                observers.stream()
+                        .filter(o -> o == ways ? needWays : o != nodes && o.interest().wantsWays())
+                        .toList();
+        relationObservers = others.stream().filter(o -> o.interest().wantsRelations()).toList();
+
+        // Tags are only decoded for kinds of elements where someone looks at them
+        nodeTags = Interest.union(withoutTables(nodeObservers)).wantsTags();
+        wayTags = Interest.union(withoutTables(wayObservers)).wantsTags();
+        relationTags = Interest.union(relationObservers).wantsTags();
+
+        interest =
+                Interest.union(nodeObservers)
+                        .union(Interest.union(wayObservers))
+                        .union(Interest.union(relationObservers));
+        if (needNodes) interest = interest.geometry();
+        if (needWays) interest = interest.members();
+    }
+
+    private List<OSMObserver> withoutTables(List<OSMObserver> list) {
+        return list.stream().filter(o -> o != nodes && o != ways).toList();
+    }
+
+    @Override
+    public void parse(InputStream stream) throws Exception {
+        prepare();
+
+        var in = new DataInputStream(stream);
+        var pool = new ForkJoinPool(parallelism);
+
+        try {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (headerSize > MAX_HEADER_SIZE) throw new IOException("blob header too big");
+
+                var header = new ProtoReader(readFully(in, headerSize));
+                String type = null;
+                var dataSize = 0;
+                while (header.hasNext()) {
+                    switch (header.next()) {
+                        case 1 -> type = header.string();
+                        case 3 -> dataSize = header.int32();
+                        default -> header.skip();
+                    }
+                }
+
+                if (dataSize > MAX_BLOB_SIZE) throw new IOException("blob too big");
+
+                var blob = readFully(in, dataSize);
+
+                switch (type == null ? "" : type) {
+                    case "OSMHeader" -> parseHeader(inflate(blob));
+                    case "OSMData" -> {
+                        if (pending.size() >= parallelism * 2) dispatch(pending.remove(), pool);
+                        pending.add(new Pending(blob, pool.submit(() -> decodeBlock(inflate(blob)))));
+                    }
+                    default -> {
+                        // Unknown blobs must be skipped
+                    }
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                dispatch(pending.remove(), pool);
+            }
+            if (held != null) release(pool);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (var observer : observers) {
+            observer.onFinish();
+        }
+    }
+
+    private static byte[] readFully(DataInputStream in, int size) throws IOException {
+        var bytes = in.readNBytes(size);
+        if (bytes.length != size) throw new EOFException("truncated PBF file");
+        return bytes;
+    }
+
+    private static byte[] inflate(byte[] blob) throws IOException {
+        var reader = new ProtoReader(blob);
+        byte[] raw = null;
+        byte[] zlib = null;
+        var rawSize = 0;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case 1 -> raw = reader.bytes();
+                case 2 -> rawSize = reader.int32();
+                case 3 -> zlib = reader.bytes();
+                default -> throw new IOException("unsupported blob compression");
+            }
+        }
+
+        if (raw != null) return raw;
+        if (zlib == null) throw new IOException("empty blob");
+
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            var data = new byte[rawSize];
+            var n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                n += inflater.inflate(data, n, rawSize - n);
+            }
+            if (n != rawSize) throw new IOException("blob is smaller than its declared size");
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void parseHeader(byte[] data) throws IOException {
+        var reader = new ProtoReader(data);
+        Rect bounds = null;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case 1 -> {
+                    var bbox = reader.message();
+                    double left = 0, right = 0, top = 0, bottom = 0;
+                    while (bbox.hasNext()) {
+                        switch (bbox.next()) {
+                            case 1 -> left = bbox.sint64() * 1e-9;
+                            case 2 -> right = bbox.sint64() * 1e-9;
+                            case 3 -> top = bbox.sint64() * 1e-9;
+                            case 4 -> bottom = bbox.sint64() * 1e-9;
+                            default -> bbox.skip();
+                        }
+                    }
+                    bounds = new Rect((float) bottom, (float) left, (float) top, (float) right);
+                }
+                case 4 -> {
+                    var feature = reader.string();
+                    if (!SUPPORTED_FEATURES.contains(feature)) {
+                        throw new IOException("unsupported PBF feature " + feature);
+                    }
+                }
+                default -> reader.skip();
+            }
+        }
+
+        if (bounds == null) {
+            held = new ArrayList<>();
+            minLat = minLon = Double.POSITIVE_INFINITY;
+            maxLat = maxLon = Double.NEGATIVE_INFINITY;
+            return;
+        }
+
+        onBounds(bounds);
+    }
+
+    private void onBounds(Rect bounds) {
+        if (clip != null) bounds = clip.bounds(bounds);
+
+        for (var observer : observers) {
+            observer.onBounds(bounds);
+        }
+    }
+
+    private static Block get(Future<Block> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void dispatch(Pending pending, ForkJoinPool pool) throws Exception {
+        var block = get(pending.decoded());
+
+        if (held != null) {
+            for (var decoded : block.decoded) {
+                if (decoded.element() instanceof OSMNode node) {
+                    minLat = Math.min(minLat, node.lat());
+                    minLon = Math.min(minLon, node.lon());
+                    maxLat = Math.max(maxLat, node.lat());
+                    maxLon = Math.max(maxLon, node.lon());
+                }
+            }
+
+            if (block.onlyNodes) {
+                held.add(pending.blob());
+                return;
+            }
+
+            release(pool);
+        }
+
+        dispatch(block);
+    }
+
+    /**
+     * Pass the bounds of the nodes seen so far to the observers, and then the nodes that were held
+     * back until they were known
+     */
+    private void release(ForkJoinPool pool) throws Exception {
+        if (minLat > maxLat) throw new IOException("PBF file has no bounding box and no nodes");
+
+        var blobs = held;
+        held = null;
+        onBounds(new Rect((float) minLat, (float) minLon, (float) maxLat, (float) maxLon));
+
+        var decoding = new ArrayDeque<Future<Block>>();
+        for (var blob : blobs) {
+            if (decoding.size() >= parallelism * 2) dispatch(get(decoding.remove()));
+            decoding.add(pool.submit(() -> decodeBlock(inflate(blob))));
+        }
+        while (!decoding.isEmpty()) dispatch(get(decoding.remove()));
+    }
+
+    private void dispatch(Block block) {
+        for (var decoded : block.decoded) {
+            var element = decoded.element();
+            addTags(element, block.strings, decoded.tags());
+
+            if (element instanceof OSMNode node) {
+                if (clip != null && !clip.keeps(node.lon(), node.lat())) continue;
+
+                for (var observer : nodeObservers) observer.onNode(node);
+            } else if (element instanceof OSMWay way) {
+                for (var ref : decoded.refs()) {
+                    var coordinate = nodes.get(ref);
+                    if (coordinate != Coordinates.NONE) way.addCoordinate(coordinate);
+                }
+                if (clip != null && !clip.keeps(way)) continue;
+
+                for (var observer : wayObservers) observer.onWay(way);
+            } else if (element instanceof OSMRelation relation) {
+                for (var ref : decoded.refs()) {
+                    var way = ways.get(ref);
+                    if (way != null) relation.ways().add(way);
+                }
+                if (clip != null && !clip.keeps(relation)) continue;
+
+                for (var observer : relationObservers) observer.onRelation(relation);
+            }
+        }
+    }
+
+    /**
+     * @param pairs Ordinals of keys and indices of values in the strings of the block, see {@link
+     *              Block#tags}
+     */
+    private void addTags(OSMElement element, StringTable strings, int[] pairs) {
+        if (pairs == null) return;
+
+        for (int i = 0; i < pairs.length; i += 2) {
+            var key = pairs[i];
+            var value = pairs[i + 1];
+
+            // The same tag is shared by every element that has it
+            var code = symbols.code(key, strings.data, strings.offsets[value], strings.lengths[value]);
+            if (code == tags.size()) tags.add(new OSMTag(KEYS[key], symbols.string(code)));
+
+            element.tags().add(tags.get(code));
+        }
+    }
+
+    /**
+     * Decode a PrimitiveBlock. Runs on a worker, so it must not touch any shared state other than
+     * what {@link #prepare()} worked out.
+     */
+    private Block decodeBlock(byte[] data) {
+        var reader = new ProtoReader(data);
+        var groups = new ArrayList<ProtoReader>();
+        StringTable strings = null;
+        var block = new Block();
+
+        // Granularity and offsets may come after the groups, so read those first
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case 1 -> strings = new StringTable(reader.message());
+                case 2 -> groups.add(reader.message());
+                case 17 -> block.granularity = reader.int32();
+                case 19 -> block.latOffset = reader.varint();
+                case 20 -> block.lonOffset = reader.varint();
+                default -> reader.skip();
+            }
+        }
+
+        block.strings = strings;
+
+        for (var group : groups) {
+            while (group.hasNext()) {
+                switch (group.next()) {
+                    case 1 -> block.decodeNode(group.message());
+                    case 2 -> block.decodeDenseNodes(group.message());
+                    case 3 -> block.decodeWay(group.message());
+                    case 4 -> block.decodeRelation(group.message());
+                    default -> group.skip();
+                }
+            }
+        }
+
+        return block;
+    }
+
+    /**
+     * An element decoded by a worker, and the ids of the elements it references. For ways these are
+     * node ids, for relations the ids of their outer ways. Its tags are added by the calling thread.
+     *
+     * @param tags See {@link Block#tags}
+     */
+    private record Decoded(OSMElement element, long[] refs, int[] tags) {
+    }
+
+    /**
+     * Strings of a single block, which are left in the block's bytes. Tag keys are looked up once per
+     * block instead of once per tag.
+     */
+    private static class StringTable {
+        final ByteBuffer data;
+        int[] offsets = new int[256];
+        int[] lengths = new int[256];
+        private final OSMTag.Key[] keys;
+        private final boolean[] resolved;
+
+        StringTable(ProtoReader reader) {
+            data = ByteBuffer.wrap(reader.array());
+
+            var size = 0;
+            while (reader.hasNext()) {
+                if (reader.next() != 1) {
+                    reader.skip();
+                    continue;
+                }
+
+                var string = reader.message();
+                if (size == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, size * 2);
+                    lengths = Arrays.copyOf(lengths, size * 2);
+                }
+                offsets[size] = string.position();
+                lengths[size] = string.remaining();
+                size++;
+            }
+
+            keys = new OSMTag.Key[size];
+            resolved = new boolean[size];
+        }
+
+        OSMTag.Key key(int i) {
+            if (!resolved[i]) {
+                keys[i] = OSMTag.Key.from(data, offsets[i], lengths[i]);
+                resolved[i] = true;
+            }
+            return keys[i];
+        }
+
+        boolean equals(int i, byte[] bytes) {
+            return lengths[i] == bytes.length
+                    && Arrays.equals(
+                            data.array(), offsets[i], offsets[i] + lengths[i], bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * The elements decoded from a PrimitiveBlock
+     */
+    private class Block {
+        final List<Decoded> decoded = new ArrayList<>();
+        StringTable strings;
+        /**
+         * Whether the block only has nodes, including the elements that were skipped
+         */
+        boolean onlyNodes = true;
+        int granularity = 100;
+        long latOffset = 0;
+        long lonOffset = 0;
+        long[] refs = new long[256];
+        int[] pairs = new int[32];
+
+        double lat(long lat) {
+            return 1e-9 * (latOffset + granularity * lat);
+        }
+
+        double lon(long lon) {
+            return 1e-9 * (lonOffset + granularity * lon);
+        }
+
+        /**
+         * @return The ordinal of the key and the index of the value of each wanted tag, one after the
+         * other, or null if there are none
+         */
+        int[] tags(ProtoReader keys, ProtoReader values) {
+            if (keys == null || values == null) return null;
+
+            var count = 0;
+            while (keys.hasNext()) {
+                var key = strings.key(keys.int32());
+                var value = values.int32();
+                count = addPair(count, key, value);
+            }
+
+            return count == 0 ? null : Arrays.copyOf(pairs, count);
+        }
+
+        int addPair(int count, OSMTag.Key key, int value) {
+            if (key == null || !interest.wants(key)) return count;
+
+            if (count == pairs.length) pairs = Arrays.copyOf(pairs, count * 2);
+            pairs[count++] = key.ordinal();
+            pairs[count++] = value;
+            return count;
+        }
+
+        long[] copyRefs(int count) {
+            return count == 0 ? NO_REFS : Arrays.copyOf(refs, count);
+        }
+
+        void decodeNode(ProtoReader reader) {
+            long id = 0, lat = 0, lon = 0;
+            ProtoReader keys = null, values = null;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case 1 -> id = reader.sint64();
+                    case 2 -> keys = reader.message();
+                    case 3 -> values = reader.message();
+                    case 8 -> lat = reader.sint64();
+                    case 9 -> lon = reader.sint64();
+                    default -> reader.skip();
+                }
+            }
+
+            var node = new OSMNode();
+            node.init(id, lon(lon), lat(lat));
+            decoded.add(new Decoded(node, null, nodeTags ? tags(keys, values) : null));
+        }
+
+        void decodeDenseNodes(ProtoReader reader) {
+            ProtoReader ids = null, lats = null, lons = null, keysVals = null;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case 1 -> ids = reader.message();
+                    case 8 -> lats = reader.message();
+                    case 9 -> lons = reader.message();
+                    case 10 -> keysVals = reader.message();
+                    default -> reader.skip();
+                }
+            }
+
+            if (ids == null || lats == null || lons == null) return;
+            if (!nodeTags) keysVals = null;
+
+            // Everything is delta coded
+            long id = 0, lat = 0, lon = 0;
+            while (ids.hasNext()) {
+                id += ids.sint64();
+                lat += lats.sint64();
+                lon += lons.sint64();
+
+                var node = new OSMNode();
+                node.init(id, lon(lon), lat(lat));
+
+                // Tags are stored as key, value pairs with a 0 after the tags of each node
+                var count = 0;
+                if (keysVals != null) {
+                    while (keysVals.hasNext()) {
+                        var k = keysVals.int32();
+                        if (k == 0) break;
+                        count = addPair(count, strings.key(k), keysVals.int32());
+                    }
+                }
+
+                decoded.add(new Decoded(node, null, count == 0 ? null : Arrays.copyOf(pairs, count)));
+            }
+        }
+
+        void decodeWay(ProtoReader reader) {
+            onlyNodes = false;
+            if (!interest.wantsWays()) return;
+
+            long id = 0;
+            ProtoReader keys = null, values = null, nodeRefs = null;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case 1 -> id = reader.varint();
+                    case 2 -> keys = reader.message();
+                    case 3 -> values = reader.message();
+                    case 8 -> nodeRefs = reader.message();
+                    default -> reader.skip();
+                }
+            }
+
+            if (!interest.wantsGeometry()) nodeRefs = null;
+
+            var count = 0;
+            long ref = 0;
+            while (nodeRefs != null && nodeRefs.hasNext()) {
+                ref += nodeRefs.sint64();
+                if (count == refs.length) refs = Arrays.copyOf(refs, count * 2);
+                refs[count++] = ref;
+            }
+
+            var way = new OSMWay();
+            way.init(id);
+            decoded.add(new Decoded(way, copyRefs(count), wayTags ? tags(keys, values) : null));
+        }
+
+        void decodeRelation(ProtoReader reader) {
+            onlyNodes = false;
+            if (!interest.wantsRelations()) return;
+
+            long id = 0;
+            ProtoReader keys = null, values = null, roles = null, memberIds = null, types = null;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case 1 -> id = reader.varint();
+                    case 2 -> keys = reader.message();
+                    case 3 -> values = reader.message();
+                    case 8 -> roles = reader.message();
+                    case 9 -> memberIds = reader.message();
+                    case 10 -> types = reader.message();
+                    default -> reader.skip();
+                }
+            }
+
+            if (!interest.wantsMembers()) memberIds = null;
+
+            var count = 0;
+            long ref = 0;
+            while (memberIds != null && memberIds.hasNext()) {
+                ref += memberIds.sint64();
+                var role = roles.int32();
+                var type = types.int32();
+
+                // Only outer ways are used, see OSMReader.parseMember
+                if (type != MEMBER_WAY || !strings.equals(role, OUTER)) continue;
+
+                if (count == refs.length) refs = Arrays.copyOf(refs, count * 2);
+                refs[count++] = ref;
+            }
+
+            var relation = new OSMRelation();
+            relation.init(id);
+            decoded.add(new Decoded(relation, copyRefs(count), relationTags ? tags(keys, values) : null));
+        }
+    }
+}
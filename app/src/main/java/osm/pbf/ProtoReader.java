@@ -0,0 +1,122 @@
+package osm.pbf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal reader for the protocol buffer wire format. Only what is needed to decode OSM PBF files is
+ * supported: varints, zigzag encoded varints, length-delimited fields and packed repeated fields.
+ * Nested messages and packed fields are returned as new readers over the same array, so nothing is
+ * copied.
+ */
+final class ProtoReader {
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED32 = 5;
+
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+    private int wireType;
+
+    ProtoReader(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    ProtoReader(byte[] buf, int off, int len) {
+        this.buf = buf;
+        this.pos = off;
+        this.limit = off + len;
+    }
+
+    boolean hasNext() {
+        return pos < limit;
+    }
+
+    /**
+     * Read the key of the next field
+     *
+     * @return Field number of the next field
+     */
+    int next() {
+        var key = (int) varint();
+        wireType = key & 0x7;
+        return key >>> 3;
+    }
+
+    long varint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            var b = buf[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return result;
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+    int int32() {
+        return (int) varint();
+    }
+
+    long sint64() {
+        var n = varint();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * @return Reader over the contents of a length-delimited field, i.e. a nested message or a packed
+     * repeated field
+     */
+    ProtoReader message() {
+        var len = (int) varint();
+        var reader = new ProtoReader(buf, pos, len);
+        pos += len;
+        return reader;
+    }
+
+    /**
+     * @return The array that is read, which readers of nested messages share
+     */
+    byte[] array() {
+        return buf;
+    }
+
+    /**
+     * @return Offset in the array of the next byte to read
+     */
+    int position() {
+        return pos;
+    }
+
+    int remaining() {
+        return limit - pos;
+    }
+
+    byte[] bytes() {
+        var len = (int) varint();
+        var bytes = new byte[len];
+        System.arraycopy(buf, pos, bytes, 0, len);
+        pos += len;
+        return bytes;
+    }
+
+    String string() {
+        var len = (int) varint();
+        var string = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return string;
+    }
+
+    /**
+     * Skip the value of the field whose key was just read
+     */
+    void skip() {
+        switch (wireType) {
+            case VARINT -> varint();
+            case FIXED64 -> pos += 8;
+            case LENGTH_DELIMITED -> pos += (int) varint();
+            case FIXED32 -> pos += 4;
+            default -> throw new IllegalStateException("unsupported wire type " + wireType);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package osm.tables;
+
+import osm.elements.Coordinates;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every node on the heap. Ids and {@link Coordinates packed coordinates} are kept in two
+ * primitive arrays, so a node costs 16 bytes and lookups allocate nothing.
+ *
+ * <p>Nodes are usually added in id order, in which case sorting is free. Otherwise the arrays are
+ * sorted on the first lookup, or when {@link #sort()} is called.
+ */
+public class ArrayNodeTable implements NodeTable {
+    public static final int BYTES_PER_NODE = 16;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private long[] ids = new long[1024];
+    private long[] coordinates = new long[1024];
+    private int n = 0;
+    private boolean isSorted = true;
+
+    @Override
+    public void put(long id, long coordinate) {
+        if (n == ids.length) {
+            ids = Arrays.copyOf(ids, n + (n >> 1));
+            coordinates = Arrays.copyOf(coordinates, ids.length);
+        }
+
+        if (n > 0 && ids[n - 1] > id) isSorted = false;
+
+        ids[n] = id;
+        coordinates[n] = coordinate;
+        n++;
+    }
+
+    @Override
+    public void sort() {
+        if (!isSorted) {
+            sort(0, n - 1);
+            isSorted = true;
+        }
+    }
+
+    @Override
+    public long get(long id) {
+        sort();
+
+        var index = Arrays.binarySearch(ids, 0, n, id);
+
+        if (index < 0) return Coordinates.NONE;
+        return coordinates[index];
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    private void sort(int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            var pivot = ids[lo + (hi - lo >>> 1)];
+            int i = lo, j = hi;
+
+            while (i <= j) {
+                while (ids[i] < pivot) i++;
+                while (ids[j] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+
+            // Recurse into the smaller half to bound the stack depth
+            if (j - lo < hi - i) {
+                sort(lo, j);
+                lo = i;
+            } else {
+                sort(i, hi);
+                hi = j;
+            }
+        }
+
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && ids[j - 1] > ids[j]; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        var id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+
+        var coordinate = coordinates[i];
+        coordinates[i] = coordinates[j];
+        coordinates[j] = coordinate;
+    }
+}
@@ -0,0 +1,122 @@
+package osm.tables;
+
+import osm.elements.Coordinates;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Keeps the nodes in a memory mapped file instead of on the heap, so the heap needed to read a file
+ * does not depend on how many nodes it has. The file holds one 8 byte record per node id, at offset
+ * `id * 8`, so a lookup is a single read and nothing has to be sorted.
+ *
+ * <p>The file is as big as the largest id, but it is sparse: only pages that hold a node take up
+ * space on disk. It is mapped in segments as ids show up, since a single mapping is limited to 2 GB.
+ * Records are stored XOR'ed with {@link Coordinates#NONE}, which makes the zeroes of an unwritten
+ * record read as a missing node.
+ *
+ * <p>Negative ids, which editors use for new nodes, are kept on the heap.
+ */
+public class MappedNodeTable implements NodeTable, Closeable {
+    private static final int SEGMENT_SHIFT = 27; // 2^27 ids = 1 GB per segment
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ArrayNodeTable negative = new ArrayNodeTable();
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int n = 0;
+
+    public MappedNodeTable(Path path) throws IOException {
+        this.path = path;
+        this.channel =
+                FileChannel.open(
+                        path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.SPARSE);
+    }
+
+    /**
+     * Create a table in a temporary file, which is deleted when the table is closed
+     */
+    public static MappedNodeTable createTemp() throws IOException {
+        var path = Files.createTempFile("nodes", "");
+        path.toFile().deleteOnExit();
+        return new MappedNodeTable(path);
+    }
+
+    @Override
+    public void put(long id, long coordinate) {
+        n++;
+
+        if (id < 0) {
+            negative.put(id, coordinate);
+            return;
+        }
+
+        var segment = (int) (id >>> SEGMENT_SHIFT);
+        if (segment >= segments.length || segments[segment] == null) map(segment);
+
+        segments[segment].putLong((int) (id & SEGMENT_MASK) << 3, coordinate ^ Coordinates.NONE);
+    }
+
+    @Override
+    public void sort() {
+        negative.sort();
+    }
+
+    @Override
+    public long get(long id) {
+        if (id < 0) return negative.get(id);
+
+        var segment = (int) (id >>> SEGMENT_SHIFT);
+        if (segment >= segments.length || segments[segment] == null) return Coordinates.NONE;
+
+        var record = segments[segment].getLong((int) (id & SEGMENT_MASK) << 3);
+        return record == 0 ? Coordinates.NONE : record ^ Coordinates.NONE;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    private void map(int segment) {
+        if (segment >= segments.length) segments = Arrays.copyOf(segments, segment + 1);
+
+        try {
+            segments[segment] =
+                    channel.map(
+                            FileChannel.MapMode.READ_WRITE,
+                            (long) segment << SEGMENT_SHIFT << 3,
+                            (SEGMENT_MASK + 1) << 3);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Unmap the table and delete its file
+     */
+    @Override
+    public void close() throws IOException {
+        segments = new MappedByteBuffer[0];
+        channel.close();
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Some platforms refuse to delete a file until it has been unmapped by the GC
+            path.toFile().deleteOnExit();
+        }
+    }
+}
@@ -1,13 +1,37 @@
 package osm.tables;
 
-import collections.RefTable;
+import osm.Interest;
 import osm.OSMObserver;
+import osm.elements.Coordinates;
 import osm.elements.OSMNode;
-import osm.elements.SlimOSMNode;
 
-public class NodeTable extends RefTable<SlimOSMNode> implements OSMObserver {
+/**
+ * Coordinates of every node, looked up by id while the ways are read.
+ */
+public interface NodeTable extends OSMObserver {
     @Override
-    public void onNode(OSMNode node) {
-        put(node.slim());
+    default void onNode(OSMNode node) {
+        put(node.id(), Coordinates.pack(node.lon(), node.lat()));
     }
+
+    @Override
+    default Interest interest() {
+        return Interest.NONE.nodes();
+    }
+
+    void put(long id, long coordinate);
+
+    /**
+     * Prepare the table for lookups. Lookups do this lazily on their own, but calling this first
+     * allows concurrent lookups.
+     */
+    void sort();
+
+    /**
+     * @return The {@link Coordinates packed coordinate} of the node, or {@link Coordinates#NONE} if
+     * there is no such node
+     */
+    long get(long id);
+
+    int size();
 }
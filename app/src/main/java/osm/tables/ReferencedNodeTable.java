@@ -0,0 +1,107 @@
+package osm.tables;
+
+import collections.IdSet;
+import collections.lists.LongList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Only keeps the nodes that ways refer to, which are found by a scan of the ways that runs in the
+ * background, see {@link osm.ReferenceScanner}. Nodes that are read before the scan is done are
+ * kept as candidates, and filtered once it is, or when the first way needs them. The table the
+ * nodes are kept in is then created for the number of nodes that will actually be kept.
+ */
+public class ReferencedNodeTable implements NodeTable, Closeable {
+    /**
+     * Most candidates to keep before waiting for the scan, an eighth of the heap
+     */
+    private static final long MAX_CANDIDATES =
+            Runtime.getRuntime().maxMemory() / 8 / (2 * Long.BYTES);
+
+    private final Future<IdSet> referenced;
+    private final LongFunction<NodeTable> createTable;
+    private final long maxCandidates;
+    private LongList candidateIds = new LongList();
+    private LongList candidateCoordinates = new LongList();
+    private IdSet ids;
+    private NodeTable table;
+
+    /**
+     * @param referenced  Ids of the nodes to keep
+     * @param createTable Creates the table to keep the nodes in, given the number of nodes
+     */
+    public ReferencedNodeTable(Future<IdSet> referenced, LongFunction<NodeTable> createTable) {
+        this(referenced, createTable, MAX_CANDIDATES);
+    }
+
+    ReferencedNodeTable(
+            Future<IdSet> referenced, LongFunction<NodeTable> createTable, long maxCandidates) {
+        this.referenced = referenced;
+        this.createTable = createTable;
+        this.maxCandidates = maxCandidates;
+    }
+
+    @Override
+    public void put(long id, long coordinate) {
+        if (table == null) {
+            if (!referenced.isDone() && candidateIds.size() < maxCandidates) {
+                candidateIds.add(id);
+                candidateCoordinates.add(coordinate);
+                return;
+            }
+
+            await();
+        }
+
+        if (ids.contains(id)) table.put(id, coordinate);
+    }
+
+    @Override
+    public void sort() {
+        if (table == null) await();
+        table.sort();
+    }
+
+    @Override
+    public long get(long id) {
+        if (table == null) await();
+        return table.get(id);
+    }
+
+    @Override
+    public int size() {
+        return table == null ? 0 : table.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        referenced.cancel(true);
+        if (table instanceof Closeable closeable) closeable.close();
+    }
+
+    /**
+     * Wait for the scan, and keep the candidates that it found
+     */
+    private void await() {
+        try {
+            ids = referenced.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not find the referenced nodes", e.getCause());
+        }
+
+        table = createTable.apply(ids.size());
+        for (int i = 0; i < candidateIds.size(); i++) {
+            var id = candidateIds.get(i);
+            if (ids.contains(id)) table.put(id, candidateCoordinates.get(i));
+        }
+        candidateIds = null;
+        candidateCoordinates = null;
+    }
+}
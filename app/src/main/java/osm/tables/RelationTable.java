@@ -1,6 +1,7 @@
 package osm.tables;
 
 import collections.RefTable;
+import osm.Interest;
 import osm.OSMObserver;
 import osm.elements.OSMRelation;
 import osm.elements.SlimOSMRelation;
@@ -10,4 +11,9 @@ public class RelationTable extends RefTable<SlimOSMRelation> implements OSMObser
     public void onRelation(OSMRelation relation) {
         put(relation.slim());
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE.relations().members();
+    }
 }
@@ -1,13 +1,62 @@
 package osm.tables;
 
+import collections.IdSet;
 import collections.RefTable;
+import osm.Interest;
 import osm.OSMObserver;
 import osm.elements.OSMWay;
 import osm.elements.SlimOSMWay;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Ways by id, kept so that relations can be resolved once the ways have been read.
+ */
 public class WayTable extends RefTable<SlimOSMWay> implements OSMObserver {
+    private final Future<IdSet> members;
+    private IdSet ids;
+
+    /**
+     * Create a table that keeps every way
+     */
+    public WayTable() {
+        this(null);
+    }
+
+    /**
+     * Create a table that only keeps the ways that relations refer to. The first way waits until they
+     * are known.
+     *
+     * @param members Ids of the ways that relations refer to, or null to keep every way
+     */
+    public WayTable(Future<IdSet> members) {
+        this.members = members;
+    }
+
     @Override
     public void onWay(OSMWay way) {
+        if (members != null) {
+            if (ids == null) await();
+            if (!ids.contains(way.id())) return;
+        }
+
         put(way.slim());
     }
+
+    @Override
+    public Interest interest() {
+        return Interest.NONE.ways().geometry();
+    }
+
+    private void await() {
+        try {
+            ids = members.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not find the referenced ways", e.getCause());
+        }
+    }
 }
@@ -589,11 +589,22 @@ public class Controller {
     public void createMap() throws Exception {
         var diag = new FileChooser();
         diag.setTitle("Open OSM data file");
-        // *.zip is here because *.osm.zip doesn't work on Linux
+        // *.zip, *.gz and *.bz2 are here because *.osm.zip and the like don't work on Linux
         diag.getExtensionFilters()
                 .add(
                         new FileChooser.ExtensionFilter(
-                                "OSM data file", "*.osm", "*.xml", "*.osm.zip", "*.xml.zip", "*.zip"));
+                                "OSM data file",
+                                "*.osm",
+                                "*.xml",
+                                "*.osm.zip",
+                                "*.xml.zip",
+                                "*.zip",
+                                "*.osm.gz",
+                                "*.gz",
+                                "*.osm.bz2",
+                                "*.bz2",
+                                "*.osm.pbf",
+                                "*.pbf"));
         var file = diag.showOpenDialog(scene.getWindow());
         if (file == null) return;
 
@@ -614,8 +625,15 @@ public class Controller {
         LoadingDialog.showDialog(
                 "Loading " + file.getName(),
                 bar -> {
-                    try (var res = FileParser.readMap(file)) {
-                        modelRef.set(new Model(res, bar));
+                    try {
+                        // Closed when the model is disposed
+                        var res = FileParser.readMap(file);
+                        try {
+                            modelRef.set(new Model(res, bar));
+                        } catch (Exception e) {
+                            res.close();
+                            throw e;
+                        }
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -8,7 +8,11 @@ import geometry.Point;
 import geometry.Rect;
 import io.PolygonsReader;
 import io.ReadResult;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
@@ -23,6 +27,13 @@ import navigation.NearestNeighbor;
 import pointsOfInterest.PointOfInterest;
 
 public class Model {
+    /**
+     * Most features that are read at once. There are three to read besides the drawings, which are
+     * uploaded on a core of their own.
+     */
+    private static final int POOL_SIZE =
+            Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
     public final Rect bounds;
     private final ObservableList<PointOfInterest> pointsOfInterest;
     private final StringProperty nearestRoad = new SimpleStringProperty("none");
@@ -36,8 +47,14 @@ public class Model {
     private NearestNeighbor nearestNeighbor;
     private Dijkstra dijkstra;
     private Pair<Point, Point> fromToPoints;
+    private final ReadResult result;
 
+    /**
+     * @param result The map, which is closed when the model is disposed, as the drawings are read
+     *               from it while they are shown
+     */
     public Model(ReadResult result, ProgressBar bar) {
+        this.result = result;
         bounds = result.bounds().getRect();
 
         features = new FeatureSet(result.readers().keySet());
@@ -49,18 +66,65 @@ public class Model {
 
         if (total == 1 && bar != null) Platform.runLater(() -> bar.setProgress(-1));
 
-        for (var entry : result.readers().entrySet()) {
-            switch (entry.getKey()) {
-                case DRAWING -> canvasModel = new canvas.Model((PolygonsReader) entry.getValue());
-                case NEAREST_NEIGHBOR -> nearestNeighbor = (NearestNeighbor) entry.getValue().read();
-                case PATHFINDING -> dijkstra = (Dijkstra) entry.getValue().read();
-                case ADDRESS_SEARCH -> {
-                    addresses = (AddressDatabase) entry.getValue().read();
-                    addresses.setPointsOfInterest(pointsOfInterest);
+        Runnable done =
+                () -> {
+                    if (bar != null) {
+                        Platform.runLater(() -> bar.setProgress(progress.incrementAndGet() / total));
+                    }
+                };
+
+        // Features don't depend on each other, so they are read at once on a pool of their own,
+        // while the drawings are uploaded on this thread
+        var pool = Executors.newFixedThreadPool(POOL_SIZE);
+        try {
+            var tasks = new ArrayList<Future<?>>();
+            PolygonsReader drawing = null;
+
+            for (var entry : result.readers().entrySet()) {
+                var reader = entry.getValue();
+                switch (entry.getKey()) {
+                    case DRAWING -> drawing = (PolygonsReader) reader;
+                    case NEAREST_NEIGHBOR -> tasks.add(
+                            pool.submit(
+                                    () -> {
+                                        nearestNeighbor = (NearestNeighbor) reader.read();
+                                        done.run();
+                                    }));
+                    case PATHFINDING -> tasks.add(
+                            pool.submit(
+                                    () -> {
+                                        dijkstra = (Dijkstra) reader.read();
+                                        done.run();
+                                    }));
+                    case ADDRESS_SEARCH -> tasks.add(
+                            pool.submit(
+                                    () -> {
+                                        var database = (AddressDatabase) reader.read();
+                                        database.setPointsOfInterest(pointsOfInterest);
+                                        addresses = database;
+                                        done.run();
+                                    }));
                 }
             }
 
-            if (bar != null) Platform.runLater(() -> bar.setProgress(progress.incrementAndGet() / total));
+            if (drawing != null) {
+                canvasModel = new canvas.Model(drawing);
+                done.run();
+            }
+
+            // Getting the results also makes the fields set on the pool visible here
+            for (var task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
         }
     }
 
@@ -70,6 +134,12 @@ public class Model {
 
     public void dispose() {
         if (canvasModel != null) canvasModel.dispose();
+
+        try {
+            result.close();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public StringProperty nearestRoadProperty() {
@@ -1,11 +1,15 @@
 package Search;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import osm.elements.OSMNode;
+import osm.elements.OSMTag;
 
 public class AddressTest {
 
@@ -185,6 +189,26 @@ public class AddressTest {
         return addressDatabase.possibleAddresses(address.build(), 5);
     }
 
+    @Test
+    public void testRepeatedTags() {
+        // The last tag with a key is the one that counts
+        var node = new OSMNode();
+        node.init(1, 12, 55);
+        node.tags().add(OSMTag.from("addr:street", "Testvej"));
+        node.tags().add(OSMTag.from("addr:housenumber", "1"));
+        node.tags().add(OSMTag.from("addr:street", "Nyvej"));
+        node.tags().add(OSMTag.from("addr:housenumber", "2"));
+
+        var database = new AddressDatabase();
+        database.onNode(node);
+        database.onFinish();
+
+        assertNull(database.search(new Address("Testvej", null, null, null, 0, 0)));
+        var found = database.search(new Address("Nyvej", null, null, null, 0, 0));
+        assertEquals(1, found.size());
+        assertEquals("2", found.get(0).houseNumber());
+    }
+
     private boolean containsExactly(List<Address> checkList, int[] numbers) {
         var shouldContain = new ArrayList<Address>();
         for (int i : numbers) {
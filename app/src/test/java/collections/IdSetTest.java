@@ -0,0 +1,80 @@
+package collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdSetTest {
+    @Test
+    public void testSparse() {
+        var set = new IdSet();
+        set.add(5);
+        set.add(12_000_000_000L);
+        set.add(5);
+        set.add(-3);
+
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(12_000_000_000L));
+        assertTrue(set.contains(-3));
+        assertFalse(set.contains(3));
+        assertFalse(set.contains(-5));
+        assertFalse(set.contains(13_000_000_000L));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    public void testDense() {
+        // Enough ids in one chunk that it becomes a bitmap
+        var set = new IdSet();
+        for (int i = 0; i < 60000; i += 2) {
+            set.add(i);
+            set.add(i);
+        }
+
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(59998));
+        assertFalse(set.contains(1));
+        assertFalse(set.contains(60000));
+        assertEquals(30000, set.size());
+    }
+
+    @Test
+    public void testFull() {
+        // An array chunk that fills up with 4096 ids, with duplicates that are found as it does
+        var set = new IdSet();
+        for (int i = 0; i < 4096; i++) {
+            set.add(3 * i);
+            if (i % 1000 == 0) set.add(0);
+        }
+
+        assertEquals(4096, set.size());
+        set.add(1);
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(3 * 4095));
+        assertFalse(set.contains(3 * 4096));
+        assertEquals(4097, set.size());
+    }
+
+    @Test
+    public void testRandom() {
+        var random = new Random(42);
+        var expected = new HashSet<Long>();
+        var set = new IdSet();
+        var other = new IdSet();
+
+        for (int i = 0; i < 100000; i++) {
+            var id = random.nextInt(1 << 20) - (1 << 16);
+            expected.add((long) id);
+            (i % 2 == 0 ? set : other).add(id);
+        }
+        set.addAll(other);
+
+        assertEquals(expected.size(), set.size());
+        for (long id = -(1 << 16); id < (1 << 20) - (1 << 16); id++) {
+            assertEquals(expected.contains(id), set.contains(id));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package drawing;
+
+import geometry.Vector2D;
+
+import java.util.List;
+
+/**
+ * Compares drawing lines and points with Vector2Ds, as Drawing used to, and with coordinate arrays.
+ * Lines have 2 to 41 points, like most OSM ways. Buildings are rotated rectangles, which used to be
+ * triangulated with earcut and are now drawn as fans. Not a test, run it with
+ * `gradlew benchmark -Pbenchmark=drawing.DrawingBenchmark`
+ */
+public class DrawingBenchmark {
+    private static final int RUNS = 5;
+    private static final int LINES = 100_000;
+
+    public static void main(String[] args) {
+        var lines = DrawingTest.lines(LINES, 0);
+        var arrays =
+                lines.stream()
+                        .map(
+                                line -> {
+                                    var array = new double[2 * line.size()];
+                                    for (int i = 0; i < line.size(); i++) {
+                                        array[2 * i] = line.get(i).x();
+                                        array[2 * i + 1] = line.get(i).y();
+                                    }
+                                    return array;
+                                })
+                        .toList();
+        var points = lines.stream().map(line -> line.get(0)).toList();
+        var buildings =
+                points.stream()
+                        .map(
+                                point -> {
+                                    var angle = point.x() * Math.PI;
+                                    var dx = Math.cos(angle) * 0.0001;
+                                    var dy = Math.sin(angle) * 0.0001;
+                                    return List.of(
+                                            point,
+                                            Vector2D.create(point.x() + dx, point.y() + dy),
+                                            Vector2D.create(point.x() + dx - dy, point.y() + dy + dx),
+                                            Vector2D.create(point.x() - dy, point.y() + dx),
+                                            point);
+                                })
+                        .toList();
+
+        for (int run = 0; run < RUNS; run++) {
+            var start = System.nanoTime();
+            var size = 0;
+            for (var line : lines) {
+                size += ReferenceDrawing.create(line, DrawableEnum.MOTORWAY).byteSize();
+            }
+            print("lines", "Vector2D", start, size);
+
+            start = System.nanoTime();
+            size = 0;
+            for (var line : arrays) size += Drawing.create(line, DrawableEnum.MOTORWAY).byteSize();
+            print("lines", "array", start, size);
+
+            start = System.nanoTime();
+            size = 0;
+            for (var point : points) {
+                size += ReferenceDrawing.create(point, DrawableEnum.POINT).byteSize();
+            }
+            print("points", "Vector2D", start, size);
+
+            start = System.nanoTime();
+            size = 0;
+            for (var point : points) size += Drawing.create(point, DrawableEnum.POINT).byteSize();
+            print("points", "array", start, size);
+
+            start = System.nanoTime();
+            size = 0;
+            for (var building : buildings) {
+                size += ReferenceDrawing.create(building, DrawableEnum.BUILDING).byteSize();
+            }
+            print("fills", "earcut", start, size);
+
+            start = System.nanoTime();
+            size = 0;
+            for (var building : buildings) {
+                size += Drawing.create(building, DrawableEnum.BUILDING).byteSize();
+            }
+            print("fills", "fan", start, size);
+        }
+    }
+
+    private static void print(String mode, String kind, long start, int size) {
+        var seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(
+                "%-6s %-8s: %6.3f s, %6.0f ns each (%d bytes)%n",
+                mode, kind, seconds, seconds * 1e9 / LINES, size);
+    }
+}
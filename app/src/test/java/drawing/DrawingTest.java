@@ -0,0 +1,120 @@
+package drawing;
+
+import geometry.Vector2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawingTest {
+    /**
+     * Random walks, with some straight runs where segments are parallel
+     */
+    static List<List<Vector2D>> lines(int count, int seed) {
+        var random = new Random(seed);
+        var lines = new ArrayList<List<Vector2D>>();
+        for (int i = 0; i < count; i++) {
+            var points = new ArrayList<Vector2D>();
+            double x = random.nextDouble(), y = random.nextDouble();
+            double dx = 0, dy = 0;
+            var length = 2 + random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                points.add(Vector2D.create(x, y));
+                if (j == 0 || random.nextInt(4) != 0) {
+                    dx = (random.nextDouble() - 0.5) * 0.001;
+                    dy = (random.nextDouble() - 0.5) * 0.001;
+                }
+                x += dx;
+                y += dy;
+            }
+            lines.add(points);
+        }
+        return lines;
+    }
+
+    private static void assertSame(Drawing expected, Drawing actual) {
+        assertArrayEquals(expected.indices().toArray(), actual.indices().toArray());
+        assertArrayEquals(expected.vertices().toArray(), actual.vertices().toArray());
+        assertArrayEquals(expected.drawables().toArray(), actual.drawables().toArray());
+    }
+
+    @Test
+    public void testLines() {
+        for (var line : lines(500, 1)) {
+            assertSame(
+                    ReferenceDrawing.create(line, DrawableEnum.MOTORWAY),
+                    Drawing.create(line, DrawableEnum.MOTORWAY));
+        }
+    }
+
+    @Test
+    public void testShortLine() {
+        var drawing = Drawing.create(List.of(Vector2D.create(0, 0)), DrawableEnum.MOTORWAY);
+        assertEquals(0, drawing.byteSize());
+    }
+
+    @Test
+    public void testPolygons() {
+        for (var line : lines(100, 2)) {
+            var expected = ReferenceDrawing.create(line, DrawableEnum.BUILDING);
+            var actual = Drawing.create(line, DrawableEnum.BUILDING);
+            assertArrayEquals(expected.vertices().toArray(), actual.vertices().toArray());
+            assertArrayEquals(expected.drawables().toArray(), actual.drawables().toArray());
+
+            // Convex polygons are drawn as fans instead
+            var array = new double[2 * line.size()];
+            for (int i = 0; i < line.size(); i++) {
+                array[2 * i] = line.get(i).x();
+                array[2 * i + 1] = line.get(i).y();
+            }
+            if (!Drawing.isConvex(array, Drawing.pointCount(array))) {
+                assertArrayEquals(expected.indices().toArray(), actual.indices().toArray());
+            }
+        }
+    }
+
+    @Test
+    public void testFan() {
+        // A closed square, as buildings are
+        var square = new double[]{0, 0, 1, 0, 1, 1, 0, 1, 0, 0};
+        var drawing = Drawing.create(square, DrawableEnum.BUILDING, 10);
+        assertArrayEquals(new int[]{10, 11, 12, 10, 12, 13}, drawing.indices().toArray());
+        assertEquals(10, drawing.vertices().size());
+    }
+
+    @Test
+    public void testConvex() {
+        assertTrue(Drawing.isConvex(new double[]{0, 0, 1, 0, 0, 1}, 3));
+        // Clockwise, with a point in the middle of an edge
+        assertTrue(Drawing.isConvex(new double[]{0, 0, 0, 1, 1, 1, 2, 1, 2, 0}, 5));
+        // A repeated point
+        assertTrue(Drawing.isConvex(new double[]{0, 0, 1, 0, 1, 0, 1, 1, 0, 1}, 5));
+
+        // L-shaped
+        assertFalse(Drawing.isConvex(new double[]{0, 0, 2, 0, 2, 1, 1, 1, 1, 2, 0, 2}, 6));
+        // A star turns the same way at every point, but goes around twice
+        var star = new double[10];
+        for (int i = 0; i < 5; i++) {
+            star[2 * i] = Math.cos(i * 4 * Math.PI / 5);
+            star[2 * i + 1] = Math.sin(i * 4 * Math.PI / 5);
+        }
+        assertFalse(Drawing.isConvex(star, 5));
+        // On a line
+        assertFalse(Drawing.isConvex(new double[]{0, 0, 1, 1, 2, 2}, 3));
+        assertFalse(Drawing.isConvex(new double[]{0, 0, 1, 1}, 2));
+    }
+
+    @Test
+    public void testPoints() {
+        var point = Vector2D.create(0.3, 0.7);
+        assertSame(
+                ReferenceDrawing.create(point, DrawableEnum.POINT),
+                Drawing.create(point, DrawableEnum.POINT));
+        assertSame(
+                ReferenceDrawing.create(point, DrawableEnum.POI),
+                Drawing.create(point, DrawableEnum.POI));
+    }
+}
@@ -0,0 +1,123 @@
+package drawing;
+
+import earcut4j.Earcut;
+import geometry.Line;
+import geometry.Vector2D;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How Drawing tessellated points and lines with Vector2Ds, before it worked on coordinate arrays.
+ * Kept to check that it still makes the same vertices, and to compare their speed.
+ */
+class ReferenceDrawing {
+    static Drawing create(Vector2D point, Drawable drawable) {
+        var points = new ArrayList<Vector2D>();
+        for (double i = 0; i < Math.PI * 2; i += Math.PI / 15) {
+            points.add(
+                    Vector2D.create(
+                            point.x() + Math.cos(i) * drawable.size(),
+                            point.y() + Math.sin(i) * drawable.size()));
+        }
+
+        var drawing = create(points, drawable);
+        points.forEach(Vector2D::reuse);
+        return drawing;
+    }
+
+    static Drawing create(List<Vector2D> points, Drawable drawable) {
+        var drawing = new Drawing();
+        switch (drawable.shape()) {
+            case POLYLINE -> drawLine(drawing, points, drawable);
+            case FILL -> drawPolygon(drawing, points, drawable);
+        }
+        return drawing;
+    }
+
+    private static void drawPolygon(Drawing drawing, List<Vector2D> points, Drawable drawable) {
+        var verts = new double[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            var p = points.get(i);
+            verts[i * 2] = p.x();
+            verts[i * 2 + 1] = p.y();
+            addVertex(drawing, p, drawable);
+        }
+
+        for (var i : Earcut.earcut(verts)) {
+            drawing.indices().add(i);
+        }
+    }
+
+    private static void drawLine(Drawing drawing, List<Vector2D> points, Drawable drawable) {
+        if (points.size() < 2) {
+            return;
+        }
+
+        var from = points.get(0);
+        var to = points.get(1);
+        var dir = to.sub(from);
+
+        var hat = dir.hat();
+        var norm = hat.normalize();
+
+        var p3 = norm.scale(drawable.size());
+        var p0 = p3.scale(-1.0f);
+        var p1 = p0.add(dir);
+        var p2 = p3.add(dir);
+
+        addVertex(drawing, p0.add(from), drawable);
+        addVertex(drawing, p3.add(from), drawable);
+
+        for (int i = 2; i < points.size(); i++) {
+            var nextTo = points.get(i);
+            var nextDir = nextTo.sub(to);
+
+            hat = nextDir.hat();
+            norm = hat.normalize();
+
+            var p3Next = norm.scale(drawable.size());
+            var p0Next = p3Next.scale(-1.0f);
+            var p1Next = p0Next.add(nextDir);
+            var p2Next = p3Next.add(nextDir);
+
+            addLineIndices(drawing);
+
+            var intersect1 =
+                    Line.intersection(p0.add(to), p1.add(to), p0Next.add(nextTo), p1Next.add(nextTo));
+            var intersect2 =
+                    Line.intersection(p3.add(to), p2.add(to), p3Next.add(nextTo), p2Next.add(nextTo));
+
+            addVertex(drawing, intersect1 != null ? intersect1 : p1.add(to), drawable);
+            addVertex(drawing, intersect2 != null ? intersect2 : p2.add(to), drawable);
+
+            to = nextTo;
+            p0 = p0Next;
+            p1 = p1Next;
+            p2 = p2Next;
+            p3 = p3Next;
+        }
+
+        addLineIndices(drawing);
+
+        addVertex(drawing, p0.add(to), drawable);
+        addVertex(drawing, p3.add(to), drawable);
+    }
+
+    private static void addLineIndices(Drawing drawing) {
+        var size = drawing.vertices().size() / 2;
+
+        drawing.indices().add(size - 2);
+        drawing.indices().add(size + 0);
+        drawing.indices().add(size + 1);
+        drawing.indices().add(size - 2);
+        drawing.indices().add(size + 1);
+        drawing.indices().add(size - 1);
+    }
+
+    private static void addVertex(Drawing drawing, Vector2D vertex, Drawable drawable) {
+        drawing.vertices().add((float) vertex.x());
+        drawing.vertices().add((float) vertex.y());
+        drawing.drawables().add((byte) drawable.ordinal());
+    }
+}
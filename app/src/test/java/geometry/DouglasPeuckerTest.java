@@ -0,0 +1,51 @@
+package geometry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DouglasPeuckerTest {
+    @Test
+    public void testLine() {
+        // A step, with wiggles less than the tolerance before and after it
+        var points = new double[]{0, 0, 1, 0.1, 2, -0.1, 3, 0, 3, 5, 4, 5.1, 5, 5};
+        assertArrayEquals(
+                new double[]{0, 0, 3, 0, 3, 5, 5, 5}, DouglasPeucker.simplify(points, 0.5));
+    }
+
+    @Test
+    public void testKeepAll() {
+        var points = new double[]{0, 0, 1, 1, 2, 0};
+        assertSame(points, DouglasPeucker.simplify(points, 0.5));
+
+        var line = new double[]{0, 0, 1, 1};
+        assertSame(line, DouglasPeucker.simplify(line, 100));
+    }
+
+    @Test
+    public void testStraight() {
+        var points = new double[200];
+        for (int i = 0; i < 100; i++) points[2 * i] = i;
+        assertArrayEquals(new double[]{0, 0, 99, 0}, DouglasPeucker.simplify(points, 0.001));
+    }
+
+    @Test
+    public void testRing() {
+        // A square with a point on every edge, which are removed
+        var ring = new double[]{0, 0, 1, 0, 2, 0, 2, 1, 2, 2, 1, 2, 0, 2, 0, 1, 0, 0};
+        assertArrayEquals(
+                new double[]{0, 0, 2, 0, 2, 2, 0, 2, 0, 0}, DouglasPeucker.simplify(ring, 0.1));
+    }
+
+    @Test
+    public void testSmallRing() {
+        // Far smaller than the tolerance, but still a ring of at least three points
+        var ring = new double[]{0, 0, 1, 0, 2, 0.5, 1, 1, 0, 1, 0, 0.5, 0, 0};
+        var simplified = DouglasPeucker.simplify(ring, 100);
+
+        var count = simplified.length / 2;
+        assertTrue(count >= 4);
+        assertEquals(simplified[0], simplified[2 * count - 2]);
+        assertEquals(simplified[1], simplified[2 * count - 1]);
+    }
+}
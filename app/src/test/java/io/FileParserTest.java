@@ -0,0 +1,64 @@
+package io;
+
+import Search.AddressDatabase;
+import features.Feature;
+import geometry.Point;
+import navigation.NearestNeighbor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileParserTest {
+    private File dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("osm").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        var files = dir.listFiles();
+        if (files != null) {
+            for (var file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testReadTar() throws Exception {
+        // Made before maps had a table of contents, by classes that have gained methods since
+        var file = new File(dir, "tar.map");
+        try (var in = FileParserTest.class.getResourceAsStream("tar.map")) {
+            Files.copy(in, file.toPath());
+        }
+
+        try (var result = FileParser.readMap(file)) {
+            assertEquals(
+                    EnumSet.of(
+                            Feature.DRAWING,
+                            Feature.NEAREST_NEIGHBOR,
+                            Feature.PATHFINDING,
+                            Feature.ADDRESS_SEARCH),
+                    EnumSet.copyOf(result.readers().keySet()));
+            assertEquals(55.2f, result.bounds().getRect().bottom(), 1e-5);
+
+            var roads = (NearestNeighbor) result.readers().get(Feature.NEAREST_NEIGHBOR).read();
+            assertEquals("Vej 11", roads.nearestRoad(new Point(12.1f, 55.1f)));
+
+            var addresses = (AddressDatabase) result.readers().get(Feature.ADDRESS_SEARCH).read();
+            var found = addresses.search(AddressDatabase.parse("Gade 6").build());
+            assertEquals(1, found.size());
+            assertEquals("3700", found.get(0).postcode());
+
+            assertNotNull(result.readers().get(Feature.PATHFINDING).read());
+        }
+    }
+}
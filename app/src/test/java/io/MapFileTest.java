@@ -0,0 +1,166 @@
+package io;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapFileTest {
+    private final byte[] plain = bytes(100_000);
+    private final byte[] gzipped = bytes(1000);
+    private File file;
+    private Map<String, Writer> entries;
+
+    private static byte[] bytes(int length) {
+        var bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static Writer writer(byte[] bytes, boolean compresses) {
+        return new Writer() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(bytes);
+            }
+
+            @Override
+            public boolean compresses() {
+                return compresses;
+            }
+        };
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = File.createTempFile("test", ".map");
+
+        // Not gzipped, but starts like it is, which the table of contents tells apart
+        plain[0] = 0x1f;
+        plain[1] = (byte) 0x8b;
+
+        // Written in another order than they are stored in
+        entries = new LinkedHashMap<>();
+        entries.put("GZIPPED", writer(gzipped, false));
+        entries.put("PLAIN", writer(plain, true));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        MapFile.write(file, entries);
+
+        try (var map = MapFile.open(file)) {
+            // Entries can be read in any order, and any number of times
+            try (var in = map.get("GZIPPED").open()) {
+                assertArrayEquals(gzipped, in.readAllBytes());
+            }
+            try (var in = map.get("PLAIN").open()) {
+                assertArrayEquals(plain, in.readAllBytes());
+            }
+            try (var in = map.get("PLAIN").open(5000, 10)) {
+                assertArrayEquals(Arrays.copyOfRange(plain, 5000, 5010), in.readAllBytes());
+            }
+
+            assertThrows(NoSuchElementException.class, () -> map.get("MISSING"));
+            assertThrows(IndexOutOfBoundsException.class, () -> map.get("PLAIN").open(99_995, 10));
+        }
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        MapFile.write(file, entries);
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 2000);
+            raf.write(raf.read() ^ 1);
+        }
+
+        try (var map = MapFile.open(file)) {
+            try (var in = map.get("PLAIN").open()) {
+                assertThrows(IOException.class, in::readAllBytes);
+            }
+            // Other entries aren't affected
+            try (var in = map.get("GZIPPED").open()) {
+                assertArrayEquals(gzipped, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testTar() throws IOException {
+        // Maps used to be tar files of gzipped entries
+        var compressed = new ByteArrayOutputStream();
+        try (var out = new GZIPOutputStream(compressed)) {
+            out.write(gzipped);
+        }
+        try (var tar = new TarArchiveOutputStream(new FileOutputStream(file))) {
+            var entry = new TarArchiveEntry("GZIPPED");
+            entry.setSize(compressed.size());
+            tar.putArchiveEntry(entry);
+            compressed.writeTo(tar);
+            tar.closeArchiveEntry();
+        }
+
+        try (var map = MapFile.open(file)) {
+            assertEquals(0, map.get("GZIPPED").version());
+            try (var in = map.get("GZIPPED").open()) {
+                assertArrayEquals(gzipped, in.readAllBytes());
+            }
+        }
+
+        // Neither a map nor a tar file
+        try (var out = new FileOutputStream(file)) {
+            out.write(plain);
+        }
+        var e = assertThrows(IOException.class, () -> MapFile.open(file));
+        assertTrue(e.getMessage().contains("isn't a map"));
+
+        new FileOutputStream(file).close();
+        assertThrows(IOException.class, () -> MapFile.open(file));
+    }
+
+    @Test
+    public void testVersions() throws IOException {
+        // Older versions are still read, see PolygonsReaderTest, but newer ones can't be
+        for (var version : new int[] {1, 2, 4}) {
+            try (var out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(0x4F534D4D);
+                out.writeInt(version);
+                out.writeInt(0);
+            }
+
+            if (version < 4) {
+                MapFile.open(file).close();
+            } else {
+                var e = assertThrows(IOException.class, () -> MapFile.open(file));
+                assertTrue(e.getMessage().contains("made again"));
+            }
+        }
+
+        MapFile.write(file, entries);
+        try (var map = MapFile.open(file)) {
+            assertEquals(3, map.get("PLAIN").version());
+        }
+    }
+}
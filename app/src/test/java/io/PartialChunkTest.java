@@ -0,0 +1,108 @@
+package io;
+
+import collections.lists.ByteList;
+import collections.lists.FloatList;
+import collections.lists.IntList;
+import drawing.Drawing;
+import geometry.Point;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartialChunkTest {
+    private static Drawing triangle(float x) {
+        return new Drawing(
+                new IntList(new int[]{0, 1, 2}),
+                new FloatList(new float[]{x, 0, x + 1, 0, x, 1}),
+                new ByteList(new byte[]{1, 2, 3}));
+    }
+
+    private static PartialChunk read(PartialChunk chunk) throws IOException {
+        return PartialChunk.Part.compress(chunk.cellSize, chunk.point, chunk.serialize()).chunk();
+    }
+
+    private static int[] ints(ByteBuffer buffer) {
+        var ints = new int[buffer.remaining() / Integer.BYTES];
+        buffer.asIntBuffer().get(ints);
+        return ints;
+    }
+
+    private static float[] floats(ByteBuffer buffer) {
+        var floats = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(floats);
+        return floats;
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        var chunk = new PartialChunk(new Point(1, 2), 0.05f);
+        chunk.add(triangle(0));
+        chunk.add(triangle(10));
+
+        var read = read(chunk);
+        assertEquals(new Point(1, 2), read.point);
+        assertEquals(0.05f, read.cellSize);
+        assertEquals(6, read.getTotalIndices());
+        assertEquals(12, read.getTotalVertices());
+        assertEquals(6, read.getTotalDrawables());
+
+        // Indices of the second drawing come after the points of the first
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, ints(read.indices(0)));
+        assertArrayEquals(
+                new float[]{0, 0, 1, 0, 0, 1, 10, 0, 11, 0, 10, 1}, floats(read.vertices()), 0);
+        assertEquals(6, read.drawables().remaining());
+
+        // Drawings are made again as they were added
+        assertEquals(2, read.drawings().size());
+        assertArrayEquals(new int[]{0, 1, 2}, read.drawings().get(1).indices().toArray());
+        assertArrayEquals(
+                new float[]{10, 0, 11, 0, 10, 1}, read.drawings().get(1).vertices().toArray(), 0);
+    }
+
+    @Test
+    public void testParts() throws IOException {
+        var chunk = new PartialChunk(new Point(0, 0), 0.05f);
+        chunk.add(triangle(0));
+        read(chunk);
+        chunk.add(triangle(10));
+
+        // The second part comes after the 3 points of the first
+        var second = read(chunk);
+        assertArrayEquals(new int[]{3, 4, 5}, ints(second.indices(3)));
+        // Which can still be uploaded somewhere else
+        assertArrayEquals(new int[]{0, 1, 2}, ints(second.indices(0)));
+        assertArrayEquals(new int[]{0, 1, 2}, second.drawings().get(0).indices().toArray());
+    }
+
+    @Test
+    public void testSources() throws IOException {
+        var chunk = new PartialChunk(new Point(0, 0), 0.05f);
+        chunk.add(triangle(0));
+        chunk.add(triangle(10));
+        var blob = ByteBuffer.wrap(chunk.serialize()).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Blobs could have the element of each drawing after the counts, which is skipped
+        var header = 7 * Integer.BYTES + 6 * Integer.BYTES;
+        var withSources =
+                ByteBuffer.allocate(blob.capacity() + 2 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        withSources.put(blob.slice(0, header)).putInt(6 * Integer.BYTES, 1);
+        withSources.putLong(4).putLong(6);
+        withSources.put(blob.slice(header, blob.capacity() - header));
+
+        var read = PartialChunk.deserialize(0.05f, new Point(0, 0), withSources.array());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, ints(read.indices(0)));
+        assertArrayEquals(
+                new float[]{0, 0, 1, 0, 0, 1, 10, 0, 11, 0, 10, 1}, floats(read.vertices()), 0);
+        assertEquals(2, read.drawings().size());
+    }
+
+    @Test
+    public void testNotBlob() {
+        var part = PartialChunk.Part.compress(0, new Point(0, 0), new byte[]{(byte) 0xac, (byte) 0xed});
+        assertThrows(IOException.class, part::chunk);
+    }
+}
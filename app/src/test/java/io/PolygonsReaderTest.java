@@ -0,0 +1,103 @@
+package io;
+
+import geometry.Point;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolygonsReaderTest {
+    /**
+     * @param name A map in the test resources, which is copied to a file, as maps are read from one
+     */
+    private static File copy(String name) throws Exception {
+        var file = File.createTempFile("test", ".map");
+        file.deleteOnExit();
+        try (var in = PolygonsReaderTest.class.getResourceAsStream(name)) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    @Test
+    public void testVersion1() throws Exception {
+        // Drawn by version 1 of the map format, whose parts were Java-serialized chunks
+        try (var map = MapFile.open(copy("v1.map"))) {
+            var entry = map.get("DRAWING");
+            assertEquals(1, entry.version());
+
+            var reader = new PolygonsReader(entry);
+            assertEquals(55.2f, reader.getBounds().bottom(), 1e-5);
+            assertFalse(reader.getBaseChunk().drawings().isEmpty());
+
+            var chunks = 0;
+            for (var grid : reader.getChunks().entrySet()) {
+                for (var cell : grid.getValue().entrySet()) {
+                    var indices = 0;
+                    var vertices = 0;
+                    var drawables = 0;
+                    for (var part : reader.read(grid.getKey(), cell.getKey())) {
+                        // Indices are rebased onto the parts before, as they would be when uploaded
+                        var rebased = part.indices(vertices / 2);
+                        while (rebased.hasRemaining()) {
+                            var index = rebased.getInt();
+                            assertTrue(index >= vertices / 2);
+                            assertTrue(index < (vertices + part.vertices().remaining() / Float.BYTES) / 2);
+                        }
+
+                        indices += part.indices(0).remaining() / Integer.BYTES;
+                        vertices += part.vertices().remaining() / Float.BYTES;
+                        drawables += part.drawables().remaining();
+                    }
+
+                    var chunk = cell.getValue();
+                    assertEquals(chunk.getTotalIndices(), indices);
+                    assertEquals(chunk.getTotalVertices(), vertices);
+                    assertEquals(chunk.getTotalDrawables(), drawables);
+                    chunks++;
+                }
+            }
+            assertTrue(chunks > 0);
+
+            // Every part can be read in order too, and copied as it is written now
+            var parts = 0;
+            var drawings = 0;
+            for (var part : reader.parts()) {
+                drawings += part.chunk().drawings().size();
+                parts++;
+            }
+            assertTrue(parts >= chunks);
+            assertTrue(drawings > 0);
+        }
+    }
+
+    @Test
+    public void testTar() throws Exception {
+        // Drawn before maps had a table of contents, as a stream of Java-serialized chunks
+        try (var map = MapFile.open(copy("tar.map"))) {
+            var reader = new PolygonsReader(map.get("DRAWING"));
+            assertFalse(reader.isIndexed());
+            assertThrows(IllegalStateException.class, () -> reader.read(0.05f, new Point(0, 0)));
+            assertEquals(55.2f, reader.getBounds().bottom(), 1e-5);
+            assertEquals(84, reader.getBaseChunk().indices(0).remaining() / Integer.BYTES);
+
+            // Every chunk was written as a single part
+            var chunks = reader.getChunks();
+            var read = 0;
+            var drawings = 0;
+            for (var part : reader.read()) {
+                var chunk = chunks.get(part.cellSize).get(part.point);
+                assertEquals(chunk.getTotalIndices(), part.indices(0).remaining() / Integer.BYTES);
+                assertEquals(chunk.getTotalVertices(), part.vertices().remaining() / Float.BYTES);
+                assertEquals(chunk.getTotalDrawables(), part.drawables().remaining());
+                drawings += part.drawings().size();
+                read++;
+            }
+            assertEquals(23, read);
+            assertEquals(77, drawings);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io;
+
+import osm.OSMReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares drawing a map with every element triangulated on the thread that draws it, and in
+ * batches on the common pool, for a few batch sizes and numbers of batches in flight. The file is
+ * read into memory first, so it is parsed at the same speed every time. Not a test, run it with
+ * `gradlew benchmark -Pbenchmark=io.PolygonsWriterBenchmark -Pargs=path/to/file.osm`
+ */
+public class PolygonsWriterBenchmark {
+    private static final int RUNS = 3;
+    private static final int[] BATCH_SIZES = {1, 16, 64, 256, 1024};
+    private static final int[] IN_FLIGHT = {1, 2, 8, 32};
+
+    public static void main(String[] args) throws Exception {
+        var file = Files.readAllBytes(Path.of(args[0]));
+        var cores = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < RUNS; i++) {
+            run(file, true, 0, 0);
+        }
+        for (var batchSize : BATCH_SIZES) {
+            for (int i = 0; i < RUNS; i++) {
+                run(file, false, batchSize, 2 * cores);
+            }
+        }
+        for (var inFlight : IN_FLIGHT) {
+            for (int i = 0; i < RUNS; i++) {
+                run(file, false, 256, inFlight);
+            }
+        }
+    }
+
+    private static void run(byte[] file, boolean inline, int batchSize, int inFlight)
+            throws Exception {
+        var writer = new PolygonsWriter();
+        writer.inline = inline;
+        writer.batchSize = batchSize;
+        writer.maxTriangulating = inFlight;
+        var reader = new OSMReader();
+        reader.addObservers(writer);
+
+        var start = System.nanoTime();
+        reader.parse(new ByteArrayInputStream(file));
+        writer.writeTo(OutputStream.nullOutputStream());
+        var seconds = (System.nanoTime() - start) / 1e9;
+
+        if (inline) {
+            System.out.printf("inline                      : %6.2f s%n", seconds);
+        } else {
+            System.out.printf(
+                    "pooled, %4d per batch, %2d in flight: %6.2f s%n", batchSize, inFlight, seconds);
+        }
+    }
+}
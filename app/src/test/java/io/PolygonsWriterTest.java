@@ -0,0 +1,140 @@
+package io;
+
+import org.junit.jupiter.api.Test;
+import osm.OSMReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolygonsWriterTest {
+    private static final String BOUNDS =
+            "<bounds minlat=\"55.0\" minlon=\"12.0\" maxlat=\"55.5\" maxlon=\"12.5\"/>\n";
+
+    /**
+     * A map with enough roads and buildings to be triangulated in many batches
+     */
+    private static String map() {
+        var random = new Random(42);
+        var xml = new StringBuilder();
+        xml.append("<osm version=\"0.6\">\n");
+        xml.append(BOUNDS);
+
+        var nodes = 3000;
+        for (int i = 1; i <= nodes; i++) {
+            xml.append(
+                    "<node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"/>\n"
+                            .formatted(
+                                    i, 55 + random.nextDouble() / 2, 12 + random.nextDouble() / 2));
+        }
+        for (int i = 1; i <= nodes / 3; i++) {
+            var first = random.nextInt(nodes) + 1;
+            var building = i % 2 == 0;
+            xml.append("<way id=\"%d\">\n".formatted(nodes + i));
+            xml.append("<nd ref=\"%d\"/>\n".formatted(first));
+            xml.append("<nd ref=\"%d\"/>\n".formatted(random.nextInt(nodes) + 1));
+            xml.append("<nd ref=\"%d\"/>\n".formatted(random.nextInt(nodes) + 1));
+            if (building) xml.append("<nd ref=\"%d\"/>\n".formatted(first));
+            xml.append(
+                    building
+                            ? "<tag k=\"building\" v=\"yes\"/>\n"
+                            : "<tag k=\"highway\" v=\"residential\"/>\n");
+            xml.append("</way>\n");
+        }
+
+        return xml.append("</osm>\n").toString();
+    }
+
+    private static byte[] write(String map) throws Exception {
+        return write(map, false);
+    }
+
+    private static byte[] write(String map, boolean inline) throws Exception {
+        var writer = new PolygonsWriter();
+        writer.inline = inline;
+        var reader = new OSMReader();
+        reader.addObservers(writer);
+        reader.parse(new ByteArrayInputStream(map.getBytes(StandardCharsets.UTF_8)));
+
+        var out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Parts that were written, by the size of the cells they are in
+     */
+    private static Map<Float, List<PartialChunk>> parts(byte[] bytes) throws Exception {
+        var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertEquals(PolygonsReader.INDEXED, in.readInt());
+        in.skipNBytes(in.readInt());
+
+        var parts = new HashMap<Float, List<PartialChunk>>();
+        while (true) {
+            try {
+                var part = PartialChunk.Part.readFrom(in);
+                parts.computeIfAbsent(part.cellSize(), c -> new ArrayList<>()).add(part.chunk());
+            } catch (EOFException e) {
+                return parts;
+            }
+        }
+    }
+
+    @Test
+    public void testDeterministic() throws Exception {
+        var map = map();
+        var bytes = write(map);
+
+        // Drawings are made on many threads, but added to chunks in the order they were drawn in,
+        // so they are the same as when they are made one at a time
+        assertArrayEquals(bytes, write(map));
+        assertArrayEquals(bytes, write(map, true));
+
+        var indices = 0;
+        for (var parts : parts(bytes).values()) {
+            for (var part : parts) indices += part.getTotalIndices();
+        }
+        assertTrue(indices > 0);
+    }
+
+    @Test
+    public void testSimplified() throws Exception {
+        // A motorway, which is drawn at every level, that wiggles by a few meters
+        var xml = new StringBuilder();
+        xml.append("<osm version=\"0.6\">\n");
+        xml.append(BOUNDS);
+        var nodes = 2000;
+        for (int i = 1; i <= nodes; i++) {
+            var lon = 12.1 + 0.00005 * i;
+            var lat = 55.1 + 0.00002 * Math.sin(i);
+            xml.append("<node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"/>\n".formatted(i, lat, lon));
+        }
+        xml.append("<way id=\"%d\">\n".formatted(nodes + 1));
+        for (int i = 1; i <= nodes; i++) xml.append("<nd ref=\"%d\"/>\n".formatted(i));
+        xml.append("<tag k=\"highway\" v=\"motorway\"/>\n</way>\n</osm>\n");
+
+        var vertices = new TreeMap<Float, Integer>();
+        for (var entry : parts(write(xml.toString())).entrySet()) {
+            for (var part : entry.getValue()) {
+                vertices.merge(entry.getKey(), part.getTotalVertices(), Integer::sum);
+            }
+        }
+
+        // The first level has every point, and the coarser ones far fewer
+        assertEquals(3, vertices.size());
+        var levels = new ArrayList<>(vertices.values());
+        assertTrue(levels.get(0) >= 4 * nodes);
+        assertTrue(levels.get(1) * 10 < levels.get(0));
+        assertTrue(levels.get(2) * 10 < levels.get(0));
+    }
+}
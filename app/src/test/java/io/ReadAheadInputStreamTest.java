@@ -0,0 +1,107 @@
+package io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadAheadInputStreamTest {
+    private static byte[] bytes(int length) {
+        var bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testReadAll() throws IOException {
+        // Shorter, just as long and longer than the blocks
+        for (var length : new int[] {0, 10, 64, 64 * 4, 1000}) {
+            var bytes = bytes(length);
+            try (var stream = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 64, 3)) {
+                assertArrayEquals(bytes, stream.readAllBytes());
+                assertEquals(-1, stream.read());
+                assertEquals(-1, stream.read(new byte[10]));
+            }
+        }
+    }
+
+    @Test
+    public void testReadSingleBytes() throws IOException {
+        var bytes = bytes(500);
+        try (var stream = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 64, 2)) {
+            for (var b : bytes) assertEquals(b & 0xFF, stream.read());
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    public void testReadAcrossBlocks() throws IOException {
+        var bytes = bytes(1000);
+        try (var stream = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 64, 2)) {
+            var read = new byte[1000];
+            assertEquals(100, stream.readNBytes(read, 0, 100));
+            assertEquals(900, stream.readNBytes(read, 100, 900));
+            assertArrayEquals(bytes, read);
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        var reading = new CountDownLatch(1);
+        var closedWhileReading = new AtomicBoolean();
+        var slow =
+                new InputStream() {
+                    volatile boolean closed;
+
+                    @Override
+                    public int read() throws IOException {
+                        reading.countDown();
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            // Like most streams, it doesn't stop when interrupted
+                        }
+                        if (closed) closedWhileReading.set(true);
+                        return 1;
+                    }
+
+                    @Override
+                    public void close() {
+                        closed = true;
+                    }
+                };
+
+        // Closed in the middle of a block, which is finished before the stream is closed
+        var stream = new ReadAheadInputStream(slow, 64, 2);
+        reading.await();
+        stream.close();
+        assertTrue(slow.closed);
+        assertFalse(closedWhileReading.get());
+    }
+
+    @Test
+    public void testError() throws IOException {
+        var failing =
+                new InputStream() {
+                    int count;
+
+                    @Override
+                    public int read() throws IOException {
+                        if (count++ >= 100) throw new IOException("broken");
+                        return 1;
+                    }
+                };
+
+        try (var stream = new ReadAheadInputStream(failing, 64, 2)) {
+            assertEquals(64, stream.readNBytes(64).length);
+            var e = assertThrows(IOException.class, stream::readAllBytes);
+            assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+}
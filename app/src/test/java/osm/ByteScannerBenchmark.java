@@ -0,0 +1,67 @@
+package osm;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Compares the vector and the SWAR scanner on the same file, on their own and as part of the
+ * reader. Not a test, run it with `gradlew benchmark -Pbenchmark=osm.ByteScannerBenchmark -Pargs=path/to/file.osm`
+ */
+public class ByteScannerBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        var file = new File(args[0]);
+        var scanners = new ByteScanner[] {new VectorByteScanner(), new SwarByteScanner()};
+
+        // Go from tag to tag and from value to value, like the reader does
+        var bytes = Files.readAllBytes(file.toPath());
+        var end = bytes.length;
+        bytes = Arrays.copyOf(bytes, end + 192);
+        Arrays.fill(bytes, end, bytes.length, (byte) '"');
+        var buf = ByteBuffer.wrap(bytes);
+
+        for (int i = 0; i < RUNS; i++) {
+            for (var scanner : scanners) {
+                var start = System.nanoTime();
+                var found = 0;
+                for (int at = 0; at < end; at++) {
+                    at = scanner.find(buf, at, (byte) '"');
+                    found++;
+                }
+                print("scan", scanner, start, file);
+
+                if (found == 0) throw new AssertionError();
+            }
+        }
+
+        for (int i = 0; i < RUNS; i++) {
+            for (var scanner : scanners) {
+                var reader = new OSMReader();
+                reader.setScanner(scanner);
+                // Something has to want every element, or most of the file is skipped
+                reader.addObservers(
+                        new OSMObserver() {
+                            @Override
+                            public Interest interest() {
+                                return Interest.ALL;
+                            }
+                        });
+
+                var start = System.nanoTime();
+                reader.parse(file.toPath(), null);
+                print("read", scanner, start, file);
+            }
+        }
+    }
+
+    private static void print(String mode, ByteScanner scanner, long start, File file) {
+        var seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(
+                "%-4s %-17s: %6.2f s, %7.1f MB/s%n",
+                mode, scanner.getClass().getSimpleName(), seconds, file.length() / 1e6 / seconds);
+    }
+}
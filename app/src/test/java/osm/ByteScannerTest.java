@@ -0,0 +1,97 @@
+package osm;
+
+import org.junit.jupiter.api.Test;
+import osm.elements.OSMNode;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteScannerTest {
+    private static final ByteScanner[] SCANNERS = {new VectorByteScanner(), new SwarByteScanner()};
+
+    private static int naive(byte[] bytes, int from, byte a, byte b) {
+        while (bytes[from] != a && bytes[from] != b) from++;
+        return from;
+    }
+
+    @Test
+    public void testFind() {
+        var random = new Random(42);
+        var bytes = new byte[4096];
+        // Few matches, and bytes that are negative as a Java byte
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) (random.nextInt(40) + 200);
+        for (int i = 0; i < 40; i++) bytes[random.nextInt(bytes.length - 256)] = '<';
+        for (int i = 0; i < 40; i++) bytes[random.nextInt(bytes.length - 256)] = (byte) 'ø';
+        // Scanners may read up to 64 bytes past the byte they find
+        for (int i = bytes.length - 128; i < bytes.length; i++) {
+            bytes[i] = i % 2 == 0 ? (byte) '<' : (byte) 'ø';
+        }
+
+        for (var scanner : SCANNERS) {
+            for (var order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                var buf = ByteBuffer.wrap(bytes).order(order);
+
+                for (int from = 0; from < bytes.length - 128; from++) {
+                    var name = scanner.getClass().getSimpleName() + " " + order + " from " + from;
+                    assertEquals(
+                            naive(bytes, from, (byte) '<', (byte) '<'), scanner.find(buf, from, (byte) '<'), name);
+                    assertEquals(
+                            naive(bytes, from, (byte) 'ø', (byte) 'ø'), scanner.find(buf, from, (byte) 'ø'), name);
+                    assertEquals(
+                            naive(bytes, from, (byte) '<', (byte) 'ø'),
+                            scanner.find(buf, from, (byte) '<', (byte) 'ø'),
+                            name);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAdjacentMatches() {
+        // A borrow from one zero byte must not hide the one before it
+        var bytes = "aa==>>=>".repeat(20).getBytes(StandardCharsets.US_ASCII);
+
+        for (var scanner : SCANNERS) {
+            var buf = ByteBuffer.wrap(bytes);
+            assertEquals(2, scanner.find(buf, 0, (byte) '='));
+            assertEquals(3, scanner.find(buf, 3, (byte) '='));
+            assertEquals(4, scanner.find(buf, 4, (byte) '>', (byte) '='));
+            assertEquals(6, scanner.find(buf, 6, (byte) '=', (byte) '>'));
+        }
+    }
+
+    @Test
+    public void testReaderWithEitherScanner() throws Exception {
+        var input =
+                """
+                <osm>
+                \t<bounds minlat="55.0" minlon="12.0" maxlat="55.5" maxlon="12.5"/>
+                \t<node id="1" lat="55.1" lon="12.1">
+                \t\t<tag k="name" v="Ø"/>
+                \t</node>
+                </osm>
+                """
+                        .getBytes(StandardCharsets.UTF_8);
+
+        for (var scanner : SCANNERS) {
+            var reader = new OSMReader();
+            reader.setScanner(scanner);
+            var names = new StringBuilder();
+            reader.addObservers(
+                    new OSMObserver() {
+                        @Override
+                        public void onNode(OSMNode node) {
+                            names.append(node.id()).append(node.tags());
+                        }
+                    });
+            reader.parse(new ByteArrayInputStream(input));
+
+            assertEquals("1[OSMTag[key=NAME, value=Ø]]", names.toString());
+        }
+    }
+}
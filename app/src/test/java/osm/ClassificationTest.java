@@ -0,0 +1,108 @@
+package osm;
+
+import drawing.DrawableEnum;
+import org.junit.jupiter.api.Test;
+import osm.elements.OSMNode;
+import osm.elements.OSMTag;
+import osm.elements.OSMWay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassificationTest {
+    @Test
+    public void testClassify() {
+        var way = new OSMWay();
+        way.init(1);
+        way.tags().add(OSMTag.from("highway", "residential"));
+        way.tags().add(OSMTag.from("name", "Vej"));
+        way.tags().add(OSMTag.from("oneway", "-1"));
+        way.tags().add(OSMTag.from("maxspeed", "50"));
+
+        var classification = way.classification();
+
+        assertTrue(classification.has(OSMTag.Key.HIGHWAY));
+        assertFalse(classification.has(OSMTag.Key.SERVICE));
+        assertEquals("Vej", classification.value(OSMTag.Key.NAME));
+        assertNull(classification.value(OSMTag.Key.STREET));
+        assertEquals(DrawableEnum.from(way), classification.drawable());
+        assertEquals(Classification.Direction.REVERSE, classification.direction());
+        assertEquals(50, classification.maxSpeed());
+    }
+
+    @Test
+    public void testFirstTagWins() {
+        var way = new OSMWay();
+        way.init(1);
+        way.tags().add(OSMTag.from("junction", "roundabout"));
+        way.tags().add(OSMTag.from("oneway", "no"));
+        way.tags().add(OSMTag.from("landuse", "forest"));
+        way.tags().add(OSMTag.from("building", "yes"));
+
+        var classification = way.classification();
+
+        assertEquals(Classification.Direction.SINGLE, classification.direction());
+        assertEquals(DrawableEnum.FOREST, classification.drawable());
+    }
+
+    @Test
+    public void testLastValue() {
+        var node = new OSMNode();
+        node.init(1, 12, 55);
+        node.tags().add(OSMTag.from("addr:street", "Vej"));
+        node.tags().add(OSMTag.from("addr:housenumber", "1"));
+        node.tags().add(OSMTag.from("addr:street", "Gade"));
+
+        var classification = new Classification();
+        classification.copyFrom(node.classification());
+
+        assertEquals("Vej", classification.value(OSMTag.Key.STREET));
+        assertEquals("Gade", classification.lastValue(OSMTag.Key.STREET));
+        assertEquals("1", classification.lastValue(OSMTag.Key.HOUSENUMBER));
+        assertNull(classification.lastValue(OSMTag.Key.CITY));
+
+        // A repeated key is forgotten when the element is classified again
+        node.init(2, 12, 55);
+        node.tags().add(OSMTag.from("addr:street", "Vej"));
+        assertEquals("Vej", node.classification().lastValue(OSMTag.Key.STREET));
+    }
+
+    @Test
+    public void testMaxSpeed() {
+        var way = new OSMWay();
+        way.init(1);
+        assertEquals(-1, way.classification().maxSpeed());
+
+        for (var value : new String[] {"signals", "none", "50 mph"}) {
+            way.init(1);
+            way.tags().add(OSMTag.from("maxspeed", value));
+            assertEquals(-1, way.classification().maxSpeed());
+        }
+    }
+
+    @Test
+    public void testInitClassifiesAgain() {
+        var way = new OSMWay();
+        way.init(1);
+        way.tags().add(OSMTag.from("name", "Vej"));
+        assertEquals("Vej", way.classification().value(OSMTag.Key.NAME));
+
+        way.init(2);
+        way.tags().add(OSMTag.from("highway", "service"));
+        assertNull(way.classification().value(OSMTag.Key.NAME));
+        assertEquals("service", way.classification().value(OSMTag.Key.HIGHWAY));
+    }
+
+    @Test
+    public void testCopy() {
+        var way = new OSMWay();
+        way.init(1);
+        way.tags().add(OSMTag.from("name", "Vej"));
+
+        var copy = new OSMWay();
+        copy.copyFrom(way);
+
+        // The copy is classified up front, and doesn't change with the original
+        way.init(2);
+        assertEquals("Vej", copy.classification().value(OSMTag.Key.NAME));
+    }
+}
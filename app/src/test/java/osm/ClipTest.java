@@ -0,0 +1,39 @@
+package osm;
+
+import geometry.Rect;
+import org.junit.jupiter.api.Test;
+import osm.elements.Coordinates;
+import osm.elements.OSMWay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClipTest {
+    private final Clip clip = new Clip(new Rect(55, 12, 56, 14));
+
+    @Test
+    public void testNodes() {
+        assertTrue(clip.keeps(13, 55.5));
+        // The margin is 5% of the size of the box
+        assertTrue(clip.keeps(14.09, 56.04));
+        assertFalse(clip.keeps(14.11, 55.5));
+        assertFalse(clip.keeps(13, 54.94));
+    }
+
+    @Test
+    public void testWays() {
+        var way = new OSMWay();
+        way.init(1);
+        way.addCoordinate(Coordinates.pack(14.05, 55.5));
+        assertFalse(clip.keeps(way)); // Only in the margin
+
+        way.addCoordinate(Coordinates.pack(13.9, 55.5));
+        assertTrue(clip.keeps(way));
+    }
+
+    @Test
+    public void testBounds() {
+        assertEquals(new Rect(55.5f, 12, 56, 13), clip.bounds(new Rect(55.5f, 11, 57, 13)));
+        // A box outside the file is used as it is
+        assertEquals(clip.box(), clip.bounds(new Rect(10, 10, 11, 11)));
+    }
+}
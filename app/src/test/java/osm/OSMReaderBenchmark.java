@@ -0,0 +1,83 @@
+package osm;
+
+import osm.elements.OSMNode;
+import osm.elements.OSMRelation;
+import osm.elements.OSMWay;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+
+/**
+ * Compares the throughput of the sequential and the parallel reader on the same file, both streamed
+ * and memory mapped. Not a test, run it with `gradlew benchmark -Pbenchmark=osm.OSMReaderBenchmark -Pargs=path/to/file.osm`
+ *
+ * <p>The parallel reader uses every core, unless the numbers of threads to compare are given after
+ * the file. Every element is decoded and counted, as nothing would be read without an observer.
+ */
+public class OSMReaderBenchmark {
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        var file = new File(args[0]);
+        var cores = Runtime.getRuntime().availableProcessors();
+        var levels = new int[] {1, cores};
+        if (args.length > 1) {
+            levels = Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray();
+        }
+
+        for (var parallelism : levels) {
+            for (int i = 0; i < RUNS; i++) {
+                var reader = new OSMReader();
+                var count = new Count();
+                reader.setParallelism(parallelism);
+                reader.addObservers(count);
+
+                var start = System.nanoTime();
+                try (var stream = new BufferedInputStream(new FileInputStream(file))) {
+                    reader.parse(stream);
+                }
+                print("streamed", parallelism, start, file, count);
+            }
+
+            for (int i = 0; i < RUNS; i++) {
+                var reader = new OSMReader();
+                var count = new Count();
+                reader.setParallelism(parallelism);
+                reader.addObservers(count);
+
+                var start = System.nanoTime();
+                reader.parse(file.toPath(), null);
+                print("mapped", parallelism, start, file, count);
+            }
+        }
+    }
+
+    private static void print(String mode, int parallelism, long start, File file, Count count) {
+        var seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(
+                "%-8s parallelism %2d: %6.2f s, %7.1f MB/s, %d elements%n",
+                mode, parallelism, seconds, file.length() / 1e6 / seconds, count.elements);
+    }
+
+    private static class Count implements OSMObserver {
+        long elements;
+
+        @Override
+        public void onNode(OSMNode node) {
+            elements++;
+        }
+
+        @Override
+        public void onWay(OSMWay way) {
+            elements++;
+        }
+
+        @Override
+        public void onRelation(OSMRelation relation) {
+            elements++;
+        }
+    }
+}
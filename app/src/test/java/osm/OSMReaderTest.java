@@ -0,0 +1,135 @@
+package osm;
+
+import geometry.Rect;
+import org.junit.jupiter.api.Test;
+import osm.elements.OSMNode;
+import osm.elements.OSMRelation;
+import osm.elements.OSMWay;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OSMReaderTest {
+    private static final String USUAL =
+            """
+            <?xml version='1.0' encoding='UTF-8'?>
+            <osm version="0.6">
+            \t<bounds minlat="55.0000000" minlon="12.0000000" maxlat="55.5000000" maxlon="12.5000000"/>
+            \t<node id="1" lat="55.1000000" lon="12.1000000"/>
+            \t<node id="2" lat="55.2000000" lon="12.2000000">
+            \t\t<tag k="addr:street" v="Vej"/>
+            \t</node>
+            \t<node id="3" lat="55.3" lon="12"/>
+            \t<way id="4">
+            \t\t<nd ref="1"/>
+            \t\t<nd ref="2"/>
+            \t\t<nd ref="3"/>
+            \t\t<tag k="highway" v="residential"/>
+            \t\t<tag k="name" v="a=b > c"/>
+            \t</way>
+            \t<relation id="5">
+            \t\t<member type="way" ref="4" role="outer"/>
+            \t\t<member type="node" ref="1" role="outer"/>
+            \t\t<tag k="natural" v="water"/>
+            \t</relation>
+            </osm>
+            """;
+
+    /**
+     * The same as USUAL, in the attribute order and with the extra attributes other tools write
+     */
+    private static final String REORDERED =
+            """
+            <?xml version='1.0' encoding='UTF-8'?>
+            <osm version="0.6" generator="osmium/1.14.0">
+            \t<bounds maxlon="12.5000000" minlon="12.0000000" maxlat="55.5000000" minlat="55.0000000"/>
+            \t<node id="1" version="3" timestamp="2020-01-01T00:00:00Z" uid="7" user="lol" changeset="9" lat="55.1000000" lon="12.1000000"/>
+            \t<node lon='12.2000000' visible='true' id='2' lat='55.2000000'>
+            \t\t<tag v='Vej' k='addr:street' />
+            \t</node>
+            \t<node lat="55.3" id="3" lon="12"/>
+            \t<way version="1" id="4">
+            \t\t<nd ref='1'/>
+            \t\t<nd ref="2"/>
+            \t\t<nd ref="3"/>
+            \t\t<tag k="highway" v="residential"/>
+            \t\t<tag v="a=b > c" k="name"/>
+            \t</way>
+            \t<relation visible="true" id="5">
+            \t\t<member role="outer" ref="4" type="way"/>
+            \t\t<member ref="1" type="node" role="outer"/>
+            \t\t<tag k='natural' v="water"/>
+            \t</relation>
+            </osm>
+            """;
+
+    private static List<String> parse(String input) throws Exception {
+        var reader = new OSMReader();
+        var trace = new Trace();
+        reader.addObservers(trace);
+        reader.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        return trace.events;
+    }
+
+    @Test
+    public void testUsualOrder() throws Exception {
+        var events = parse(USUAL);
+
+        assertEquals("b 55.0 12.0 55.5 12.5", events.get(0));
+        assertEquals("n1 55.1 12.1 0", events.get(1));
+        assertEquals("n2 55.2 12.2 1", events.get(2));
+        assertEquals("n3 55.3 12.0 0", events.get(3));
+        assertEquals(
+                "w4 3 [OSMTag[key=HIGHWAY, value=residential], OSMTag[key=NAME, value=a=b > c]]",
+                events.get(4));
+        assertEquals("r5 [4] 1", events.get(5));
+    }
+
+    @Test
+    public void testAnyOrder() throws Exception {
+        assertIterableEquals(parse(USUAL), parse(REORDERED));
+    }
+
+    @Test
+    public void testNegativeIds() throws Exception {
+        var events =
+                parse(
+                        USUAL.replace("\"1\"", "\"-1\"")
+                                .replace("lat=\"55.3\" lon=\"12\"", "lat=\"-55.3\" lon=\"-12\""));
+
+        assertEquals("n-1 55.1 12.1 0", events.get(1));
+        assertEquals("n3 -55.3 -12.0 0", events.get(3));
+        assertTrue(events.get(4).startsWith("w4 3 "));
+    }
+
+    private static class Trace implements OSMObserver {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onBounds(Rect bounds) {
+            events.add(
+                    "b " + bounds.top() + " " + bounds.left() + " " + bounds.bottom() + " "
+                            + bounds.right());
+        }
+
+        @Override
+        public void onNode(OSMNode node) {
+            events.add("n" + node.id() + " " + node.lat() + " " + node.lon() + " " + node.tags().size());
+        }
+
+        @Override
+        public void onWay(OSMWay way) {
+            events.add("w" + way.id() + " " + way.nodeCount() + " " + way.tags());
+        }
+
+        @Override
+        public void onRelation(OSMRelation relation) {
+            var ways = relation.ways().stream().map(way -> way.id()).toList();
+            events.add("r" + relation.id() + " " + ways + " " + relation.tags().size());
+        }
+    }
+}
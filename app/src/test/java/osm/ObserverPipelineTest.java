@@ -0,0 +1,127 @@
+package osm;
+
+import geometry.Rect;
+import org.junit.jupiter.api.Test;
+import osm.elements.OSMNode;
+import osm.elements.OSMTag;
+import osm.elements.OSMWay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObserverPipelineTest {
+    // More events than fit in the ring, so that the parser has to wait for the observers
+    private static final int COUNT = 200_000;
+
+    @Test
+    public void testSameOrder() {
+        var expected = new Trace();
+        var first = new Trace();
+        var second = new Trace();
+        var pipeline = new ObserverPipeline(first, second);
+
+        // The same instances are reused for every event, like the parser does
+        var node = new OSMNode();
+        var way = new OSMWay();
+        for (var observer : List.of(expected, pipeline)) {
+            observer.onBounds(new Rect(1, 2, 3, 4));
+            for (int i = 0; i < COUNT; i++) {
+                node.init(i, i * 0.5, -i * 0.5);
+                if (i % 3 == 0) node.tags().add(new OSMTag(OSMTag.Key.NAME, "n" + i));
+                observer.onNode(node);
+            }
+            for (int i = 0; i < COUNT / 10; i++) {
+                way.init(i);
+                way.setCoordinates(new long[] {i, i + 1});
+                observer.onWay(way);
+            }
+            observer.onFinish();
+        }
+
+        assertEquals(1 + COUNT + COUNT / 10 + 1, expected.events.size());
+        assertIterableEquals(expected.events, first.events);
+        assertIterableEquals(expected.events, second.events);
+    }
+
+    @Test
+    public void testInterest() {
+        // Each observer only gets the kinds of elements it wants
+        var all = new Trace();
+        var ways =
+                new Trace() {
+                    @Override
+                    public Interest interest() {
+                        return Interest.NONE.ways();
+                    }
+                };
+        var pipeline = new ObserverPipeline(all, ways);
+
+        var node = new OSMNode();
+        var way = new OSMWay();
+        for (int i = 0; i < COUNT / 10; i++) {
+            node.init(i, 1, 2);
+            pipeline.onNode(node);
+            if (i % 100 == 0) {
+                way.init(i);
+                way.setCoordinates(new long[] {i});
+                pipeline.onWay(way);
+            }
+        }
+        pipeline.onFinish();
+
+        assertEquals(COUNT / 10 + COUNT / 1000 + 1, all.events.size());
+        assertEquals(COUNT / 1000 + 1, ways.events.size());
+        assertEquals("w0 0 []", ways.events.get(0));
+        assertEquals("finish", ways.events.get(ways.events.size() - 1));
+        assertIterableEquals(all.events.stream().filter(e -> !e.startsWith("n")).toList(), ways.events);
+    }
+
+    @Test
+    public void testRethrow() {
+        var trace = new Trace();
+        var pipeline =
+                new ObserverPipeline(
+                        trace,
+                        new OSMObserver() {
+                            @Override
+                            public void onNode(OSMNode node) {
+                                throw new IllegalStateException("broken");
+                            }
+                        });
+
+        var node = new OSMNode();
+        node.init(1, 2, 3);
+        pipeline.onNode(node);
+
+        var e = assertThrows(IllegalStateException.class, pipeline::onFinish);
+        assertEquals("broken", e.getMessage());
+        // The other observer still sees everything
+        assertEquals(List.of("n1 2.0 3.0 []", "finish"), trace.events);
+    }
+
+    private static class Trace implements OSMObserver {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onBounds(Rect bounds) {
+            events.add("b" + bounds);
+        }
+
+        @Override
+        public void onNode(OSMNode node) {
+            events.add("n" + node.id() + " " + node.lon() + " " + node.lat() + " " + node.tags());
+        }
+
+        @Override
+        public void onWay(OSMWay way) {
+            events.add("w" + way.id() + " " + way.coordinates()[0] + " " + way.tags());
+        }
+
+        @Override
+        public void onFinish() {
+            events.add("finish");
+        }
+    }
+}
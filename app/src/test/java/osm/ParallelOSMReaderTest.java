@@ -0,0 +1,282 @@
+package osm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import geometry.Rect;
+import osm.elements.Coordinates;
+import osm.elements.OSMBounds;
+import osm.elements.OSMNode;
+import osm.elements.OSMRelation;
+import osm.elements.OSMTag;
+import osm.elements.OSMWay;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelOSMReaderTest {
+    byte[] input;
+
+    @BeforeEach
+    public void setUp() {
+        input = generate(200);
+    }
+
+    private static byte[] generate(int nodeCount) {
+        var sb = new StringBuilder();
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version=\"0.6\">\n");
+        sb.append(
+                "\t<bounds minlat=\"55.0000000\" minlon=\"12.0000000\" maxlat=\"55.5000000\" maxlon=\"12.5000000\"/>\n");
+        for (int i = 1; i <= nodeCount; i++) {
+            sb.append("\t<node id=\"%d\" lat=\"55.%07d\" lon=\"12.%07d\"".formatted(i, i * 997, i * 113));
+            if (i % 7 == 0) {
+                sb.append(">\n\t\t<tag k=\"addr:street\" v=\"Vej %d\"/>\n\t</node>\n".formatted(i));
+            } else {
+                sb.append("/>\n");
+            }
+        }
+        for (int i = 1; i <= 40; i++) {
+            sb.append("\t<way id=\"%d\">\n".formatted(i));
+            for (int j = 0; j < 5; j++) {
+                sb.append("\t\t<nd ref=\"%d\"/>\n".formatted(i * 4 + j));
+            }
+            sb.append("\t\t<tag k=\"highway\" v=\"residential\"/>\n\t</way>\n");
+        }
+        for (int i = 1; i <= 5; i++) {
+            sb.append("\t<relation id=\"%d\">\n".formatted(i));
+            sb.append("\t\t<member type=\"way\" ref=\"%d\" role=\"outer\"/>\n".formatted(i * 3));
+            sb.append("\t\t<member type=\"way\" ref=\"%d\" role=\"inner\"/>\n".formatted(i * 3 + 1));
+            sb.append("\t\t<tag k=\"natural\" v=\"water\"/>\n\t</relation>\n");
+        }
+        sb.append("</osm>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> parseSequential() throws Exception {
+        return parseSequential(Interest.ALL);
+    }
+
+    private List<String> parseSequential(Interest interest) throws Exception {
+        var reader = new OSMReader();
+        var trace = new Trace(interest);
+        reader.addObservers(trace);
+        reader.parse(new ByteArrayInputStream(input));
+        return trace.events;
+    }
+
+    private List<String> parseParallel(int blockSize) throws Exception {
+        return parseParallel(Interest.ALL, blockSize);
+    }
+
+    private List<String> parseParallel(Interest interest, int blockSize) throws Exception {
+        var reader = new OSMReader();
+        var trace = new Trace(interest);
+        reader.addObservers(trace);
+        new ParallelOSMReader(reader, 4, blockSize).parse(new ByteArrayInputStream(input));
+        return trace.events;
+    }
+
+    @Test
+    public void testSameAsSequential() throws Exception {
+        var expected = parseSequential();
+
+        assertEquals(200 + 40 + 5 + 1, expected.size());
+        assertIterableEquals(expected, parseParallel(256));
+        assertIterableEquals(expected, parseParallel(4096));
+        assertIterableEquals(expected, parseParallel(1024 * 1024));
+    }
+
+    @Test
+    public void testSetParallelism() throws Exception {
+        var reader = new OSMReader();
+        var trace = new Trace(Interest.ALL);
+        reader.setParallelism(4);
+        reader.addObservers(trace);
+        reader.parse(new ByteArrayInputStream(input));
+
+        assertIterableEquals(parseSequential(), trace.events);
+    }
+
+    @Test
+    public void testInterest() throws Exception {
+        var ways = Interest.NONE.ways().keys(OSMTag.Key.HIGHWAY);
+        var events = parseSequential(ways);
+
+        assertEquals(40 + 1, events.size());
+        assertEquals("w1 [OSMTag[key=HIGHWAY, value=residential]]", events.get(0));
+        assertIterableEquals(events, parseParallel(ways, 256));
+
+        // Only the tags that were asked for are decoded
+        var nodes = Interest.NONE.nodes().keys(OSMTag.Key.HIGHWAY);
+        events = parseSequential(nodes);
+
+        assertEquals(200 + 1, events.size());
+        assertTrue(events.stream().allMatch(e -> e.endsWith("[]") || e.equals("finish")));
+        assertIterableEquals(events, parseParallel(nodes, 256));
+
+        // The tables are still fed when relations need their members
+        var relations = Interest.NONE.relations().members();
+        events = parseSequential(relations);
+
+        assertEquals("r1 3 []", events.get(0));
+        assertIterableEquals(events, parseParallel(relations, 256));
+    }
+
+    @Test
+    public void testClip() throws Exception {
+        // Node i is at 55 + i * 0.0000997, 12 + i * 0.0000113, and way i has nodes 4i to 4i + 4
+        var box = new Rect(55.0f, 12.0f, 55.005f, 12.1f);
+
+        var reader = new OSMReader();
+        var trace = new Trace(Interest.ALL);
+        var bounds = new OSMBounds();
+        reader.setClip(box);
+        reader.addObservers(trace, bounds);
+        reader.parse(new ByteArrayInputStream(input));
+        var events = trace.events;
+
+        assertEquals(box, bounds.getRect());
+        // Nodes 51 and 52 are only in the margin
+        assertEquals(52, events.stream().filter(e -> e.startsWith("n")).count());
+        // Way 12 is kept for nodes 48 to 50, with the nodes in the margin, but way 13 is not
+        assertEquals(12, events.stream().filter(e -> e.startsWith("w")).count());
+        var way12 = events.get(52 + 11);
+        assertTrue(way12.startsWith("w12 "));
+        assertEquals(5, way12.substring(0, way12.indexOf('[')).trim().split(" ").length - 1);
+        // Relation i has way 3i as its outer way
+        assertEquals(
+                List.of("r1 3", "r2 6", "r3 9", "r4 12"),
+                events.stream()
+                        .filter(e -> e.startsWith("r"))
+                        .map(e -> e.substring(0, e.indexOf(" [")))
+                        .toList());
+
+        reader = new OSMReader();
+        var parallel = new Trace(Interest.ALL);
+        reader.setClip(box);
+        reader.addObservers(parallel);
+        new ParallelOSMReader(reader, 4, 256).parse(new ByteArrayInputStream(input));
+        assertIterableEquals(events, parallel.events);
+
+        // Relations are still only kept for their ways when no one wants the members
+        reader = new OSMReader();
+        var relations = new Trace(Interest.NONE.relations());
+        reader.setClip(box);
+        reader.addObservers(relations);
+        reader.parse(new ByteArrayInputStream(input));
+        assertEquals(4 + 1, relations.events.size());
+    }
+
+    private List<String> parseMapped(int blockSize) throws Exception {
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.write(file, input);
+
+            var reader = new OSMReader();
+            var trace = new Trace(Interest.ALL);
+            reader.addObservers(trace);
+            try (var mapped = new MappedInput(file, null)) {
+                new ParallelOSMReader(reader, 4, blockSize).parse(mapped);
+            }
+            return trace.events;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMapped() throws Exception {
+        // Big enough that the mapped reader cuts blocks from the window, and not just the tail
+        input = generate(40000);
+        assertTrue(input.length > MappedInput.MARGIN + 4096);
+
+        var expected = parseSequential();
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.write(file, input);
+
+            var reader = new OSMReader();
+            var trace = new Trace(Interest.ALL);
+            reader.addObservers(trace);
+            reader.parse(file, null);
+            assertIterableEquals(expected, trace.events);
+        } finally {
+            Files.delete(file);
+        }
+
+        assertIterableEquals(expected, parseMapped(4096));
+    }
+
+    @Test
+    public void testMappedNoElements() throws Exception {
+        var header = new String(generate(0), StandardCharsets.UTF_8);
+        header = header.substring(0, header.indexOf("\t<way "));
+        var padding = "\t<!-- no elements here -->\n".repeat(MappedInput.MARGIN / 16);
+        input = (header + padding + "</osm>\n").getBytes(StandardCharsets.UTF_8);
+
+        assertIterableEquals(List.of("finish"), parseSequential());
+        assertIterableEquals(List.of("finish"), parseMapped(4096));
+    }
+
+    @Test
+    public void testMappedLongElement() throws Exception {
+        // A way that is longer than the margin, and the last element in the window
+        var sb = new StringBuilder(new String(generate(200), StandardCharsets.UTF_8));
+        sb.setLength(sb.indexOf("\t<way "));
+        var start = sb.length();
+        sb.append("\t<way id=\"99\">\n");
+        for (int i = 0; sb.length() - start < MappedInput.MARGIN + 3 * 4096; i++) {
+            sb.append("\t\t<nd ref=\"%d\"/>\n".formatted(i % 200 + 1));
+        }
+        sb.append("\t\t<tag k=\"highway\" v=\"residential\"/>\n\t</way>\n</osm>\n");
+        input = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        var expected = parseSequential();
+        assertEquals(200 + 1 + 1, expected.size());
+        assertIterableEquals(expected, parseMapped(4096));
+    }
+
+    private static class Trace implements OSMObserver {
+        final List<String> events = new ArrayList<>();
+        final Interest interest;
+
+        Trace(Interest interest) {
+            this.interest = interest;
+        }
+
+        @Override
+        public Interest interest() {
+            return interest;
+        }
+
+        @Override
+        public void onNode(OSMNode node) {
+            events.add("n" + node.id() + " " + node.lat() + " " + node.lon() + " " + node.tags());
+        }
+
+        @Override
+        public void onWay(OSMWay way) {
+            var sb = new StringBuilder("w" + way.id());
+            for (var node : way.coordinates()) {
+                sb.append(' ').append(Coordinates.lat(node)).append(',').append(Coordinates.lon(node));
+            }
+            events.add(sb + " " + way.tags());
+        }
+
+        @Override
+        public void onRelation(OSMRelation relation) {
+            var sb = new StringBuilder("r" + relation.id());
+            for (var way : relation.ways()) sb.append(' ').append(way.id());
+            events.add(sb + " " + relation.tags());
+        }
+
+        @Override
+        public void onFinish() {
+            events.add("finish");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package osm;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferenceScannerTest {
+    private static String generate(int nodeCount, int wayCount) {
+        var sb = new StringBuilder();
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version=\"0.6\">\n");
+        sb.append(
+                "\t<bounds minlat=\"55.0000000\" minlon=\"12.0000000\" maxlat=\"55.5000000\" maxlon=\"12.5000000\"/>\n");
+        for (int i = 1; i <= nodeCount; i++) {
+            sb.append("\t<node id=\"%d\" lat=\"55.0000000\" lon=\"12.0000000\"/>\n".formatted(i));
+        }
+        for (int i = 1; i <= wayCount; i++) {
+            sb.append("\t<way id=\"%d\">\n".formatted(i));
+            sb.append("\t\t<nd ref=\"%d\"/>\n".formatted(i * 3));
+            sb.append("\t\t<nd ref=\"%d\"/>\n".formatted(i * 3 + 1));
+            sb.append("\t\t<tag k=\"highway\" v=\"residential\"/>\n\t</way>\n");
+        }
+        sb.append("\t<relation id=\"1\">\n");
+        sb.append("\t\t<member type=\"node\" ref=\"2\" role=\"\"/>\n");
+        sb.append("\t\t<member type=\"way\" ref=\"1\" role=\"outer\"/>\n");
+        sb.append("\t\t<member type=\"way\" ref=\"-2\" role=\"outer\"/>\n");
+        sb.append("\t\t<member type=\"way\" ref=\"3\" role=\"inner\"/>\n\t</relation>\n");
+        sb.append("</osm>\n");
+        return sb.toString();
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.writeString(file, generate(30000, 1000).replace("<nd ref=\"6\"", "<nd ref=\"-6\""));
+
+            for (var parallelism : new int[] {1, 3, 7}) {
+                var references = ReferenceScanner.scan(file, parallelism);
+                var ids = references.nodes();
+
+                assertEquals(2000, ids.size());
+                assertTrue(ids.contains(3));
+                assertTrue(ids.contains(4));
+                assertTrue(ids.contains(-6));
+                assertTrue(ids.contains(3001));
+                assertFalse(ids.contains(2)); // Only referred to by a relation
+                assertFalse(ids.contains(5));
+                assertFalse(ids.contains(6));
+
+                var ways = references.ways();
+                assertEquals(2, ways.size());
+                assertTrue(ways.contains(1));
+                assertTrue(ways.contains(-2));
+                assertFalse(ways.contains(3)); // Not an outer way
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testAnyOrder() throws Exception {
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.writeString(
+                    file,
+                    generate(10, 2)
+                            .replace("<nd ref=\"3\"", "<nd ref='3'")
+                            .replace(
+                                    "<member type=\"way\" ref=\"1\" role=\"outer\"",
+                                    "<member role='outer' ref='1' type='way'")
+                            .replace(
+                                    "<member type=\"way\" ref=\"-2\" role=\"outer\"",
+                                    "<member ref=\"-2\" role=\"outer\" type=\"way\""));
+
+            var references = ReferenceScanner.scan(file, 1);
+            assertTrue(references.nodes().contains(3));
+            assertEquals(4, references.nodes().size());
+            assertTrue(references.ways().contains(1));
+            assertTrue(references.ways().contains(-2));
+            assertEquals(2, references.ways().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLongTags() throws Exception {
+        // Member tags with their ref far from their start, so that tags are cut between the parts
+        var sb = new StringBuilder(generate(10, 2));
+        sb.setLength(sb.indexOf("\t<relation"));
+        for (int i = 1; i <= 50; i++) {
+            sb.append("\t<relation id=\"%d\">\n".formatted(i));
+            sb.append("\t\t<member role=\"outer\" type=\"way\"%s ref=\"%d\"/>\n".formatted(" ".repeat(300), i));
+            sb.append("\t</relation>\n");
+        }
+        sb.append("</osm>\n");
+
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.writeString(file, sb.toString());
+
+            for (var parallelism : new int[] {1, 3, 7, 16}) {
+                var ways = ReferenceScanner.scan(file, parallelism).ways();
+                assertEquals(50, ways.size());
+                for (int i = 1; i <= 50; i++) assertTrue(ways.contains(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWhitespace() throws Exception {
+        // Any whitespace may follow the name of an element
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.writeString(
+                    file,
+                    generate(3000, 100)
+                            .replace("<node ", "<node\t")
+                            .replace("<way ", "<way\n")
+                            .replace("<relation ", "<relation\r\n"));
+
+            var references = ReferenceScanner.scan(file, 2);
+            assertEquals(200, references.nodes().size());
+            assertEquals(2, references.ways().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testNoWays() throws Exception {
+        var file = Files.createTempFile("osm", ".osm");
+        try {
+            Files.writeString(file, generate(100, 0));
+            var references = ReferenceScanner.scan(file, 2);
+            assertEquals(0, references.nodes().size());
+            assertEquals(2, references.ways().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
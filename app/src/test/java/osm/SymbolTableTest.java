@@ -0,0 +1,58 @@
+package osm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTableTest {
+    SymbolTable table;
+    ByteBuffer buf;
+
+    @BeforeEach
+    public void setUp() {
+        table = new SymbolTable();
+        buf =
+                ByteBuffer.wrap(
+                        "residential|primary|residential|Østergade".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCodes() {
+        assertEquals(0, table.code(0, buf, 0, 11));
+        assertEquals(1, table.code(0, buf, 12, 7));
+        assertEquals(0, table.code(0, buf, 20, 11));
+        // Same bytes in another namespace
+        assertEquals(2, table.code(1, buf, 20, 11));
+
+        assertEquals("residential", table.string(0));
+        assertEquals("primary", table.string(1));
+        assertSame(table.string(0), table.string(table.code(0, buf, 0, 11)));
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    public void testUtf8() {
+        var code = table.code(0, buf, 32, buf.limit() - 32);
+        assertEquals("Østergade", table.string(code));
+    }
+
+    @Test
+    public void testGrow() {
+        var codes = new int[10_000];
+        for (int i = 0; i < codes.length; i++) {
+            var bytes = ByteBuffer.wrap(("value" + i).getBytes(StandardCharsets.UTF_8));
+            codes[i] = table.code(i % 3, bytes, 0, bytes.limit());
+            assertEquals(i, codes[i]);
+        }
+
+        for (int i = 0; i < codes.length; i++) {
+            var bytes = ByteBuffer.wrap(("value" + i).getBytes(StandardCharsets.UTF_8));
+            assertEquals(i, table.code(i % 3, bytes, 0, bytes.limit()));
+            assertEquals("value" + i, table.string(i));
+        }
+    }
+}
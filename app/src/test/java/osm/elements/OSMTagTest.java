@@ -0,0 +1,31 @@
+package osm.elements;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OSMTagTest {
+    @Test
+    public void testKeyFromBytes() {
+        var buf =
+                ByteBuffer.wrap(
+                        "k=\"addr:housenumber\" k=\"highways\"".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(OSMTag.Key.HOUSENUMBER, OSMTag.Key.from(buf, 3, 16));
+        assertEquals(OSMTag.Key.HIGHWAY, OSMTag.Key.from(buf, 24, 7));
+        assertNull(OSMTag.Key.from(buf, 24, 8));
+        assertNull(OSMTag.Key.from(buf, 0, 0));
+    }
+
+    @Test
+    public void testKeyFromString() {
+        assertEquals(OSMTag.Key.MAN_MADE, OSMTag.Key.from("man_made"));
+        assertEquals(OSMTag.Key.CYCLEWAY_LEFT, OSMTag.Key.from("cycleway:left"));
+        assertEquals(OSMTag.Key.POSTCODE, OSMTag.Key.from("addr:postcode"));
+        assertNull(OSMTag.Key.from("addr:country"));
+        assertNull(OSMTag.Key.from("Name"));
+    }
+}
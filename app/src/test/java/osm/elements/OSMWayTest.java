@@ -0,0 +1,59 @@
+package osm.elements;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OSMWayTest {
+    @Test
+    public void testCoordinates() {
+        var way = new OSMWay();
+        way.init(1);
+        way.addCoordinate(Coordinates.pack(12.5, 55.5));
+        way.addCoordinate(Coordinates.pack(12.25, 55.75));
+
+        assertEquals(2, way.nodeCount());
+        assertEquals(12.25, way.nodeLon(1), 1e-7);
+        assertEquals(55.75, way.nodeLat(1), 1e-7);
+        assertArrayEquals(new long[] {way.coordinate(0), way.coordinate(1)}, way.coordinates());
+
+        way.init(2);
+        assertEquals(0, way.nodeCount());
+        assertEquals(0, way.coordinates().length);
+    }
+
+    @Test
+    public void testSlimIsACopy() {
+        var way = new OSMWay();
+        way.init(1);
+        way.addCoordinate(Coordinates.pack(12.5, 55.5));
+
+        var slim = way.slim();
+        var copy = new OSMWay();
+        copy.copyFrom(way);
+
+        way.init(2);
+        way.addCoordinate(Coordinates.pack(10, 50));
+
+        assertEquals(1, slim.id());
+        assertArrayEquals(new long[] {Coordinates.pack(12.5, 55.5)}, slim.coordinates());
+        assertEquals(1, copy.id());
+        assertEquals(Coordinates.pack(12.5, 55.5), copy.coordinate(0));
+    }
+
+    @Test
+    public void testRelationSlimIsACopy() {
+        var way = new SlimOSMWay(3, new long[0]);
+        var relation = new OSMRelation();
+        relation.init(1);
+        relation.ways().add(way);
+
+        var slim = relation.slim();
+        relation.init(2);
+
+        assertEquals(1, slim.id());
+        assertEquals(1, slim.ways().size());
+        assertSame(way, slim.ways().get(0));
+        assertTrue(relation.ways().isEmpty());
+    }
+}
@@ -0,0 +1,296 @@
+package osm.pbf;
+
+import geometry.Rect;
+import org.junit.jupiter.api.Test;
+import osm.Interest;
+import osm.OSMObserver;
+import osm.elements.OSMNode;
+import osm.elements.OSMRelation;
+import osm.elements.OSMTag;
+import osm.elements.OSMWay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PBFReaderTest {
+    /**
+     * Writes the protocol buffer wire format, just enough of it to make PBF files
+     */
+    private static class ProtoWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ProtoWriter varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write((int) value);
+            return this;
+        }
+
+        ProtoWriter sint(long value) {
+            return varint(value << 1 ^ value >> 63);
+        }
+
+        ProtoWriter field(int number, long value) {
+            return varint(number << 3 | ProtoReader.VARINT).varint(value);
+        }
+
+        /**
+         * A field of a zigzag varint
+         */
+        ProtoWriter sfield(int number, long value) {
+            return varint(number << 3 | ProtoReader.VARINT).sint(value);
+        }
+
+        ProtoWriter field(int number, byte[] bytes) {
+            varint(number << 3 | ProtoReader.LENGTH_DELIMITED).varint(bytes.length);
+            out.writeBytes(bytes);
+            return this;
+        }
+
+        ProtoWriter field(int number, String string) {
+            return field(number, string.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ProtoWriter field(int number, ProtoWriter message) {
+            return field(number, message.toByteArray());
+        }
+
+        /**
+         * A packed field of varints
+         */
+        ProtoWriter packed(int number, long... values) {
+            var packed = new ProtoWriter();
+            for (var value : values) packed.varint(value);
+            return field(number, packed);
+        }
+
+        /**
+         * A packed field of zigzag varints, which are delta coded first
+         */
+        ProtoWriter deltas(int number, long... values) {
+            var packed = new ProtoWriter();
+            long last = 0;
+            for (var value : values) {
+                packed.sint(value - last);
+                last = value;
+            }
+            return field(number, packed);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static final String[] STRINGS = {
+            "", "highway", "residential", "name", "Vej", "outer", "inner", "natural", "water",
+            "addr:street"
+    };
+
+    /**
+     * A blob with its header, the data raw or deflated
+     */
+    private static void blob(DataOutputStream out, String type, ProtoWriter data, boolean deflate)
+            throws IOException {
+        var bytes = data.toByteArray();
+        var blob = new ProtoWriter();
+        if (deflate) {
+            var deflated = new ByteArrayOutputStream();
+            try (var deflater = new DeflaterOutputStream(deflated)) {
+                deflater.write(bytes);
+            }
+            blob.field(2, bytes.length).field(3, deflated.toByteArray());
+        } else {
+            blob.field(1, bytes);
+        }
+
+        var header = new ProtoWriter().field(1, type).field(3, blob.toByteArray().length);
+        out.writeInt(header.toByteArray().length);
+        out.write(header.toByteArray());
+        out.write(blob.toByteArray());
+    }
+
+    /**
+     * A file of the same elements as OSMReaderTest's, and an extra node, in two data blobs, with
+     * coordinates in millidegrees from an offset
+     *
+     * @param bbox Whether the header has a bounding box
+     */
+    private static byte[] file(boolean bbox) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+
+        var header = new ProtoWriter();
+        if (bbox) {
+            // Left, right, top and bottom, in nanodegrees
+            header.field(
+                    1,
+                    new ProtoWriter()
+                            .sfield(1, 12_000_000_000L)
+                            .sfield(2, 12_500_000_000L)
+                            .sfield(3, 55_500_000_000L)
+                            .sfield(4, 55_000_000_000L));
+        }
+        header.field(4, "OsmSchema-V0.6").field(4, "DenseNodes");
+        blob(out, "OSMHeader", header, false);
+
+        var strings = new ProtoWriter();
+        for (var string : STRINGS) strings.field(1, string);
+
+        // Lat and lon are offset + granularity * value, in nanodegrees, so 100 is 55.1 and 12.1
+        var dense =
+                new ProtoWriter()
+                        .deltas(1, 1, 2, 3, 7)
+                        .deltas(8, 100, 200, 300, -100)
+                        .deltas(9, 100, 200, 0, -1)
+                        // Node 2 has addr:street=Vej, and the rest have no tags
+                        .packed(10, 0, 9, 4, 0, 0, 0);
+        var nodes =
+                new ProtoWriter()
+                        .field(1, strings)
+                        .field(2, new ProtoWriter().field(2, dense))
+                        .field(17, 1_000_000)
+                        .field(19, 55_000_000_000L)
+                        .field(20, 12_000_000_000L);
+        blob(out, "OSMData", nodes, true);
+
+        var way =
+                new ProtoWriter()
+                        .field(1, 4)
+                        .packed(2, 1, 3)
+                        .packed(3, 2, 4)
+                        .deltas(8, 1, 2, 3);
+        // An outer way, an outer node, a missing outer way and an inner way
+        var relation =
+                new ProtoWriter()
+                        .field(1, 5)
+                        .packed(2, 7)
+                        .packed(3, 8)
+                        .packed(8, 5, 5, 5, 6)
+                        .deltas(9, 4, 1, 99, 4)
+                        .packed(10, 1, 0, 1, 1);
+        var others =
+                new ProtoWriter()
+                        .field(1, strings)
+                        .field(2, new ProtoWriter().field(3, way))
+                        .field(2, new ProtoWriter().field(4, relation));
+        blob(out, "OSMData", others, false);
+
+        // Unknown blobs are skipped
+        blob(out, "OSMUnknown", new ProtoWriter().field(1, 1), false);
+
+        return bytes.toByteArray();
+    }
+
+    private static List<String> parse(byte[] file) throws Exception {
+        return parse(file, Interest.ALL);
+    }
+
+    private static List<String> parse(byte[] file, Interest interest) throws Exception {
+        var reader = new PBFReader();
+        var trace =
+                new Trace() {
+                    @Override
+                    public Interest interest() {
+                        return interest;
+                    }
+                };
+        reader.addObservers(trace);
+        reader.parse(new ByteArrayInputStream(file));
+        return trace.events;
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        var events = parse(file(true));
+
+        assertEquals("b 55.0 12.0 55.5 12.5", events.get(0));
+        assertEquals("n1 55.1 12.1 0", events.get(1));
+        assertEquals("n2 55.2 12.2 1 [OSMTag[key=STREET, value=Vej]]", events.get(2));
+        assertEquals("n3 55.3 12.0 0", events.get(3));
+        assertEquals("n7 54.9 11.999 0", events.get(4));
+        assertEquals(
+                "w4 3 [OSMTag[key=HIGHWAY, value=residential], OSMTag[key=NAME, value=Vej]]",
+                events.get(5));
+        assertEquals("r5 [4] 1", events.get(6));
+        assertEquals("f", events.get(7));
+        assertEquals(8, events.size());
+    }
+
+    @Test
+    public void testNoBoundingBox() throws Exception {
+        var events = parse(file(false));
+
+        // The box around the nodes, which are still passed on after it
+        assertEquals("b 54.9 11.999 55.3 12.2", events.get(0));
+        assertEquals(parse(file(true)).subList(1, 8), events.subList(1, 8));
+    }
+
+    @Test
+    public void testInterest() throws Exception {
+        // Ways without their nodes, and only the tags that are wanted
+        assertEquals(
+                List.of("b 55.0 12.0 55.5 12.5", "w4 0 [OSMTag[key=NAME, value=Vej]]", "f"),
+                parse(file(true), Interest.NONE.ways().keys(OSMTag.Key.NAME)));
+
+        // Relations without their members or tags
+        assertEquals(
+                List.of("b 55.0 12.0 55.5 12.5", "r5 [] 0", "f"),
+                parse(file(true), Interest.NONE.relations()));
+
+        // Nodes without their tags, and the bounds of those nodes
+        var nodes = parse(file(false), Interest.NONE.nodes());
+        assertEquals("b 54.9 11.999 55.3 12.2", nodes.get(0));
+        assertEquals("n2 55.2 12.2 0", nodes.get(2));
+        assertEquals(6, nodes.size());
+    }
+
+    private static class Trace implements OSMObserver {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onBounds(Rect bounds) {
+            events.add(
+                    "b " + bounds.top() + " " + bounds.left() + " " + bounds.bottom() + " "
+                            + bounds.right());
+        }
+
+        @Override
+        public void onNode(OSMNode node) {
+            var event = "n" + node.id() + " " + round(node.lat()) + " " + round(node.lon());
+            event += " " + node.tags().size();
+            if (!node.tags().isEmpty()) event += " " + node.tags();
+            events.add(event);
+        }
+
+        @Override
+        public void onWay(OSMWay way) {
+            events.add("w" + way.id() + " " + way.nodeCount() + " " + way.tags());
+        }
+
+        @Override
+        public void onRelation(OSMRelation relation) {
+            var ways = relation.ways().stream().map(way -> way.id()).toList();
+            events.add("r" + relation.id() + " " + ways + " " + relation.tags().size());
+        }
+
+        @Override
+        public void onFinish() {
+            events.add("f");
+        }
+
+        private static double round(double degrees) {
+            return Math.round(degrees * 1e7) / 1e7;
+        }
+    }
+}
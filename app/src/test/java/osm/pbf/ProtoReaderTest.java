@@ -0,0 +1,56 @@
+package osm.pbf;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtoReaderTest {
+    @Test
+    public void testVarint() {
+        var reader = new ProtoReader(new byte[] {0x01, (byte) 0xAC, 0x02, (byte) 0xFF, (byte) 0xFF, 0x03});
+        assertEquals(1, reader.varint());
+        assertEquals(300, reader.varint());
+        assertEquals(65535, reader.varint());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testSint64() {
+        var reader = new ProtoReader(new byte[] {0x00, 0x01, 0x02, 0x03, (byte) 0xFE, 0x03});
+        assertEquals(0, reader.sint64());
+        assertEquals(-1, reader.sint64());
+        assertEquals(1, reader.sint64());
+        assertEquals(-2, reader.sint64());
+        assertEquals(255, reader.sint64());
+    }
+
+    @Test
+    public void testFields() {
+        // field 1: varint 150, field 2: string "hi", field 3: packed [1, 2, 3], field 4: fixed32
+        var reader =
+                new ProtoReader(
+                        new byte[] {
+                                0x08, (byte) 0x96, 0x01,
+                                0x12, 0x02, 'h', 'i',
+                                0x1A, 0x03, 0x01, 0x02, 0x03,
+                                0x25, 0x00, 0x00, 0x00, 0x00,
+                                0x28, 0x07
+                        });
+
+        assertEquals(1, reader.next());
+        assertEquals(150, reader.int32());
+        assertEquals(2, reader.next());
+        assertEquals("hi", reader.string());
+        assertEquals(3, reader.next());
+        var packed = reader.message();
+        assertEquals(1, packed.int32());
+        assertEquals(2, packed.int32());
+        assertEquals(3, packed.int32());
+        assertFalse(packed.hasNext());
+        assertEquals(4, reader.next());
+        reader.skip();
+        assertEquals(5, reader.next());
+        assertEquals(7, reader.int32());
+        assertFalse(reader.hasNext());
+    }
+}
@@ -0,0 +1,55 @@
+package osm.tables;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import osm.elements.Coordinates;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ArrayNodeTableTest {
+    NodeTable table;
+
+    @BeforeEach
+    public void setUp() {
+        table = new ArrayNodeTable();
+    }
+
+    @Test
+    public void testCoordinates() {
+        var coordinate = Coordinates.pack(-12.5683371, 55.6760968);
+        assertEquals(-12.5683371, Coordinates.lon(coordinate), 1e-9);
+        assertEquals(55.6760968, Coordinates.lat(coordinate), 1e-9);
+
+        coordinate = Coordinates.pack(179.9999999, -89.9999999);
+        assertEquals(179.9999999, Coordinates.lon(coordinate), 1e-9);
+        assertEquals(-89.9999999, Coordinates.lat(coordinate), 1e-9);
+    }
+
+    @Test
+    public void testSorted() {
+        for (int i = 0; i < 5000; i++) {
+            table.put(i * 3, Coordinates.pack(i, -i));
+        }
+
+        assertEquals(5000, table.size());
+        assertEquals(Coordinates.pack(1000, -1000), table.get(3000));
+        assertEquals(Coordinates.NONE, table.get(3001));
+        assertEquals(Coordinates.NONE, table.get(-1));
+    }
+
+    @Test
+    public void testUnsorted() {
+        var random = new Random(42);
+        var ids = new long[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextLong(1L << 40);
+            table.put(ids[i], Coordinates.pack((int) ids[i], (int) (ids[i] >> 8)));
+        }
+
+        for (var id : ids) {
+            assertEquals(Coordinates.pack((int) id, (int) (id >> 8)), table.get(id));
+        }
+    }
+}
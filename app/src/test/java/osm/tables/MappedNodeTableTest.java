@@ -0,0 +1,47 @@
+package osm.tables;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import osm.elements.Coordinates;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MappedNodeTableTest {
+    MappedNodeTable table;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        table = MappedNodeTable.createTemp();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        table.close();
+    }
+
+    @Test
+    public void testGet() {
+        table.put(1, Coordinates.pack(12.5, 55.5));
+        table.put(10_000_000_000L, Coordinates.pack(-12.5, -55.5));
+        table.put(-5, Coordinates.pack(1.0, 2.0));
+        // Null island must not read as a missing node
+        table.put(7, Coordinates.pack(0.0, 0.0));
+
+        assertEquals(4, table.size());
+        assertEquals(Coordinates.pack(12.5, 55.5), table.get(1));
+        assertEquals(Coordinates.pack(-12.5, -55.5), table.get(10_000_000_000L));
+        assertEquals(Coordinates.pack(1.0, 2.0), table.get(-5));
+        assertEquals(Coordinates.pack(0.0, 0.0), table.get(7));
+    }
+
+    @Test
+    public void testMissing() {
+        table.put(1, Coordinates.pack(12.5, 55.5));
+
+        assertEquals(Coordinates.NONE, table.get(0));
+        assertEquals(Coordinates.NONE, table.get(2));
+        assertEquals(Coordinates.NONE, table.get(1L << 40));
+        assertEquals(Coordinates.NONE, table.get(-1));
+    }
+}
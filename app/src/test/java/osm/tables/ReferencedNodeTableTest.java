@@ -0,0 +1,55 @@
+package osm.tables;
+
+import collections.IdSet;
+import org.junit.jupiter.api.Test;
+import osm.elements.Coordinates;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferencedNodeTableTest {
+    private static IdSet ids(long... ids) {
+        var set = new IdSet();
+        for (var id : ids) set.add(id);
+        return set;
+    }
+
+    @Test
+    public void testCandidates() {
+        // Nodes are read before the scan is done, and filtered when the first way needs one
+        var scan = new CompletableFuture<IdSet>();
+        var table = new ReferencedNodeTable(scan, count -> new ArrayNodeTable());
+        for (int i = 0; i < 10; i++) table.put(i, Coordinates.pack(i, -i));
+        assertEquals(0, table.size());
+
+        scan.complete(ids(2, 5, 11));
+        for (int i = 10; i < 20; i++) table.put(i, Coordinates.pack(i, -i));
+
+        assertEquals(Coordinates.pack(2, -2), table.get(2));
+        assertEquals(Coordinates.pack(5, -5), table.get(5));
+        assertEquals(Coordinates.pack(11, -11), table.get(11));
+        assertEquals(Coordinates.NONE, table.get(3));
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    public void testTooManyCandidates() throws Exception {
+        // The reader waits for the scan once there are too many candidates
+        var scan = new CompletableFuture<IdSet>();
+        var table = new ReferencedNodeTable(scan, count -> new ArrayNodeTable(), 4);
+        var reader =
+                new Thread(
+                        () -> {
+                            for (int i = 0; i < 10; i++) table.put(i, Coordinates.pack(i, -i));
+                        });
+        reader.start();
+        reader.join(100);
+        assertTrue(reader.isAlive());
+
+        scan.complete(ids(1, 8));
+        reader.join();
+        assertEquals(2, table.size());
+        assertEquals(Coordinates.pack(8, -8), table.get(8));
+    }
+}
@@ -0,0 +1,46 @@
+package osm.tables;
+
+import collections.IdSet;
+import org.junit.jupiter.api.Test;
+import osm.elements.Coordinates;
+import osm.elements.OSMWay;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WayTableTest {
+    private static void addWays(WayTable table) {
+        var way = new OSMWay();
+        for (int i = 1; i <= 10; i++) {
+            way.init(i);
+            way.addCoordinate(Coordinates.pack(i, i));
+            table.onWay(way);
+        }
+    }
+
+    @Test
+    public void testKeepsEveryWay() {
+        var table = new WayTable();
+        addWays(table);
+
+        assertEquals(10, table.size());
+        assertArrayEquals(new long[] {Coordinates.pack(4, 4)}, table.get(4).coordinates());
+    }
+
+    @Test
+    public void testKeepsMembers() {
+        var members = new IdSet();
+        members.add(4);
+        members.add(7);
+        members.add(12);
+
+        var table = new WayTable(CompletableFuture.completedFuture(members));
+        addWays(table);
+
+        assertEquals(2, table.size());
+        assertArrayEquals(new long[] {Coordinates.pack(4, 4)}, table.get(4).coordinates());
+        assertNotNull(table.get(7));
+        assertNull(table.get(5));
+    }
+}